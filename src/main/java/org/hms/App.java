@@ -16,6 +16,15 @@ import org.hms.views.AbstractMenu;
  * This class initializes and runs the application, managing various services and user interactions.
  */
 public class App {
+    /**
+     * Interval between two background flushes of modified tables, in milliseconds.
+     */
+    private static final long WRITE_BEHIND_FLUSH_INTERVAL_MILLIS = 2000;
+    /**
+     * Number of unsaved table mutations after which modified tables are flushed early.
+     */
+    private static final int WRITE_BEHIND_MAX_PENDING_MUTATIONS = 64;
+
     private final StorageService storageService;
     private final MedicalRecordService medicalRecordService;
     private final AppointmentService appointmentService;
@@ -31,6 +40,7 @@ public class App {
      */
     public App() {
         this.storageService = new StorageService();
+        this.storageService.enableWriteBehind(WRITE_BEHIND_FLUSH_INTERVAL_MILLIS, WRITE_BEHIND_MAX_PENDING_MUTATIONS);
         this.medicalRecordService = new MedicalRecordService(storageService);
         this.appointmentService = new AppointmentService(storageService);
         this.drugDispensaryService = new DrugDispensaryService(storageService);
@@ -57,6 +67,14 @@ public class App {
         }
     }
 
+    /**
+     * Writes every pending table modification to disk. Called when a user logs out,
+     * so that nothing a user did is left waiting in memory after their session ends.
+     */
+    public void flushPendingWrites() {
+        storageService.flush();
+    }
+
     /**
      * Initialise the application
      */
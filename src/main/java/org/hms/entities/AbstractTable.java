@@ -1,13 +1,31 @@
 package org.hms.entities;
 
+import org.hms.utils.DurableFiles;
+
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
 import java.util.function.BiPredicate;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 
@@ -16,21 +34,255 @@ import java.util.stream.Collectors;
  * Each entry is an instance of a class that extends AbstractTableEntry.
  * This class provides methods to add, remove, replace, and search for entries,
  * as well as to save the entries to a CSV file.
+ * <p>
+ * A table may be shared between threads. Mutations, saves and loads take an exclusive write lock, while
+ * searches, index lookups, scans and queries take a shared read lock, so readers never block each other.
+ * {@link #getEntry(int)} and {@link #size()} go further, and first read the table optimistically, without
+ * locking, only retrying under the read lock if a write happened meanwhile. Callers that need to walk the
+ * entries use {@link #snapshot()} or {@link #forEachEntry(Consumer)}; the live view of {@link #viewEntries()}
+ * is only read by the query planner, while its query holds the read lock.
+ * </p>
+ * <p>
+ * A {@link TableTransaction} holds the write lock of each of its tables from the moment it begins until it is
+ * committed or rolled back, so other threads neither see its uncommitted changes nor mutate its tables meanwhile.
+ * </p>
  *
  * @param <T> the type of entries in the table, extending AbstractTableEntry
  */
 public abstract class AbstractTable<T extends AbstractTableEntry> implements Serializable {
+    /**
+     * The bytes written after every line of a CSV file.
+     */
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    /**
+     * The size of the buffer used when writing a CSV file or a snapshot, in bytes.
+     */
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
     protected List<T> entries;
     protected String filePath;
+    /**
+     * Maps each tableEntryID to the position of its entry in {@link #entries}.
+     * Every method that mutates or reorders the entries list must keep this consistent.
+     */
+    private final IntIndexMap positionIndex;
+    /**
+     * The first ID handed out by {@link #getUnusedID()}.
+     */
+    private final int firstID;
+    /**
+     * The step between two IDs handed out by {@link #getUnusedID()}, which only hands out
+     * firstID, firstID + idStride, firstID + 2 * idStride, and so on.
+     */
+    private final int idStride;
+    /**
+     * Every ID of the sequence handed out by {@link #getUnusedID()} below this one is known to be in use,
+     * so the search for an unused ID starts here. It only moves forward as IDs are handed out, and moves back
+     * when an entry of the sequence below it is removed, which makes {@link #getUnusedID()} O(1) amortized.
+     */
+    private int lowestFreeIDHint;
+    /**
+     * The read-only view of {@link #entries} returned by {@link #viewEntries()}, created on first use.
+     */
+    private transient List<T> entriesView;
+    /**
+     * The secondary indexes registered on this table, keyed by their name.
+     * Not serialized, since key extractors are not, but recreated and rebuilt when the table is deserialized.
+     */
+    private transient Map<String, SecondaryIndex<T, ?>> indexesByName;
+    /**
+     * The secondary indexes registered on this table, keyed by the identity of their key extractor.
+     * Searches passing the same extractor instance that an index was registered with will use that index.
+     */
+    private transient Map<Function<T, ?>, SecondaryIndex<T, ?>> indexesByExtractor;
+    /**
+     * The journal mutations are appended to when journaling is enabled, or null when every
+     * mutation rewrites the whole file instead.
+     */
+    private transient TableJournal journal;
+    /**
+     * The transaction this table is taking part in, or null if there is none.
+     * While set, mutations are only applied in memory, and the thread running the transaction holds the write lock.
+     */
+    private transient TableTransaction transaction;
+    /**
+     * The stamp of the write lock held for the current transaction, released when the transaction ends.
+     */
+    private transient long transactionStamp;
+    /**
+     * Whether the table has been mutated since it joined its current transaction.
+     */
+    private transient boolean modifiedInTransaction;
+    /**
+     * The entries of an unlinked table at the start of its current transaction, used to roll it back.
+     * Tables linked to a file are rolled back by reloading the file instead.
+     */
+    private transient List<T> entriesBeforeTransaction;
+    /**
+     * Notified instead of writing the linked file when the table is in write-behind mode, or null otherwise.
+     */
+    private transient Consumer<AbstractTable<?>> writeBehindListener;
+    /**
+     * The writer dirty entries are serialized into when the table is saved or journaled, reused across rows.
+     */
+    private transient CSVRowWriter rowWriter;
+    /**
+     * Guards the entries, the position index, the secondary indexes and the persistence state of the table.
+     * A thread holding it gets it again at once, but public methods still take it once and share private helpers
+     * that assume it is held.
+     */
+    private transient StampedLock lock = new StampedLock();
+    /**
+     * The thread holding the write lock, or null if none does. Subclass hooks such as
+     * {@link #createValidEntryTemplate()} run while the table is being loaded, and may call back into
+     * the table, for instance through {@link #getUnusedID()}, which must not wait for the lock again.
+     */
+    private transient volatile Thread writeOwner;
+    /**
+     * Counts the changes made to the entries list, so that a snapshot can tell if it is still current.
+     */
+    private long version;
+    /**
+     * The lowest position whose entry may have changed or moved since the latest snapshot was taken,
+     * or Integer.MAX_VALUE if none has.
+     */
+    private int snapshotStaleFrom = Integer.MAX_VALUE;
+    /**
+     * The snapshot segments holding an entry replaced in place since the latest snapshot was taken.
+     */
+    private transient BitSet snapshotStaleSegments = new BitSet();
+    /**
+     * The latest snapshot taken, returned again until the table changes.
+     */
+    private transient volatile TableSnapshot<T> latestSnapshot;
+    /**
+     * Ensures only one thread builds a snapshot at a time, since building one updates the fields above.
+     */
+    private transient ReentrantLock snapshotBuildLock = new ReentrantLock();
 
 
     /**
      * Constructor for the AbstractTable class.
      * Initializes the entries list and sets the file path to an empty string.
+     * <p>
+     * Subclasses declare their secondary indexes here. Each index is kept up to date by addEntry, removeEntry,
+     * replaceEntry and loadFromFile, and is used by searches given the same keyExtractor instance.
+     * </p>
+     *
+     * @param indexes the secondary indexes of the table
+     * @throws IllegalArgumentException if two indexes share the same name or keyExtractor
+     */
+    @SafeVarargs
+    protected AbstractTable(IndexDefinition<T>... indexes) {
+        this(0, 1, indexes);
+    }
+
+    /**
+     * Constructor for a table whose new entries are only given IDs from a sequence, such as a table holding
+     * one part of a larger set of entries, whose IDs must not collide with those of the other parts.
+     * {@link #getUnusedID()} then only hands out firstID, firstID + idStride, firstID + 2 * idStride, and so on.
+     * Entries with other IDs may still be added or loaded.
+     *
+     * @param firstID  the first ID of the sequence
+     * @param idStride the step between two IDs of the sequence
+     * @param indexes  the secondary indexes of the table
+     * @throws IllegalArgumentException if firstID is negative, idStride is not positive,
+     *                                  or two indexes share the same name or keyExtractor
      */
-    public AbstractTable() {
+    @SafeVarargs
+    protected AbstractTable(int firstID, int idStride, IndexDefinition<T>... indexes) {
+        if (firstID < 0 || idStride < 1) {
+            throw new IllegalArgumentException("ID sequence must start at a non-negative ID and have a positive stride");
+        }
+        this.firstID = firstID;
+        this.idStride = idStride;
+        lowestFreeIDHint = firstID;
         entries = new ArrayList<T>();
         filePath = "";
+        positionIndex = new IntIndexMap();
+        indexesByName = new LinkedHashMap<>();
+        indexesByExtractor = new IdentityHashMap<>();
+        for (IndexDefinition<T> definition : indexes) {
+            SecondaryIndex<T, ?> index = definition.create();
+            if (indexesByName.containsKey(index.getName()) || indexesByExtractor.containsKey(index.getKeyExtractor())) {
+                throw new IllegalArgumentException("Index " + index.getName() + " is already registered");
+            }
+            indexesByName.put(index.getName(), index);
+            indexesByExtractor.put(index.getKeyExtractor(), index);
+        }
+    }
+
+    /**
+     * Restores the runtime state of a deserialized table. Only the entries, the file path and the ID sequence
+     * are serialized; the secondary indexes are taken from an empty table of the same kind and rebuilt, the
+     * locks are recreated, and the table comes back without a journal, transaction or write-behind listener.
+     *
+     * @param in the stream the table is read from
+     * @throws IOException            if the table could not be read
+     * @throws ClassNotFoundException if the class of a serialized object could not be found
+     */
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        AbstractTable<T> template = createEmpty();
+        indexesByName = template.indexesByName;
+        indexesByExtractor = template.indexesByExtractor;
+        lock = new StampedLock();
+        snapshotBuildLock = new ReentrantLock();
+        snapshotStaleSegments = new BitSet();
+        rebuildIndexes();
+    }
+
+    /**
+     * Retrieves the secondary index registered with the given key extractor, if any.
+     *
+     * @param keyExtractor the key extractor to look up
+     * @param <U>          the type of the indexed key
+     * @return the matching index, or null if the key extractor is not indexed
+     */
+    @SuppressWarnings("unchecked")
+    <U> SecondaryIndex<T, U> findIndex(Function<T, U> keyExtractor) {
+        return (SecondaryIndex<T, U>) indexesByExtractor.get(keyExtractor);
+    }
+
+    /**
+     * Adds an entry to every secondary index.
+     *
+     * @param entry the entry to index
+     */
+    private void indexEntry(T entry) {
+        for (SecondaryIndex<T, ?> index : indexesByName.values()) {
+            index.add(entry);
+        }
+    }
+
+    /**
+     * Removes the entry with the given ID from every secondary index.
+     *
+     * @param tableEntryID the ID of the entry to unindex
+     */
+    private void unindexEntry(int tableEntryID) {
+        for (SecondaryIndex<T, ?> index : indexesByName.values()) {
+            index.remove(tableEntryID);
+        }
+    }
+
+    /**
+     * Resolves a collection of tableEntryIDs into their entries, skipping IDs no longer in the table.
+     * The caller must hold a lock.
+     *
+     * @param ids the IDs to resolve
+     * @return a list of the entries with the given IDs, in the order of the IDs
+     */
+    ArrayList<T> resolveIDs(Collection<Integer> ids) {
+        ArrayList<T> results = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            T entry = lookupEntry(id);
+            if (entry != null) {
+                results.add(entry);
+            }
+        }
+        return results;
     }
 
     /**
@@ -40,12 +292,17 @@ public abstract class AbstractTable<T extends AbstractTableEntry> implements Ser
      * @throws Exception if the table already contains an entry with the same ID
      */
     public void addEntry(T entry) throws Exception {
-        // If duplicate IDs, throw exception
-        if (getEntry(entry.getTableEntryID()) != null) {
-            throw new Exception("Duplicate ID inside the table!");
+        long stamp = writeLock();
+        try {
+            // If duplicate IDs, throw exception
+            if (positionIndex.containsKey(entry.getTableEntryID())) {
+                throw new Exception("Duplicate ID inside the table!");
+            }
+            insert(entry);
+            persist(TableJournal.INSERT, () -> entry.getCSVBytes(rowWriter()));
+        } finally {
+            unlockWrite(stamp);
         }
-        entries.add(entry);
-        saveToFile();
     }
 
     /**
@@ -64,12 +321,22 @@ public abstract class AbstractTable<T extends AbstractTableEntry> implements Ser
      *
      * @param tableEntryID the ID of the table entry to be removed
      * @return false if the entry is successfully removed
+     * @throws NoSuchElementException if there is no entry with the given ID
      * @throws Exception if there is an issue with removing the entry or saving to file
      */
     public boolean removeEntry(int tableEntryID) throws Exception {
-        entries.remove(searchByAttribute(AbstractTableEntry::getTableEntryID, tableEntryID).getFirst());
-        saveToFile();
-        return false;
+        long stamp = writeLock();
+        try {
+            int position = positionIndex.get(tableEntryID);
+            if (position == IntIndexMap.MISSING) {
+                throw new NoSuchElementException("No entry with ID " + tableEntryID + " inside the table!");
+            }
+            delete(position, tableEntryID);
+            persist(TableJournal.DELETE, () -> Integer.toString(tableEntryID).getBytes(StandardCharsets.UTF_8));
+            return false;
+        } finally {
+            unlockWrite(stamp);
+        }
     }
 
 
@@ -86,15 +353,379 @@ public abstract class AbstractTable<T extends AbstractTableEntry> implements Ser
             throw new IllegalArgumentException("New entry cannot be null");
         }
 
-        int replacedTableEntryID = newEntry.getTableEntryID();
-        for (int i = 0; i < entries.size(); i++) {
-            if (entries.get(i).getTableEntryID() == replacedTableEntryID) {
-                entries.set(i, newEntry);
-                saveToFile();
-                return true;
+        long stamp = writeLock();
+        try {
+            int position = positionIndex.get(newEntry.getTableEntryID());
+            if (position == IntIndexMap.MISSING) {
+                return false;
+            }
+            overwrite(position, newEntry);
+            persist(TableJournal.UPDATE, () -> newEntry.getCSVBytes(rowWriter()));
+            return true;
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Inserts an entry into the in-memory table and indexes it, without persisting the change.
+     * The entry is placed so that the entries stay sorted by TableEntryID, which lets saving
+     * the table skip sorting it.
+     *
+     * @param entry the entry to insert
+     */
+    private void insert(T entry) {
+        int tableEntryID = entry.getTableEntryID();
+        if (entries.isEmpty() || entries.getLast().getTableEntryID() < tableEntryID) {
+            entries.add(entry);
+            positionIndex.put(tableEntryID, entries.size() - 1);
+            markShifted(entries.size() - 1);
+        } else {
+            int position = insertionPoint(tableEntryID);
+            entries.add(position, entry);
+            reindexFrom(position);
+            markShifted(position);
+        }
+        indexEntry(entry);
+    }
+
+    /**
+     * Finds the position at which an entry with the given ID should be inserted to keep
+     * the entries sorted by TableEntryID.
+     *
+     * @param tableEntryID the ID of the entry to insert
+     * @return the position of the first entry with an ID greater than tableEntryID
+     */
+    private int insertionPoint(int tableEntryID) {
+        int low = 0;
+        int high = entries.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries.get(mid).getTableEntryID() <= tableEntryID) {
+                low = mid + 1;
+            } else {
+                high = mid;
             }
         }
-        return false;
+        return low;
+    }
+
+    /**
+     * Removes the entry at the given position from the in-memory table and its indexes,
+     * without persisting the change.
+     *
+     * @param position     the position of the entry in the entries list
+     * @param tableEntryID the ID of the entry
+     */
+    private void delete(int position, int tableEntryID) {
+        entries.remove(position);
+        markShifted(position);
+        positionIndex.remove(tableEntryID);
+        reindexFrom(position);
+        unindexEntry(tableEntryID);
+        if (tableEntryID >= firstID && tableEntryID < lowestFreeIDHint && (tableEntryID - firstID) % idStride == 0) {
+            lowestFreeIDHint = tableEntryID;
+        }
+    }
+
+    /**
+     * Replaces the entry at the given position in the in-memory table and re-indexes it,
+     * without persisting the change.
+     *
+     * @param position the position of the entry in the entries list
+     * @param newEntry the entry to store at that position
+     */
+    private void overwrite(int position, T newEntry) {
+        entries.set(position, newEntry);
+        markReplaced(position);
+        unindexEntry(newEntry.getTableEntryID());
+        indexEntry(newEntry);
+    }
+
+    /**
+     * Records that the entries from the given position onwards may have changed or moved,
+     * so the next snapshot must copy the segments holding them. The caller must hold the write lock.
+     *
+     * @param position the lowest position that changed
+     */
+    private void markShifted(int position) {
+        version++;
+        snapshotStaleFrom = Math.min(snapshotStaleFrom, position);
+    }
+
+    /**
+     * Records that the entry at the given position was replaced, so the next snapshot must copy
+     * the segment holding it. The caller must hold the write lock.
+     *
+     * @param position the position of the replaced entry
+     */
+    private void markReplaced(int position) {
+        version++;
+        snapshotStaleSegments.set(position >>> TableSnapshot.SEGMENT_SHIFT);
+    }
+
+    /**
+     * Persists a single mutation of the table. Inside a transaction, this only marks the table as modified,
+     * and in write-behind mode, this only notifies the write-behind listener.
+     * Without a journal this rewrites the whole file. The caller must hold the write lock.
+     * With a journal, the mutation is appended to it, and a full snapshot is only written
+     * once enough mutations have accumulated.
+     *
+     * @param operation the journal operation code of the mutation
+     * @param payload   supplies the journal payload of the mutation, only serialized if it is journaled
+     * @throws IOException if the mutation could not be persisted
+     */
+    private void persist(char operation, Supplier<byte[]> payload) throws IOException {
+        if (transaction != null) {
+            modifiedInTransaction = true;
+            return;
+        }
+        if (writeBehindListener != null) {
+            writeBehindListener.accept(this);
+            return;
+        }
+        if (journal == null) {
+            save();
+            return;
+        }
+        journal.append(operation, payload.get());
+        if (journal.isCheckpointDue()) {
+            save();
+        }
+    }
+
+    /**
+     * Runs the given work inside a transaction over this table only. Every mutation made by the work
+     * is written to the linked file once, when the work completes. If the work throws, the table is
+     * rolled back instead.
+     *
+     * @param work the work to run
+     * @throws Exception if the work fails, or the table could not be written
+     * @see TableTransaction
+     */
+    public void batch(TableTransaction.Work work) throws Exception {
+        TableTransaction.run(work, this);
+    }
+
+    /**
+     * Enrolls the table in a transaction, taking the write lock until the transaction ends.
+     * Other threads wait for the transaction to end before reading or mutating the table,
+     * while the calling thread keeps using the table as usual.
+     *
+     * @param transaction the transaction to join
+     * @throws IllegalStateException if the table is already taking part in a transaction of the calling thread
+     */
+    void joinTransaction(TableTransaction transaction) {
+        long stamp = writeLock();
+        if (this.transaction != null) {
+            // Only the thread running the transaction can get here, and it already holds the lock for it.
+            throw new IllegalStateException("Table is already taking part in a transaction");
+        }
+        this.transaction = transaction;
+        transactionStamp = stamp;
+        modifiedInTransaction = false;
+        entriesBeforeTransaction = isLinkedToFile() ? null : new ArrayList<>(entries);
+    }
+
+    /**
+     * Releases the table from its current transaction, keeping its in-memory state.
+     *
+     * @throws IllegalStateException if the calling thread is not running the transaction of the table
+     */
+    void leaveTransaction() {
+        endTransaction();
+    }
+
+    /**
+     * Forgets the current transaction, and releases the write lock taken for it.
+     *
+     * @throws IllegalStateException if the calling thread is not running the transaction of the table
+     */
+    private void endTransaction() {
+        if (transaction == null || !holdsWriteLock()) {
+            throw new IllegalStateException("Only the thread running the transaction of the table can end it");
+        }
+        long stamp = transactionStamp;
+        transaction = null;
+        transactionStamp = 0;
+        modifiedInTransaction = false;
+        entriesBeforeTransaction = null;
+        unlockWrite(stamp);
+    }
+
+    /**
+     * Checks if the table has been mutated since it joined its current transaction.
+     *
+     * @return true if the table has pending mutations, false otherwise
+     */
+    boolean isModifiedInTransaction() {
+        return readLocked(() -> modifiedInTransaction);
+    }
+
+    /**
+     * Restores the table to its state from before its current transaction, and releases it.
+     * A table linked to a file is reloaded from that file, since nothing was written to it during
+     * the transaction. Note that this replaces the entry objects, so references to entries taken
+     * during the transaction no longer belong to the table.
+     * No other thread could mutate the table during the transaction, so reloading it only discards
+     * the changes of the transaction.
+     *
+     * @throws IllegalStateException if the calling thread is not running the transaction of the table
+     */
+    void rollbackTransaction() {
+        if (transaction == null || !holdsWriteLock()) {
+            throw new IllegalStateException("Only the thread running the transaction of the table can end it");
+        }
+        List<T> before = entriesBeforeTransaction;
+        try {
+            // Still inside the transaction, so that the reload is not persisted.
+            if (before == null) {
+                try {
+                    load();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not reload table during rollback", e);
+                }
+            } else {
+                entries.clear();
+                entries.addAll(before);
+                markShifted(0);
+                rebuildIndexes();
+            }
+        } finally {
+            endTransaction();
+        }
+    }
+
+    /**
+     * Called once a full snapshot of the table has been written to its linked file.
+     *
+     * @throws IOException if the journal could not be emptied
+     */
+    void onSnapshotWritten() throws IOException {
+        long stamp = writeLock();
+        try {
+            truncateJournal();
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Empties the journal, if any, once a full snapshot of the table has been written.
+     * The caller must hold the write lock.
+     *
+     * @throws IOException if the journal could not be emptied
+     */
+    private void truncateJournal() throws IOException {
+        // The snapshot now holds every journaled mutation.
+        if (journal != null) {
+            journal.truncate();
+        }
+    }
+
+    /**
+     * Checks if the table is linked to a file.
+     *
+     * @return true if the table has a file path, false otherwise
+     */
+    boolean isLinkedToFile() {
+        return !Objects.equals(filePath, "");
+    }
+
+    /**
+     * Switches the table to journaled persistence. Instead of rewriting the linked file on every
+     * mutation, each mutation is appended to a journal next to it (the file path with ".journal" added),
+     * and the file is only rewritten every checkpointInterval mutations. {@link #loadFromFile()}
+     * replays the journal on top of the file, so no acknowledged mutation is lost between checkpoints.
+     *
+     * @param checkpointInterval the number of journaled mutations after which the file is rewritten
+     * @throws IllegalStateException         if the table is not linked to a file
+     * @throws IllegalArgumentException      if checkpointInterval is not positive
+     * @throws UnsupportedOperationException if the entries of the table do not keep their IDs when written and read back
+     */
+    public void enableJournal(int checkpointInterval) {
+        if (!isLinkedToFile()) {
+            throw new IllegalStateException("Cannot journal a table that is not linked to a file");
+        }
+        requireEntriesKeepIDs("journal");
+        long stamp = writeLock();
+        try {
+            journal = new TableJournal(filePath + ".journal", checkpointInterval);
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Switches the table to write-behind mode. Instead of writing the linked file, mutations and calls to
+     * {@link #saveToFile()} notify the given listener, which is then responsible for calling
+     * {@link #flushToFile()} at some later point. Passing null switches write-behind mode off.
+     *
+     * @param writeBehindListener the listener to notify whenever the table has unsaved changes, or null
+     */
+    public void setWriteBehind(Consumer<AbstractTable<?>> writeBehindListener) {
+        long stamp = writeLock();
+        try {
+            this.writeBehindListener = writeBehindListener;
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Writes the table to its linked file immediately, even in write-behind mode.
+     * This is a checkpoint if the table is journaled.
+     *
+     * @throws IOException if the file could not be written
+     */
+    public void flushToFile() throws IOException {
+        long stamp = writeLock();
+        try {
+            if (transaction != null) {
+                modifiedInTransaction = true;
+                return;
+            }
+            writeCSVFile(filePath);
+            truncateJournal();
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Checks if the table persists its mutations through a journal.
+     *
+     * @return true if journaling is enabled, false otherwise
+     */
+    public boolean isJournaled() {
+        return readLocked(() -> journal != null);
+    }
+
+    /**
+     * Applies a journal record to the in-memory table. Records are applied as upserts and
+     * idempotent deletes, since a crash between writing a snapshot and truncating the journal
+     * can leave records whose effects are already in the snapshot.
+     *
+     * @param operation the operation code of the record
+     * @param payload   the payload of the record
+     */
+    private void applyJournalRecord(char operation, String payload) {
+        if (operation == TableJournal.DELETE) {
+            int tableEntryID = Integer.parseInt(payload);
+            int position = positionIndex.get(tableEntryID);
+            if (position != IntIndexMap.MISSING) {
+                delete(position, tableEntryID);
+            }
+            return;
+        }
+        T entry = createValidEntryTemplate();
+        entry.loadFromCSVString(payload);
+        int position = positionIndex.get(entry.getTableEntryID());
+        if (position == IntIndexMap.MISSING) {
+            insert(entry);
+        } else {
+            overwrite(position, entry);
+        }
     }
 
     /**
@@ -104,13 +735,118 @@ public abstract class AbstractTable<T extends AbstractTableEntry> implements Ser
      * @return the entry with the specified ID, or null if no such entry exists
      */
     public T getEntry(int tableEntryID) {
-        // id's are unique, so only the 1st entry is required.
-        for (T entry : entries) {
-            if (entry.getTableEntryID() == tableEntryID) {
-                return entry;
+        return readOptimistically(() -> lookupEntry(tableEntryID));
+    }
+
+    /**
+     * Retrieves an entry with the specified ID, without locking. The caller must hold a lock,
+     * or be reading optimistically.
+     *
+     * @param tableEntryID the ID of the table entry to retrieve
+     * @return the entry with the specified ID, or null if no such entry exists
+     */
+    private T lookupEntry(int tableEntryID) {
+        int position = positionIndex.get(tableEntryID);
+        return position == IntIndexMap.MISSING ? null : entries.get(position);
+    }
+
+    /**
+     * Runs a read-only function over the table, first optimistically without taking any lock.
+     * If a write happened while it ran, its result may be torn, or it may even have failed,
+     * so it is discarded and the function is run again under the read lock.
+     * The function may therefore run twice, and must not have side effects.
+     * <p>
+     * Since the function may see the table mid-write, this is only used for reads that cannot loop or run away
+     * on a torn state, such as {@link #getEntry} and {@link #size}. Searches, scans and queries walk whole
+     * structures, and use {@link #readLocked} instead.
+     * </p>
+     *
+     * @param reader the function reading the table
+     * @param <R>    the type of the result
+     * @return the result of the function, computed from a consistent state of the table
+     */
+    private <R> R readOptimistically(Supplier<R> reader) {
+        if (holdsWriteLock()) {
+            return reader.get();
+        }
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                R result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // Only a failure seen in a consistent state is genuine; otherwise a writer caused it.
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
             }
         }
-        return null;
+        stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Runs a read-only function over the table under the shared read lock, so that it sees a consistent state
+     * throughout. Readers still never block each other, only writers. A thread already holding the write lock
+     * runs the function directly.
+     *
+     * @param reader the function reading the table
+     * @param <R>    the type of the result
+     * @return the result of the function
+     */
+    <R> R readLocked(Supplier<R> reader) {
+        if (holdsWriteLock()) {
+            return reader.get();
+        }
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Takes the write lock, waiting for every reader and writer to release it.
+     * A thread already holding it, such as one running a transaction over the table, gets it again at once.
+     *
+     * @return the stamp to release the lock with, or 0 if the thread already held it
+     */
+    private long writeLock() {
+        if (holdsWriteLock()) {
+            return 0;
+        }
+        long stamp = lock.writeLock();
+        writeOwner = Thread.currentThread();
+        return stamp;
+    }
+
+    /**
+     * Releases the write lock.
+     *
+     * @param stamp the stamp returned by {@link #writeLock()}; 0 leaves the lock with the thread that already held it
+     */
+    private void unlockWrite(long stamp) {
+        if (stamp == 0) {
+            return;
+        }
+        writeOwner = null;
+        lock.unlockWrite(stamp);
+    }
+
+    /**
+     * Checks if the current thread holds the write lock.
+     *
+     * @return true if the current thread holds the write lock, false otherwise
+     */
+    private boolean holdsWriteLock() {
+        return writeOwner == Thread.currentThread();
     }
 
     /**
@@ -119,11 +855,127 @@ public abstract class AbstractTable<T extends AbstractTableEntry> implements Ser
      * mutate the elements in the table too. However, until a
      * mutating method from this class is called, mutations
      * won't be reflected in the linked file.
+     * <p>
+     * Read-only callers should prefer {@link #snapshot()} or {@link #forEachEntry(Consumer)},
+     * which do not copy the table. A copy is only needed when the table is mutated while iterating.
+     * </p>
      *
      * @return a list of entries currently in the table
      */
     public List<T> getEntries() {
-        return new ArrayList<>(entries);
+        return readLocked(() -> new ArrayList<>(entries));
+    }
+
+    /**
+     * Retrieves a read-only view of the current entries in the table, in TableEntryID order.
+     * The view is not a copy: it reflects later changes to the table, so it is only handed to the
+     * {@link QueryPlanner}, which reads it while its query holds the read lock. Other callers use
+     * {@link #snapshot()}, {@link #forEachEntry(Consumer)} or {@link #query()}.
+     *
+     * @return an unmodifiable view of the entries in the table
+     */
+    List<T> viewEntries() {
+        if (entriesView == null) {
+            entriesView = Collections.unmodifiableList(entries);
+        }
+        return entriesView;
+    }
+
+    /**
+     * Retrieves an immutable snapshot of the current entries in the table, in the order of the table.
+     * The snapshot can be read for as long as needed without holding any lock, so reports and exports
+     * over large tables never stall writers, nor observe an entry being added, removed or replaced halfway through.
+     * The entries themselves are the live objects of the table, so changes made to them in place are not isolated,
+     * as described in {@link TableSnapshot}.
+     * <p>
+     * Snapshots are cheap: the same snapshot is returned until the table changes, and a new one shares
+     * every segment of entries left untouched since the previous one.
+     * </p>
+     *
+     * @return a snapshot of the entries of the table
+     * @see TableSnapshot
+     */
+    public TableSnapshot<T> snapshot() {
+        TableSnapshot<T> current = latestSnapshot;
+        long stamp = lock.tryOptimisticRead();
+        if (current != null && stamp != 0 && current.getVersion() == version && lock.validate(stamp)) {
+            return current;
+        }
+        if (holdsWriteLock()) {
+            return buildSnapshot();
+        }
+        snapshotBuildLock.lock();
+        try {
+            stamp = lock.readLock();
+            try {
+                return buildSnapshot();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            snapshotBuildLock.unlock();
+        }
+    }
+
+    /**
+     * Publishes a snapshot of the current entries, copying only the segments that changed since the
+     * latest snapshot. The caller must hold the read lock and the snapshot build lock, or the write lock.
+     *
+     * @return the snapshot of the current entries
+     */
+    private TableSnapshot<T> buildSnapshot() {
+        TableSnapshot<T> previous = latestSnapshot;
+        if (previous != null && previous.getVersion() == version) {
+            return previous;
+        }
+        int size = entries.size();
+        Object[][] segments = new Object[TableSnapshot.segmentCount(size)][];
+        for (int i = 0; i < segments.length; i++) {
+            int from = i << TableSnapshot.SEGMENT_SHIFT;
+            int to = Math.min(size, from + TableSnapshot.SEGMENT_SIZE);
+            boolean unchanged = previous != null
+                    && to <= snapshotStaleFrom
+                    && !snapshotStaleSegments.get(i)
+                    && i < previous.getSegmentCount()
+                    && previous.segment(i).length == to - from;
+            segments[i] = unchanged ? previous.segment(i) : entries.subList(from, to).toArray();
+        }
+        TableSnapshot<T> snapshot = new TableSnapshot<>(segments, size, version);
+        latestSnapshot = snapshot;
+        snapshotStaleFrom = Integer.MAX_VALUE;
+        snapshotStaleSegments.clear();
+        return snapshot;
+    }
+
+    /**
+     * Performs an action on every entry of the table, in TableEntryID order, without copying the table.
+     * The read lock is held throughout, so writers wait for the action to complete, while other readers do not.
+     * The action must not mutate the table, which would deadlock.
+     *
+     * @param action the action to perform on each entry
+     */
+    public void forEachEntry(Consumer<? super T> action) {
+        if (holdsWriteLock()) {
+            entries.forEach(action);
+            return;
+        }
+        long stamp = lock.readLock();
+        try {
+            for (int i = 0; i < entries.size(); i++) {
+                action.accept(entries.get(i));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Retrieves the number of entries in the table.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return readOptimistically(entries::size);
     }
 
     /**
@@ -134,29 +986,87 @@ public abstract class AbstractTable<T extends AbstractTableEntry> implements Ser
      * @param <U>          the type of the
      */
     public <U extends Comparable<U>> void sortBy(Function<T, U> keyExtractor) {
-        entries.sort(Comparator.comparing(keyExtractor));
+        long stamp = writeLock();
+        try {
+            sortEntries(Comparator.comparing(keyExtractor));
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Sorts the entries in the given order and recomputes their positions. The caller must hold the write lock.
+     *
+     * @param order the order to sort the entries in
+     */
+    private void sortEntries(Comparator<? super T> order) {
+        entries.sort(order);
+        markShifted(0);
+        reindexFrom(0);
+    }
+
+    /**
+     * Recomputes the position of every entry from the given position onwards.
+     * This must be called whenever entries are shifted or reordered inside the list.
+     *
+     * @param start the first position in the entries list whose index may be stale
+     */
+    private void reindexFrom(int start) {
+        if (start == 0) {
+            positionIndex.clear();
+            positionIndex.ensureCapacity(entries.size());
+            lowestFreeIDHint = firstID;
+        }
+        for (int i = start; i < entries.size(); i++) {
+            positionIndex.put(entries.get(i).getTableEntryID(), i);
+        }
+    }
+
+    /**
+     * Checks if a list of entries is in ascending TableEntryID order.
+     *
+     * @param list the entries to check
+     * @return true if the entries are sorted by ID, false otherwise
+     */
+    private static boolean isSortedByID(List<? extends AbstractTableEntry> list) {
+        for (int i = 1; i < list.size(); i++) {
+            if (list.get(i - 1).getTableEntryID() > list.get(i).getTableEntryID()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rebuilds the position index and every secondary index from scratch.
+     */
+    private void rebuildIndexes() {
+        reindexFrom(0);
+        for (SecondaryIndex<T, ?> index : indexesByName.values()) {
+            index.clear();
+            for (T entry : entries) {
+                index.add(entry);
+            }
+        }
     }
 
     /**
      * Saves the table entries to a CSV file. The file will specified by filename.
      * This will not change the linked filePath of the table.
-     * Note that saveToFile will always sort the tableEntries by TableEntryID before saving.
+     * Note that saveToFile will always write the tableEntries sorted by TableEntryID.
+     * The entries are exported from a {@link #snapshot()}, so writers are not blocked while the file is written.
      *
      * @param filename
      * @throws IOException
      */
     public void saveToFile(String filename) throws IOException {
-        sortBy(AbstractTableEntry::getTableEntryID);
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
-            // Write headers
-            writer.write(String.join(",", getHeaders()));
-            writer.newLine();
-
-            // Write entries
-            for (T entry : entries) {
-                writer.write(entry.toCSVString());
-                writer.newLine();
+        try {
+            List<T> rows = snapshot();
+            if (!isSortedByID(rows)) {
+                rows = new ArrayList<>(rows);
+                rows.sort(Comparator.comparingInt(AbstractTableEntry::getTableEntryID));
             }
+            writeRows(filename, rows, new CSVRowWriter());
         } catch (Exception e) {
             if (!Objects.equals(filePath, "")) {
                 e.printStackTrace();
@@ -167,31 +1077,247 @@ public abstract class AbstractTable<T extends AbstractTableEntry> implements Ser
     /**
      * Saves the table entries to a CSV file. The file will be specified by the filePath of the table.
      * Note that saveToFile will always sort the tableEntries by TableEntryID before saving.
+     * If the table is journaled, this is a checkpoint, and the journal is emptied afterwards.
+     * Inside a transaction, the table is only marked as modified, and is written on commit.
+     * In write-behind mode, the write-behind listener is notified instead.
+     * <p>
+     * Entries changed in place since they were last written are re-indexed first, so an indexed key changed
+     * through a setter is found by searches again once the table is saved, even if the entry was never passed
+     * to {@link #replaceEntry}. Until then, searches by that key still see the entry under its old key.
+     * </p>
      *
      * @throws IOException
      */
     public void saveToFile() throws IOException {
-        sortBy(AbstractTableEntry::getTableEntryID);
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
+        long stamp = writeLock();
+        try {
+            save();
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Saves the table to its linked file, or defers the save as described by {@link #saveToFile()}.
+     * The caller must hold the write lock.
+     *
+     * @throws IOException if the file could not be written
+     */
+    private void save() throws IOException {
+        reindexDirtyEntries();
+        if (transaction != null) {
+            modifiedInTransaction = true;
+            return;
+        }
+        if (writeBehindListener != null) {
+            writeBehindListener.accept(this);
+            return;
+        }
+        if (!isLinkedToFile()) {
+            // An in-memory table has nothing to write.
+            return;
+        }
+        try {
+            writeCSVFile(filePath);
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            e.printStackTrace();
+            return;
+        }
+        truncateJournal();
+    }
+
+    /**
+     * Moves every entry changed since it was last written under its current key in each secondary index,
+     * catching keys changed in place without going through {@link #replaceEntry}. The caller must hold the write lock.
+     */
+    private void reindexDirtyEntries() {
+        if (indexesByName.isEmpty()) {
+            return;
+        }
+        for (T entry : entries) {
+            if (entry.isDirty()) {
+                for (SecondaryIndex<T, ?> index : indexesByName.values()) {
+                    index.refresh(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the header and every entry of the table to the given CSV file, sorted by TableEntryID.
+     * Only entries that changed since they were last written or read are re-serialized;
+     * the cached bytes of every other entry are written as they are.
+     *
+     * @param filename the path of the file to write
+     * @throws IOException if the file could not be written
+     */
+    void writeCSV(String filename) throws IOException {
+        long stamp = writeLock();
+        try {
+            writeCSVFile(filename);
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Writes the table to the given CSV file, as described by {@link #writeCSV(String)}.
+     * The caller must hold the write lock, since the entries may need sorting.
+     *
+     * @param filename the path of the file to write
+     * @throws IOException if the file could not be written
+     */
+    private void writeCSVFile(String filename) throws IOException {
+        if (!isSortedByID(entries)) {
+            sortEntries(Comparator.comparingInt(AbstractTableEntry::getTableEntryID));
+        }
+        writeRows(filename, entries, rowWriter());
+    }
+
+    /**
+     * Writes the header of the table and the given entries to a CSV file, in the order given.
+     *
+     * @param filename the path of the file to write
+     * @param rows     the entries to write
+     * @param scratch  the writer dirty entries are serialized into
+     * @throws IOException if the file could not be written
+     */
+    private void writeRows(String filename, List<T> rows, CSVRowWriter scratch) throws IOException {
+        DurableFiles.replace(Paths.get(filename), out -> {
             // Write headers
-            writer.write(String.join(",", getHeaders()));
-            writer.newLine();
+            out.write(String.join(",", getHeaders()).getBytes(StandardCharsets.UTF_8));
+            out.write(LINE_SEPARATOR);
 
             // Write entries
-            for (T entry : entries) {
-                writer.write(entry.toCSVString());
-                writer.newLine();
+            for (T entry : rows) {
+                out.write(entry.getCSVBytes(scratch));
+                out.write(LINE_SEPARATOR);
             }
-        } catch (FileNotFoundException e) {
-            if (!Objects.equals(filePath, "")) {
-                e.printStackTrace();
+        });
+    }
+
+    /**
+     * Writes every entry of the table to a binary snapshot, a faster and more compact alternative
+     * to the CSV file. The snapshot can be read back with {@link #loadSnapshot(String)}.
+     * The CSV file linked to the table is not affected, and stays the format used to import and export data.
+     *
+     * @param filename the path of the snapshot file to write
+     * @throws IOException                   if the snapshot could not be written
+     * @throws UnsupportedOperationException if the entries of the table do not keep their IDs when written and read back
+     */
+    public void saveSnapshot(String filename) throws IOException {
+        requireEntriesKeepIDs("snapshot");
+        long stamp = writeLock();
+        try {
+            if (!isSortedByID(entries)) {
+                sortEntries(Comparator.comparingInt(AbstractTableEntry::getTableEntryID));
+            }
+            DurableFiles.replace(Paths.get(filename), out -> {
+                BinarySnapshot.Writer writer = new BinarySnapshot.Writer(out, getHeaders(), entries.size());
+                for (T entry : entries) {
+                    entry.writeFields(writer);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Replaces the entries of the table with those of a binary snapshot written by {@link #saveSnapshot(String)}.
+     * Unlike {@link #loadFromFile()}, the journal of the table is not replayed.
+     *
+     * @param filename the path of the snapshot file to read
+     * @throws IOException                   if the snapshot could not be read, is corrupt, or was written by a different kind of table
+     * @throws UnsupportedOperationException if the entries of the table do not keep their IDs when written and read back
+     */
+    public void loadSnapshot(String filename) throws IOException {
+        requireEntriesKeepIDs("snapshot");
+        long stamp = writeLock();
+        try {
+            readSnapshot(filename);
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Replaces the entries of the table with those of a binary snapshot. The caller must hold the write lock.
+     *
+     * @param filename the path of the snapshot file to read
+     * @throws IOException if the snapshot could not be read, is corrupt, or was written by a different kind of table
+     */
+    private void readSnapshot(String filename) throws IOException {
+        entries.clear();
+        markShifted(0);
+        positionIndex.clear();
+        indexesByName.values().forEach(SecondaryIndex::clear);
+        lowestFreeIDHint = firstID;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(filename), WRITE_BUFFER_SIZE)) {
+            BinarySnapshot.Reader reader = new BinarySnapshot.Reader(in, getHeaders());
+            positionIndex.ensureCapacity(reader.getEntryCount());
+            for (int i = 0; i < reader.getEntryCount(); i++) {
+                T entry = createValidEntryTemplate();
+                entry.loadFields(reader);
+                insert(entry);
             }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Retrieves the writer used to serialize dirty entries, creating it on first use.
+     *
+     * @return the row writer of this table
+     */
+    private CSVRowWriter rowWriter() {
+        if (rowWriter == null) {
+            rowWriter = new CSVRowWriter();
         }
+        return rowWriter;
+    }
+
+    /**
+     * Starts a lazy query over the entries of the table. Conditions, ordering and limit are added to the
+     * returned query, and are only evaluated, in a single pass, by one of its terminal operations:
+     * <pre>
+     * List&lt;MedicalEntry&gt; entries = medicalRecord.query()
+     *         .where(MedicalRecord.BY_PATIENT_ID, patientID)
+     *         .where(MedicalRecord.BY_DOCTOR_ID, doctorID)
+     *         .orderBy(MedicalEntry::getDate)
+     *         .toList();
+     * </pre>
+     *
+     * @return a query matching every entry of the table
+     */
+    public TableQuery<T> query() {
+        return new TableQuery<>(this);
+    }
+
+    /**
+     * Creates a new in-memory table of the same kind holding the given entries.
+     * The entries are inserted directly: they come from this table, so their IDs are known to be unique,
+     * and the new table is not linked to a file, so there is nothing to persist.
+     *
+     * @param source the entries to copy, with unique IDs
+     * @return a new table holding the entries
+     */
+    AbstractTable<T> copyOf(List<T> source) {
+        AbstractTable<T> results = createEmpty();
+        results.positionIndex.ensureCapacity(source.size());
+        for (T entry : source) {
+            results.insert(entry);
+        }
+        return results;
     }
 
     /**
      * Searches the table entries by a specified attribute using a key extractor function.
      * Returns all entries where the extracted key matches the provided value.
+     * If an index was registered with the same keyExtractor, the index is used instead of a scan.
      *
      * @param keyExtractor a function that extracts the search key from an entry
      * @param keyValue     the value to match against
@@ -203,12 +1329,18 @@ public abstract class AbstractTable<T extends AbstractTableEntry> implements Ser
         if (keyExtractor == null || keyValue == null) {
             throw new IllegalArgumentException("Key extractor and key value cannot be null");
         }
-        List<T> temp = entries.stream()
-                .filter(entry -> {
-                    U extractedValue = keyExtractor.apply(entry);
-                    return keyValue.equals(extractedValue);
-                }).collect(Collectors.toList());
-        return new ArrayList<>(temp);
+        SecondaryIndex<T, U> index = findIndex(keyExtractor);
+        if (index != null) {
+            return readLocked(() -> resolveIDs(index.lookup(keyValue)));
+        }
+        return readLocked(() -> {
+            List<T> temp = entries.stream()
+                    .filter(entry -> {
+                        U extractedValue = keyExtractor.apply(entry);
+                        return keyValue.equals(extractedValue);
+                    }).collect(Collectors.toList());
+            return new ArrayList<>(temp);
+        });
     }
 
     /**
@@ -220,6 +1352,9 @@ public abstract class AbstractTable<T extends AbstractTableEntry> implements Ser
      * Adding or deleting the entries in the result table will not affect the original table.
      * However, mutating the entries in the result table  <b>WILL MUTATE THE ENTRIES IN THE ORIGINAL TABLE</b>.
      * </p>
+     * <p>
+     * If an index was registered with the same keyExtractor, the index is used instead of a scan.
+     * </p>
      *
      * @param keyExtractor a function that extracts the search key from an entry
      * @param keyValue     the value to match against
@@ -229,25 +1364,72 @@ public abstract class AbstractTable<T extends AbstractTableEntry> implements Ser
      * @throws RuntimeException         if an error occurs while creating the new table
      */
     public <U> AbstractTable<T> filterByAttribute(Function<T, U> keyExtractor, U keyValue) {
-        if (keyExtractor == null || keyValue == null) {
-            throw new IllegalArgumentException("Key extractor and key value cannot be null");
-        }
+        return query().where(keyExtractor, keyValue).toTable();
+    }
 
-        AbstractTable<T> results = createEmpty();
+    /**
+     * Filters the table down to the entry with the given ID, found through the ID index rather than a scan.
+     * Like {@link #filterByAttribute}, mutating the entry in the result table <b>WILL MUTATE THE ENTRY IN THE ORIGINAL TABLE</b>.
+     *
+     * @param tableEntryID the ID of the entry to keep
+     * @return a new table holding the entry with the given ID, or no entry if there is none
+     */
+    public AbstractTable<T> filterByEntryID(int tableEntryID) {
+        T entry = getEntry(tableEntryID);
+        return copyOf(entry == null ? List.of() : List.of(entry));
+    }
+
+    /**
+     * Searches the table entries using the secondary index registered under the given name.
+     *
+     * @param indexName the name of the index to search
+     * @param keyValue  the value to match against
+     * @param <U>       the type of the key used for searching
+     * @return a list of entries whose indexed key matches the keyValue, in ascending ID order
+     * @throws IllegalArgumentException if no index is registered under indexName, or keyValue is null
+     */
+    @SuppressWarnings("unchecked")
+    public <U> ArrayList<T> searchByIndex(String indexName, U keyValue) {
+        SecondaryIndex<T, U> index = (SecondaryIndex<T, U>) indexesByName.get(indexName);
+        if (index == null) {
+            throw new IllegalArgumentException("No index named " + indexName + " on this table");
+        }
+        if (keyValue == null) {
+            throw new IllegalArgumentException("Key value cannot be null");
+        }
+        return readLocked(() -> resolveIDs(index.lookup(keyValue)));
+    }
 
-        entries.stream()
-                .filter(entry -> {
-                    U extractedValue = keyExtractor.apply(entry);
-                    return keyValue.equals(extractedValue);
-                })
-                .forEach(entry -> {
-                    try {
-                        results.addEntry(entry);
-                    } catch (Exception e) {
-                        // This shouldn't happen as we are copying from a valid table.
-                        throw new RuntimeException("Error adding entry to result table.", e);
-                    }
-                });
+    /**
+     * Searches the table entries for those whose extracted key lies within the given inclusive range.
+     * If a sorted index was registered with the same keyExtractor, the index is used instead of a scan.
+     *
+     * @param keyExtractor a function that extracts the search key from an entry
+     * @param from         the lowest key to include
+     * @param to           the highest key to include
+     * @param <U>          the type of the key used for searching
+     * @return a list of matching entries, ordered by key and then by ID
+     * @throws IllegalArgumentException if any argument is null
+     */
+    public <U extends Comparable<? super U>> ArrayList<T> searchByRange(Function<T, U> keyExtractor, U from, U to) {
+        if (keyExtractor == null || from == null || to == null) {
+            throw new IllegalArgumentException("Key extractor and range bounds cannot be null");
+        }
+        SecondaryIndex<T, U> index = findIndex(keyExtractor);
+        if (index != null && index.isSorted()) {
+            return readLocked(() -> resolveIDs(index.lookupRange(from, to)));
+        }
+        ArrayList<T> results = readLocked(() -> {
+            ArrayList<T> matches = new ArrayList<>();
+            for (T entry : entries) {
+                U key = keyExtractor.apply(entry);
+                if (key != null && key.compareTo(from) >= 0 && key.compareTo(to) <= 0) {
+                    matches.add(entry);
+                }
+            }
+            return matches;
+        });
+        results.sort(Comparator.comparing(keyExtractor).thenComparingInt(AbstractTableEntry::getTableEntryID));
         return results;
     }
 
@@ -267,24 +1449,7 @@ public abstract class AbstractTable<T extends AbstractTableEntry> implements Ser
         if (keyExtractor == null || pred == null || predValue == null) {
             throw new IllegalArgumentException("Key extractor, predicate, and predicate value cannot be null");
         }
-
-        AbstractTable<T> results = createEmpty();
-
-        entries.stream()
-                .filter(entry -> {
-                    U extractedValue = keyExtractor.apply(entry);
-                    return pred.test(extractedValue, predValue);
-                })
-                .forEach(entry -> {
-                    try {
-                        results.addEntry(entry);
-                    } catch (Exception e) {
-                        // This shouldn't happen as we are copying from a valid table.
-                        throw new RuntimeException("Error adding entry to result table.", e);
-                    }
-                });
-
-        return results;
+        return query().where(entry -> pred.test(keyExtractor.apply(entry), predValue)).toTable();
     }
 
     /**
@@ -305,24 +1470,7 @@ public abstract class AbstractTable<T extends AbstractTableEntry> implements Ser
         if (keyExtractor == null || pred == null) {
             throw new IllegalArgumentException("Key extractor, predicate, and predicate value cannot be null");
         }
-
-        AbstractTable<T> results = createEmpty();
-
-        entries.stream()
-                .filter(entry -> {
-                    U extractedValue = keyExtractor.apply(entry);
-                    return pred.test(extractedValue);
-                })
-                .forEach(entry -> {
-                    try {
-                        results.addEntry(entry);
-                    } catch (Exception e) {
-                        // This shouldn't happen as we are copying from a valid table.
-                        throw new RuntimeException("Error adding entry to result table.", e);
-                    }
-                });
-
-        return results;
+        return query().where(entry -> pred.test(keyExtractor.apply(entry))).toTable();
     }
 
     /**
@@ -346,25 +1494,7 @@ public abstract class AbstractTable<T extends AbstractTableEntry> implements Ser
         if (keyExtractorA == null || keyExtractorB == null || pred == null) {
             throw new IllegalArgumentException("Key extractors and predicate cannot be null");
         }
-
-        AbstractTable<T> results = createEmpty();
-
-        entries.stream()
-                .filter(entry -> {
-                    U extractedValueA = keyExtractorA.apply(entry);
-                    V extractedValueB = keyExtractorB.apply(entry);
-                    return pred.test(extractedValueA, extractedValueB);
-                })
-                .forEach(entry -> {
-                    try {
-                        results.addEntry(entry);
-                    } catch (Exception e) {
-                        // This shouldn't happen as we are copying from a valid table.
-                        throw new RuntimeException("Error adding entry to result table.", e);
-                    }
-                });
-
-        return results;
+        return query().where(entry -> pred.test(keyExtractorA.apply(entry), keyExtractorB.apply(entry))).toTable();
     }
 
     /**
@@ -373,37 +1503,109 @@ public abstract class AbstractTable<T extends AbstractTableEntry> implements Ser
      * @return
      */
     public List<Integer> getValidEntryNumbers() {
-        return entries.stream()
+        return readLocked(() -> entries.stream()
                 .map(AbstractTableEntry::getTableEntryID)
                 .distinct()
                 .sorted()
-                .toList();
+                .toList());
     }
 
     /**
-     * Loads entries from a CSV file, specified by the given filename.
-     * The file is expected to have a header line, which will be skipped.
-     * Each subsequent line is treated as a CSV representation of an entry.
+     * Replaces the entries of the table with those read from a CSV file, skipping its header line.
+     * Large files are parsed in parallel when the table allows it, smaller ones line by line.
+     * If a line cannot be parsed, the entries before it are kept and the exception is rethrown.
      *
-     * @param filename the path of the file from which to load the entries
+     * @param filename the path of the file from which to read the entries
      * @throws IOException if an I/O error occurs during the file reading
      */
-    public void loadFromFile(String filename) throws IOException {
+    private void readEntries(String filename) throws IOException {
         entries.clear();
+        markShifted(0);
+        positionIndex.clear();
+        indexesByName.values().forEach(SecondaryIndex::clear);
+        lowestFreeIDHint = firstID;
+        Path path = Paths.get(filename);
+        if (supportsParallelLoad() && ParallelTableLoader.isWorthwhile(Files.size(path))) {
+            for (ParallelTableLoader.ParsedChunk<T> chunk : ParallelTableLoader.parse(this, path)) {
+                positionIndex.ensureCapacity(entries.size() + chunk.entries().size());
+                for (T entry : chunk.entries()) {
+                    insert(entry);
+                }
+                if (chunk.failure() != null) {
+                    throw chunk.failure();
+                }
+            }
+            return;
+        }
         try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
             // Skip header line
             reader.readLine();
 
+            CSVTokenizer fields = new CSVTokenizer();
             String line;
             while ((line = reader.readLine()) != null) {
                 T entry = createValidEntryTemplate();
-                entry.loadFromCSVString(line);
-                entries.add(entry);
+                entry.loadFields(fields.reset(line));
+                entry.cacheCSVLine(line);
+                insert(entry);
             }
+        }
+    }
+
+    /**
+     * Checks if entries of this table read back the table entry ID they were written with.
+     * Journal records and binary snapshots identify entries by that ID, so tables whose entries
+     * are renumbered when loaded must override this to return false, and cannot use either.
+     *
+     * @return true if {@link AbstractTableEntry#loadFields} restores the ID written by
+     * {@link AbstractTableEntry#writeFields}, false otherwise
+     */
+    protected boolean entriesKeepIDs() {
+        return true;
+    }
+
+    /**
+     * Throws if the entries of this table do not keep their IDs when written and read back.
+     *
+     * @param feature the name of the feature that relies on the IDs, used in the exception message
+     * @throws UnsupportedOperationException if {@link #entriesKeepIDs()} returns false
+     */
+    private void requireEntriesKeepIDs(String feature) {
+        if (!entriesKeepIDs()) {
+            throw new UnsupportedOperationException("Cannot " + feature + " " + getClass().getSimpleName()
+                    + ", its entries are renumbered when loaded");
+        }
+    }
+
+    /**
+     * Checks if entries of this table may be parsed on several threads when loading a large file.
+     * Tables whose entries depend on the order they are parsed in, or on state shared between them,
+     * must override this to return false.
+     *
+     * @return true if the table may be loaded in parallel, false otherwise
+     */
+    protected boolean supportsParallelLoad() {
+        return true;
+    }
+
+    /**
+     * Loads entries from a CSV file, specified by the given filename.
+     * The file is expected to have a header line, which will be skipped.
+     * Each subsequent line is treated as a CSV representation of an entry.
+     *
+     * @param filename the path of the file from which to load the entries
+     * @throws IOException if an I/O error occurs during the file reading
+     */
+    public void loadFromFile(String filename) throws IOException {
+        long stamp = writeLock();
+        try {
+            readEntries(filename);
         } catch (Exception e) {
             if (!Objects.equals(filePath, "")) {
                 e.printStackTrace();
             }
+        } finally {
+            unlockWrite(stamp);
         }
     }
 
@@ -412,43 +1614,68 @@ public abstract class AbstractTable<T extends AbstractTableEntry> implements Ser
      * It clears any existing entries before loading new ones.
      * The method reads each line of the file, skipping the header line, and converts each line into
      * an entry using `createValidEntryTemplate()` and `loadFromCSVString(String)`.
+     * If the table is journaled, the journal is then replayed on top of the loaded entries.
      *
      * @throws IOException if an I/O error occurs while reading the file.
      */
     public void loadFromFile() throws IOException {
-        entries.clear();
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            // Skip header line
-            reader.readLine();
+        long stamp = writeLock();
+        try {
+            load();
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                T entry = createValidEntryTemplate();
-                entry.loadFromCSVString(line);
-                entries.add(entry);
-            }
+    /**
+     * Loads the entries of the linked file and replays the journal, as described by {@link #loadFromFile()}.
+     * The caller must hold the write lock.
+     *
+     * @throws IOException if the journal could not be replayed
+     */
+    private void load() throws IOException {
+        try {
+            readEntries(filePath);
         } catch (Exception e) {
             if (!Objects.equals(filePath, "")) {
                 e.printStackTrace();
             }
         }
+        if (journal != null) {
+            journal.replay(this::applyJournalRecord);
+        }
     }
 
     /**
-     * This method retrieves the first unused ID in a list of entries that have a sequential order of IDs.
-     * It sorts the entries by their ID and then iterates through the list to find the first gap in the sequence.
+     * This method retrieves the first unused ID, the lowest non-negative ID not held by any entry.
+     * The search starts from the lowest ID that may be free, and uses the position index to skip IDs in use,
+     * so handing out IDs one after another never rescans the table. Tables constructed with an ID sequence
+     * only consider the IDs of that sequence.
      *
      * @return the first unused ID in the sequence starting from 0. If all IDs from 0 to the size of the list are used, it returns the size of the list.
      */
     public int getUnusedID() {
-        // Start from 0, increment until 1 unused ID encountered.
-        sortBy(AbstractTableEntry::getTableEntryID);
-        for (int i = 0; i < entries.size(); i++) {
-            if (entries.get(i).getTableEntryID() != i) {
-                return i;
-            }
+        long stamp = writeLock();
+        try {
+            return nextUnusedID();
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Finds the first unused ID of the sequence, starting from the hint, and moves the hint up to it.
+     * The caller must hold the write lock.
+     *
+     * @return the first unused ID
+     */
+    private int nextUnusedID() {
+        int candidate = lowestFreeIDHint;
+        while (positionIndex.containsKey(candidate)) {
+            candidate += idStride;
         }
-        return entries.size();
+        lowestFreeIDHint = candidate;
+        return candidate;
     }
 
     /**
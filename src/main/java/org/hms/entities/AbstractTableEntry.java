@@ -1,6 +1,7 @@
 package org.hms.entities;
 
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -9,6 +10,10 @@ import java.util.List;
  * <p>
  * This class provides common functionality for handling CSV data and managing
  * unique identifiers for table entries.
+ * <p>
+ * Each entry caches the bytes of its CSV string, so that saving a table only re-serializes the entries
+ * that changed. Subclasses must therefore call {@link #markDirty()} whenever they change a field
+ * written by {@link #toCSVString()}.
  */
 public abstract class AbstractTableEntry implements Serializable {
 
@@ -17,6 +22,11 @@ public abstract class AbstractTableEntry implements Serializable {
      * This variable is protected to allow access within subclasses.
      */
     protected int tableEntryID;
+    /**
+     * The UTF-8 bytes of this entry's CSV string as last written or read,
+     * or null if the entry has changed since.
+     */
+    private transient byte[] cachedCSVBytes;
 
     /**
      * Initializes an instance of AbstractTableEntry with the specified table entry ID.
@@ -34,15 +44,9 @@ public abstract class AbstractTableEntry implements Serializable {
      * @return Formatted CSV String
      */
     public static String preprocessCSVString(String input) {
-        // Step 1: Double any instances of " in the input string
-        String doubledQuotes = input.replaceAll("\"", "\"\"");
-
-        // Step 2: If the string contains a comma, wrap the entire string in quotes
-        if (doubledQuotes.contains(",")) {
-            return "\"" + doubledQuotes + "\"";
-        } else {
-            return doubledQuotes;
-        }
+        StringBuilder escaped = new StringBuilder(input.length() + 2);
+        CSVRowWriter.appendEscaped(escaped, input);
+        return escaped.toString();
     }
 
     /**
@@ -53,34 +57,10 @@ public abstract class AbstractTableEntry implements Serializable {
      */
     public static String[] parseCSVLine(String csvLine) {
         List<String> result = new ArrayList<>();
-        boolean inQuotes = false;
-        StringBuilder currentField = new StringBuilder();
-
-        for (int i = 0; i < csvLine.length(); i++) {
-            char c = csvLine.charAt(i);
-
-            if (c == '"') {
-                // If the quote is escaped, append it to the current field
-                if (i + 1 < csvLine.length() && csvLine.charAt(i + 1) == '"') {
-                    currentField.append('"');
-                    i++;
-                } else {
-                    // Toggle the inQuotes flag
-                    inQuotes = !inQuotes;
-                }
-            } else if (c == ',' && !inQuotes) {
-                // Comma outside of quotes signals the end of a field
-                result.add(currentField.toString());
-                currentField = new StringBuilder();
-            } else {
-                // Append the character to the current field
-                currentField.append(c);
-            }
+        CSVTokenizer fields = new CSVTokenizer().reset(csvLine);
+        while (fields.hasNext()) {
+            result.add(fields.nextString());
         }
-
-        // Add the last field
-        result.add(currentField.toString());
-
         return result.toArray(new String[0]);
     }
 
@@ -100,19 +80,82 @@ public abstract class AbstractTableEntry implements Serializable {
      */
     public void setTableEntryID(int tableEntryID) {
         this.tableEntryID = tableEntryID;
+        markDirty();
+    }
+
+    /**
+     * Discards the cached CSV bytes of this entry, so that it is re-serialized the next time its table is saved.
+     * Subclasses must call this whenever a field written by toCSVString() changes.
+     */
+    protected final void markDirty() {
+        cachedCSVBytes = null;
+    }
+
+    /**
+     * Checks if this entry has changed since its CSV bytes were last cached.
+     *
+     * @return true if the entry must be re-serialized, false otherwise
+     */
+    public final boolean isDirty() {
+        return cachedCSVBytes == null;
+    }
+
+    /**
+     * Retrieves the UTF-8 bytes of this entry's CSV string, serializing the entry only if it is dirty.
+     *
+     * @param scratch a writer to build the row in if the entry must be re-serialized
+     * @return the CSV bytes of this entry, without a line separator
+     */
+    final byte[] getCSVBytes(CSVRowWriter scratch) {
+        if (cachedCSVBytes == null) {
+            writeFields(scratch.reset());
+            cachedCSVBytes = scratch.toBytes();
+        }
+        return cachedCSVBytes;
     }
 
     /**
-     * Concrete classes must define how to save CSV.
+     * Caches the CSV line this entry was just loaded from, marking the entry as clean.
+     *
+     * @param csvLine the CSV line passed to loadFromCSVString()
+     */
+    final void cacheCSVLine(String csvLine) {
+        cachedCSVBytes = csvLine.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Converts this entry to a single CSV line.
      *
      * @return a csvLine representation of the data.
      */
-    public abstract String toCSVString();
+    public String toCSVString() {
+        CSVRowWriter row = new CSVRowWriter();
+        writeFields(row);
+        return row.toString();
+    }
+
+    /**
+     * Concrete classes must define how to save themselves, appending their fields to the writer
+     * in the order loadFields() reads them. The same fields are used for CSV files and binary snapshots.
+     *
+     * @param row the writer to append the fields of this entry to
+     */
+    public abstract void writeFields(FieldWriter row);
 
     /**
-     * Concrete classes must define how to load CSV.
+     * Loads this entry from a single CSV line.
      *
      * @param csvLine comma seperated entry values.
      */
-    public abstract void loadFromCSVString(String csvLine);
+    public void loadFromCSVString(String csvLine) {
+        loadFields(new CSVTokenizer().reset(csvLine));
+    }
+
+    /**
+     * Concrete classes must define how to load themselves, reading their fields from the reader in the
+     * order writeFields() writes them. Tables reuse one reader for every entry they load.
+     *
+     * @param fields a reader positioned before the first field of the entry
+     */
+    public abstract void loadFields(FieldReader fields);
 }
@@ -0,0 +1,403 @@
+package org.hms.entities;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The binary snapshot format of an {@link AbstractTable}, a compact alternative to CSV files.
+ * <p>
+ * A snapshot starts with the magic bytes "HMSB", the format version, the headers of the table and the
+ * number of entries, followed by the fields of each entry as written by
+ * {@link AbstractTableEntry#writeFields(FieldWriter)}. Every field starts with a one byte tag giving its type:
+ * <ul>
+ *     <li>ints are zig-zag encoded varints, and dates are the varint of their epoch day;</li>
+ *     <li>strings are a varint byte length followed by their UTF-8 bytes;</li>
+ *     <li>short strings, such as patient and doctor IDs, are dictionary-encoded: the first occurrence is
+ *     written in full and assigned the next dictionary index, and every later occurrence is written as
+ *     the varint of that index. Enums are written as the dictionary-encoded name of their constant.</li>
+ * </ul>
+ * </p>
+ */
+final class BinarySnapshot {
+    /**
+     * The bytes every snapshot starts with.
+     */
+    private static final byte[] MAGIC = {'H', 'M', 'S', 'B'};
+    /**
+     * The version of the format written by this class.
+     */
+    private static final int VERSION = 1;
+    /**
+     * The length up to which strings are added to the dictionary. Longer strings are rarely repeated.
+     */
+    private static final int MAX_DICTIONARY_STRING_LENGTH = 32;
+
+    /**
+     * Tag of an int field.
+     */
+    private static final int TAG_INT = 1;
+    /**
+     * Tag of a string field written in full, and not added to the dictionary.
+     */
+    private static final int TAG_STRING = 2;
+    /**
+     * Tag of a string field written in full, and added to the dictionary.
+     */
+    private static final int TAG_STRING_NEW = 3;
+    /**
+     * Tag of a string field written as an index into the dictionary.
+     */
+    private static final int TAG_STRING_REF = 4;
+    /**
+     * Tag of a date field.
+     */
+    private static final int TAG_DATE = 5;
+
+    /**
+     * This class only holds the nested writer and reader.
+     */
+    private BinarySnapshot() {
+    }
+
+    /**
+     * Writes a snapshot to a stream. Any IOException is rethrown as an UncheckedIOException,
+     * since FieldWriter methods cannot throw checked exceptions.
+     */
+    static final class Writer implements FieldWriter {
+        /**
+         * The stream the snapshot is written to.
+         */
+        private final OutputStream out;
+        /**
+         * Maps each string already written to its dictionary index.
+         */
+        private final Map<String, Integer> dictionary = new HashMap<>();
+
+        /**
+         * Creates a writer, and writes the header of the snapshot.
+         *
+         * @param out        the stream to write the snapshot to, which should be buffered
+         * @param headers    the headers of the table
+         * @param entryCount the number of entries that will be written
+         * @throws IOException if the header could not be written
+         */
+        Writer(OutputStream out, String[] headers, int entryCount) throws IOException {
+            this.out = out;
+            out.write(MAGIC);
+            writeVarint(VERSION);
+            writeVarint(headers.length);
+            for (String header : headers) {
+                writeBytes(header);
+            }
+            writeVarint(entryCount);
+        }
+
+        /**
+         * Appends a String field, dictionary-encoded if it is short enough.
+         *
+         * @param value the value of the field
+         * @return this writer
+         */
+        @Override
+        public Writer field(String value) {
+            try {
+                Integer index = dictionary.get(value);
+                if (index != null) {
+                    out.write(TAG_STRING_REF);
+                    writeVarint(index);
+                } else if (value.length() <= MAX_DICTIONARY_STRING_LENGTH) {
+                    dictionary.put(value, dictionary.size());
+                    out.write(TAG_STRING_NEW);
+                    writeBytes(value);
+                } else {
+                    out.write(TAG_STRING);
+                    writeBytes(value);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        /**
+         * Appends an int field as a zig-zag encoded varint.
+         *
+         * @param value the value of the field
+         * @return this writer
+         */
+        @Override
+        public Writer field(int value) {
+            try {
+                out.write(TAG_INT);
+                writeVarint(Integer.toUnsignedLong((value << 1) ^ (value >> 31)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        /**
+         * Appends an enum field as the dictionary-encoded name of the constant.
+         *
+         * @param value the value of the field
+         * @return this writer
+         */
+        @Override
+        public Writer field(Enum<?> value) {
+            return field(value.name());
+        }
+
+        /**
+         * Appends a date field as the zig-zag encoded varint of its epoch day.
+         *
+         * @param value the value of the field
+         * @return this writer
+         */
+        @Override
+        public Writer field(LocalDate value) {
+            try {
+                out.write(TAG_DATE);
+                long epochDay = value.toEpochDay();
+                writeVarint((epochDay << 1) ^ (epochDay >> 63));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        /**
+         * Writes a string as its varint byte length followed by its UTF-8 bytes.
+         *
+         * @param value the string to write
+         * @throws IOException if the string could not be written
+         */
+        private void writeBytes(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            out.write(bytes);
+        }
+
+        /**
+         * Writes a non-negative number as a varint, seven bits per byte, least significant group first.
+         *
+         * @param value the number to write, treated as unsigned
+         * @throws IOException if the number could not be written
+         */
+        private void writeVarint(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+
+    /**
+     * Reads a snapshot from a stream. Any IOException, including one caused by a corrupt snapshot,
+     * is rethrown as an UncheckedIOException, since FieldReader methods cannot throw checked exceptions.
+     */
+    static final class Reader implements FieldReader {
+        /**
+         * The stream the snapshot is read from.
+         */
+        private final InputStream in;
+        /**
+         * The strings of the dictionary, by index.
+         */
+        private final List<String> dictionary = new ArrayList<>();
+        /**
+         * The number of entries in the snapshot.
+         */
+        private final int entryCount;
+
+        /**
+         * Creates a reader, and reads and checks the header of the snapshot.
+         *
+         * @param in      the stream to read the snapshot from, which should be buffered
+         * @param headers the headers of the table being loaded
+         * @throws IOException if the header could not be read, is not that of a snapshot,
+         *                     or was written for a table with different headers
+         */
+        Reader(InputStream in, String[] headers) throws IOException {
+            this.in = in;
+            byte[] magic = in.readNBytes(MAGIC.length);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new StreamCorruptedException("Not a table snapshot");
+            }
+            long version = readVarint();
+            if (version != VERSION) {
+                throw new StreamCorruptedException("Unsupported snapshot version " + version);
+            }
+            String[] snapshotHeaders = new String[(int) readVarint()];
+            for (int i = 0; i < snapshotHeaders.length; i++) {
+                snapshotHeaders[i] = readBytes();
+            }
+            if (!Arrays.equals(snapshotHeaders, headers)) {
+                throw new StreamCorruptedException("Snapshot was written for a table with headers " + Arrays.toString(snapshotHeaders));
+            }
+            this.entryCount = (int) readVarint();
+        }
+
+        /**
+         * Retrieves the number of entries in the snapshot.
+         *
+         * @return the number of entries
+         */
+        int getEntryCount() {
+            return entryCount;
+        }
+
+        /**
+         * Reads the next field as a String, resolving dictionary references.
+         *
+         * @return the value of the next field
+         * @throws UncheckedIOException if the next field is not a string
+         */
+        @Override
+        public String nextString() {
+            try {
+                int tag = in.read();
+                switch (tag) {
+                    case TAG_STRING:
+                        return readBytes();
+                    case TAG_STRING_NEW:
+                        String value = readBytes();
+                        dictionary.add(value);
+                        return value;
+                    case TAG_STRING_REF:
+                        long index = readVarint();
+                        if (index >= dictionary.size()) {
+                            throw new StreamCorruptedException("Dictionary index " + index + " out of range");
+                        }
+                        return dictionary.get((int) index);
+                    default:
+                        throw unexpectedTag(tag, "string");
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Reads the next field as an int.
+         *
+         * @return the value of the next field
+         * @throws UncheckedIOException if the next field is not an int
+         */
+        @Override
+        public int nextInt() {
+            try {
+                expectTag(TAG_INT, "int");
+                long zigZag = readVarint();
+                return (int) (zigZag >>> 1) ^ -(int) (zigZag & 1);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Reads the next field as a constant of the given enum type.
+         *
+         * @param enumType the type of the enum
+         * @param <E>      the type of the enum
+         * @return the enum constant named by the next field
+         * @throws IllegalArgumentException if the field does not name a constant of enumType
+         */
+        @Override
+        public <E extends Enum<E>> E nextEnum(Class<E> enumType) {
+            return Enum.valueOf(enumType, nextString());
+        }
+
+        /**
+         * Reads the next field as a date.
+         *
+         * @return the date held by the next field
+         * @throws UncheckedIOException if the next field is not a date
+         */
+        @Override
+        public LocalDate nextLocalDate() {
+            try {
+                expectTag(TAG_DATE, "date");
+                long zigZag = readVarint();
+                return LocalDate.ofEpochDay((zigZag >>> 1) ^ -(zigZag & 1));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Reads a tag, and checks that it is the expected one.
+         *
+         * @param expected the expected tag
+         * @param type     the name of the expected type, used in error messages
+         * @throws IOException if the tag could not be read or is not the expected one
+         */
+        private void expectTag(int expected, String type) throws IOException {
+            int tag = in.read();
+            if (tag != expected) {
+                throw unexpectedTag(tag, type);
+            }
+        }
+
+        /**
+         * Creates the exception thrown when a field does not have the expected type.
+         *
+         * @param tag  the tag that was read, or -1 at the end of the stream
+         * @param type the name of the expected type
+         * @return the exception to throw
+         */
+        private static IOException unexpectedTag(int tag, String type) {
+            if (tag < 0) {
+                return new EOFException("Snapshot ended while reading a " + type + " field");
+            }
+            return new StreamCorruptedException("Expected a " + type + " field, found tag " + tag);
+        }
+
+        /**
+         * Reads a string written as its varint byte length followed by its UTF-8 bytes.
+         *
+         * @return the string read
+         * @throws IOException if the string could not be read
+         */
+        private String readBytes() throws IOException {
+            int length = (int) readVarint();
+            byte[] bytes = in.readNBytes(length);
+            if (bytes.length != length) {
+                throw new EOFException("Snapshot ended while reading a string");
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Reads a varint.
+         *
+         * @return the number read, as an unsigned value
+         * @throws IOException if the varint could not be read, or is longer than ten bytes
+         */
+        private long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = in.read();
+                if (b < 0) {
+                    throw new EOFException("Snapshot ended while reading a number");
+                }
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new StreamCorruptedException("Malformed varint");
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package org.hms.entities;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * A reusable builder for a single CSV line, the writing counterpart of {@link CSVTokenizer}.
+ * <p>
+ * Fields are appended one at a time into an internal buffer that keeps its capacity across
+ * {@link #reset() resets}, with the separating commas inserted automatically. String fields are
+ * escaped by hand: a field without quotes or commas, which is by far the most common case,
+ * is copied as is, so building a row involves neither format strings nor regular expressions.
+ * </p>
+ */
+public final class CSVRowWriter implements FieldWriter {
+    /**
+     * Holds the characters of the row being built.
+     */
+    private final StringBuilder row = new StringBuilder(128);
+    /**
+     * Whether at least one field has been appended since the last reset.
+     */
+    private boolean hasFields;
+
+    /**
+     * Empties the row, keeping the buffer's capacity for the next one.
+     *
+     * @return this writer
+     */
+    public CSVRowWriter reset() {
+        row.setLength(0);
+        hasFields = false;
+        return this;
+    }
+
+    /**
+     * Appends a String field, escaped in the same way as {@link AbstractTableEntry#preprocessCSVString(String)}.
+     *
+     * @param value the value of the field
+     * @return this writer
+     */
+    @Override
+    public CSVRowWriter field(String value) {
+        separate();
+        appendEscaped(row, value);
+        return this;
+    }
+
+    /**
+     * Appends an int field.
+     *
+     * @param value the value of the field
+     * @return this writer
+     */
+    @Override
+    public CSVRowWriter field(int value) {
+        separate();
+        row.append(value);
+        return this;
+    }
+
+    /**
+     * Appends an enum field as the name of the constant, which {@link CSVTokenizer#nextEnum(Class)} reads back.
+     *
+     * @param value the value of the field
+     * @return this writer
+     */
+    @Override
+    public CSVRowWriter field(Enum<?> value) {
+        separate();
+        row.append(value.name());
+        return this;
+    }
+
+    /**
+     * Appends a date field in yyyy-MM-dd format, which {@link CSVTokenizer#nextLocalDate()} reads back.
+     *
+     * @param value the value of the field
+     * @return this writer
+     */
+    @Override
+    public CSVRowWriter field(LocalDate value) {
+        separate();
+        appendPadded(value.getYear(), 4);
+        row.append('-');
+        appendPadded(value.getMonthValue(), 2);
+        row.append('-');
+        appendPadded(value.getDayOfMonth(), 2);
+        return this;
+    }
+
+    /**
+     * Retrieves the row built so far.
+     *
+     * @return the CSV line, without a line separator
+     */
+    @Override
+    public String toString() {
+        return row.toString();
+    }
+
+    /**
+     * Encodes the row built so far as UTF-8. Rows made only of ASCII characters are
+     * copied byte by byte, without going through a charset encoder.
+     *
+     * @return the UTF-8 bytes of the CSV line, without a line separator
+     */
+    public byte[] toBytes() {
+        int length = row.length();
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            char c = row.charAt(i);
+            if (c >= 0x80) {
+                return row.toString().getBytes(StandardCharsets.UTF_8);
+            }
+            bytes[i] = (byte) c;
+        }
+        return bytes;
+    }
+
+    /**
+     * Escapes a value for use as a CSV field and appends it to a builder.
+     * Quotes are doubled, and the value is wrapped in quotes if it contains a comma.
+     *
+     * @param out   the builder to append to
+     * @param value the value to escape
+     */
+    static void appendEscaped(StringBuilder out, String value) {
+        int length = value.length();
+        boolean hasQuote = false;
+        boolean hasComma = false;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                hasQuote = true;
+            } else if (c == ',') {
+                hasComma = true;
+            }
+        }
+        if (!hasQuote && !hasComma) {
+            out.append(value);
+            return;
+        }
+        if (hasComma) {
+            out.append('"');
+        }
+        if (hasQuote) {
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    out.append('"');
+                }
+                out.append(c);
+            }
+        } else {
+            out.append(value);
+        }
+        if (hasComma) {
+            out.append('"');
+        }
+    }
+
+    /**
+     * Appends the separator preceding a field, unless it is the first field of the row.
+     */
+    private void separate() {
+        if (hasFields) {
+            row.append(',');
+        }
+        hasFields = true;
+    }
+
+    /**
+     * Appends a non-negative number, left-padded with zeros to the given width.
+     *
+     * @param value the number to append
+     * @param width the minimum number of digits
+     */
+    private void appendPadded(int value, int width) {
+        for (int limit = 10, digits = 1; digits < width; limit *= 10, digits++) {
+            if (value < limit) {
+                row.append('0');
+            }
+        }
+        row.append(value);
+    }
+}
@@ -0,0 +1,282 @@
+package org.hms.entities;
+
+import java.nio.CharBuffer;
+import java.time.LocalDate;
+import java.util.NoSuchElementException;
+
+/**
+ * A reusable, cursor-based tokenizer for a single CSV line.
+ * <p>
+ * The tokenizer walks the line one field at a time, unescaping each field into an internal
+ * char buffer that is reused across fields and lines. Numeric and date fields are parsed
+ * straight from that buffer, so only fields read as Strings allocate anything.
+ * A single tokenizer can be {@link #reset(CharSequence) reset} for every line of a file.
+ * </p>
+ * <p>
+ * Quoting follows the same rules as {@link AbstractTableEntry#preprocessCSVString(String)}:
+ * a quote toggles quoted mode, two consecutive quotes stand for a literal quote,
+ * and commas only separate fields outside of quoted mode.
+ * </p>
+ */
+public final class CSVTokenizer implements FieldReader {
+    /**
+     * The line being tokenized.
+     */
+    private CharSequence line;
+    /**
+     * The position in the line where the next field starts.
+     */
+    private int position;
+    /**
+     * Whether every field in the line has been consumed.
+     */
+    private boolean exhausted;
+    /**
+     * The index of the field most recently read, used in error messages.
+     */
+    private int fieldIndex;
+    /**
+     * Holds the unescaped characters of the field most recently read.
+     */
+    private char[] buffer = new char[64];
+    /**
+     * The number of characters of the field most recently read.
+     */
+    private int length;
+    /**
+     * A reusable read-only view over the field most recently read.
+     */
+    private CharBuffer slice = CharBuffer.wrap(buffer);
+
+    /**
+     * Points the tokenizer at a new line, positioned before its first field.
+     *
+     * @param line the CSV line to tokenize
+     * @return this tokenizer
+     */
+    public CSVTokenizer reset(CharSequence line) {
+        this.line = line;
+        this.position = 0;
+        this.exhausted = false;
+        this.fieldIndex = -1;
+        this.length = 0;
+        return this;
+    }
+
+    /**
+     * Checks if the line has fields left to read. A line always has at least one field, even if empty.
+     *
+     * @return true if another field can be read, false otherwise
+     */
+    public boolean hasNext() {
+        return line != null && !exhausted;
+    }
+
+    /**
+     * Reads the next field as a String.
+     *
+     * @return the unescaped next field
+     * @throws NoSuchElementException if the line has no fields left
+     */
+    @Override
+    public String nextString() {
+        advance();
+        return new String(buffer, 0, length);
+    }
+
+    /**
+     * Reads the next field as a view over the tokenizer's internal buffer. The view is only valid
+     * until the next field is read, and must be copied if it is to be kept.
+     *
+     * @return a view over the unescaped next field
+     * @throws NoSuchElementException if the line has no fields left
+     */
+    public CharSequence nextSlice() {
+        advance();
+        return slice.clear().limit(length);
+    }
+
+    /**
+     * Skips the next field.
+     *
+     * @throws NoSuchElementException if the line has no fields left
+     */
+    public void skip() {
+        advance();
+    }
+
+    /**
+     * Reads the next field as a decimal int, without creating an intermediate String.
+     *
+     * @return the value of the next field
+     * @throws NumberFormatException  if the field is not a valid int
+     * @throws NoSuchElementException if the line has no fields left
+     */
+    @Override
+    public int nextInt() {
+        advance();
+        return parseInt(0, length);
+    }
+
+    /**
+     * Reads the next field as a date in yyyy-MM-dd format, without creating an intermediate String.
+     * As with a lenient SimpleDateFormat, the month and day may have one or two digits.
+     *
+     * @return the date in the next field
+     * @throws IllegalArgumentException if the field is not a valid date
+     * @throws NoSuchElementException   if the line has no fields left
+     */
+    @Override
+    public LocalDate nextLocalDate() {
+        advance();
+        int firstDash = indexOf('-', 1);
+        int secondDash = firstDash < 0 ? -1 : indexOf('-', firstDash + 1);
+        if (secondDash < 0) {
+            throw new IllegalArgumentException("Invalid date in CSV field " + fieldIndex + ": " + new String(buffer, 0, length));
+        }
+        int year = parseInt(0, firstDash);
+        int month = parseInt(firstDash + 1, secondDash);
+        int day = parseInt(secondDash + 1, length);
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (java.time.DateTimeException e) {
+            throw new IllegalArgumentException("Invalid date in CSV field " + fieldIndex + ": " + new String(buffer, 0, length), e);
+        }
+    }
+
+    /**
+     * Reads the next field as a constant of the given enum type.
+     *
+     * @param enumType the type of the enum
+     * @param <E>      the type of the enum
+     * @return the enum constant named by the next field
+     * @throws IllegalArgumentException if the field does not name a constant of enumType
+     * @throws NoSuchElementException   if the line has no fields left
+     */
+    @Override
+    public <E extends Enum<E>> E nextEnum(Class<E> enumType) {
+        return Enum.valueOf(enumType, nextString());
+    }
+
+    /**
+     * Unescapes the next field of the line into the buffer.
+     *
+     * @throws NoSuchElementException if the line has no fields left
+     */
+    private void advance() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("Missing CSV field " + (fieldIndex + 1));
+        }
+        fieldIndex++;
+        length = 0;
+        boolean inQuotes = false;
+        int end = line.length();
+        int i = position;
+        for (; i < end; i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                // If the quote is escaped, append it to the current field
+                if (i + 1 < end && line.charAt(i + 1) == '"') {
+                    append('"');
+                    i++;
+                } else {
+                    inQuotes = !inQuotes;
+                }
+            } else if (c == ',' && !inQuotes) {
+                // Comma outside of quotes signals the end of a field
+                position = i + 1;
+                return;
+            } else {
+                append(c);
+            }
+        }
+        // The last field ends with the line.
+        position = end;
+        exhausted = true;
+    }
+
+    /**
+     * Appends a character to the buffer, growing it if needed.
+     *
+     * @param c the character to append
+     */
+    private void append(char c) {
+        if (length == buffer.length) {
+            char[] grown = new char[buffer.length * 2];
+            System.arraycopy(buffer, 0, grown, 0, length);
+            buffer = grown;
+            slice = CharBuffer.wrap(buffer);
+        }
+        buffer[length++] = c;
+    }
+
+    /**
+     * Finds a character in the buffer.
+     *
+     * @param c    the character to find
+     * @param from the position to start searching at
+     * @return the position of the character, or -1 if it is not in the buffer
+     */
+    private int indexOf(char c, int from) {
+        for (int i = from; i < length; i++) {
+            if (buffer[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses a decimal int from a range of the buffer. Leading and trailing spaces are not allowed,
+     * matching Integer.parseInt.
+     *
+     * @param from the start of the range, inclusive
+     * @param to   the end of the range, exclusive
+     * @return the parsed value
+     * @throws NumberFormatException if the range is not a valid int
+     */
+    private int parseInt(int from, int to) {
+        if (from >= to) {
+            throw invalidInt(from, to);
+        }
+        boolean negative = false;
+        int i = from;
+        if (buffer[i] == '-' || buffer[i] == '+') {
+            negative = buffer[i] == '-';
+            i++;
+            if (i == to) {
+                throw invalidInt(from, to);
+            }
+        }
+        // Accumulate negatively, so that Integer.MIN_VALUE can be represented.
+        long result = 0;
+        for (; i < to; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalidInt(from, to);
+            }
+            result = result * 10 - digit;
+            if (result < Integer.MIN_VALUE) {
+                throw invalidInt(from, to);
+            }
+        }
+        if (!negative) {
+            if (result == Integer.MIN_VALUE) {
+                throw invalidInt(from, to);
+            }
+            result = -result;
+        }
+        return (int) result;
+    }
+
+    /**
+     * Creates the exception thrown when a range of the buffer is not a valid int.
+     *
+     * @param from the start of the range, inclusive
+     * @param to   the end of the range, exclusive
+     * @return the exception to throw
+     */
+    private NumberFormatException invalidInt(int from, int to) {
+        return new NumberFormatException("Invalid integer in CSV field " + fieldIndex + ": \"" + new String(buffer, from, to - from) + "\"");
+    }
+}
@@ -0,0 +1,42 @@
+package org.hms.entities;
+
+import java.time.LocalDate;
+
+/**
+ * Supplies the fields of an {@link AbstractTableEntry} when it is loaded, in a format-independent way.
+ * Fields are read in the order {@link AbstractTableEntry#writeFields(FieldWriter)} wrote them.
+ */
+public interface FieldReader {
+    /**
+     * Reads the next field as a String.
+     *
+     * @return the value of the next field
+     */
+    String nextString();
+
+    /**
+     * Reads the next field as an int.
+     *
+     * @return the value of the next field
+     * @throws NumberFormatException if the field is not a valid int
+     */
+    int nextInt();
+
+    /**
+     * Reads the next field as a constant of the given enum type.
+     *
+     * @param enumType the type of the enum
+     * @param <E>      the type of the enum
+     * @return the enum constant held by the next field
+     * @throws IllegalArgumentException if the field does not hold a constant of enumType
+     */
+    <E extends Enum<E>> E nextEnum(Class<E> enumType);
+
+    /**
+     * Reads the next field as a date.
+     *
+     * @return the date held by the next field
+     * @throws IllegalArgumentException if the field is not a valid date
+     */
+    LocalDate nextLocalDate();
+}
@@ -0,0 +1,42 @@
+package org.hms.entities;
+
+import java.time.LocalDate;
+
+/**
+ * Receives the fields of an {@link AbstractTableEntry} when it is saved, in a format-independent way.
+ * An entry appends its fields in the same order its {@link AbstractTableEntry#loadFields(FieldReader)}
+ * reads them back, so that every storage format only has to implement this interface and {@link FieldReader}.
+ */
+public interface FieldWriter {
+    /**
+     * Appends a String field.
+     *
+     * @param value the value of the field
+     * @return this writer
+     */
+    FieldWriter field(String value);
+
+    /**
+     * Appends an int field.
+     *
+     * @param value the value of the field
+     * @return this writer
+     */
+    FieldWriter field(int value);
+
+    /**
+     * Appends an enum field.
+     *
+     * @param value the value of the field
+     * @return this writer
+     */
+    FieldWriter field(Enum<?> value);
+
+    /**
+     * Appends a date field.
+     *
+     * @param value the value of the field
+     * @return this writer
+     */
+    FieldWriter field(LocalDate value);
+}
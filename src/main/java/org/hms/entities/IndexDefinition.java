@@ -0,0 +1,90 @@
+package org.hms.entities;
+
+import java.util.function.Function;
+
+/**
+ * Describes a secondary index that a table declares on its entries.
+ * <p>
+ * Subclasses of {@link AbstractTable} pass their index definitions to the constructor of AbstractTable,
+ * which builds one {@link SecondaryIndex} per definition for every new table. Declaring the indexes this way,
+ * rather than registering them from the subclass constructor, keeps the table from calling its own methods
+ * before it is fully constructed.
+ * </p>
+ *
+ * @param <T> the type of entries in the table
+ */
+public final class IndexDefinition<T extends AbstractTableEntry> {
+    /**
+     * The unique name of the index.
+     */
+    private final String name;
+    /**
+     * The function that extracts the indexed key from an entry.
+     */
+    private final Function<T, ?> keyExtractor;
+    /**
+     * Whether the index keeps its keys in natural order, allowing range lookups.
+     */
+    private final boolean sorted;
+
+    /**
+     * Creates an index definition.
+     *
+     * @param name         the unique name of the index
+     * @param keyExtractor a function that extracts the indexed key from an entry
+     * @param sorted       true for a sorted index, false for a hash index
+     * @throws IllegalArgumentException if name or keyExtractor is null
+     */
+    private IndexDefinition(String name, Function<T, ?> keyExtractor, boolean sorted) {
+        if (name == null || keyExtractor == null) {
+            throw new IllegalArgumentException("Index name and key extractor cannot be null");
+        }
+        this.name = name;
+        this.keyExtractor = keyExtractor;
+        this.sorted = sorted;
+    }
+
+    /**
+     * Defines a hash index, which serves exact lookups.
+     * <p>
+     * {@link AbstractTable#searchByAttribute}, {@link AbstractTable#filterByAttribute} and {@link TableQuery}
+     * use the index whenever they are given the same keyExtractor instance, so tables should expose the
+     * extractor as a constant.
+     * </p>
+     *
+     * @param name         the unique name of the index
+     * @param keyExtractor a function that extracts the indexed key from an entry
+     * @param <T>          the type of entries in the table
+     * @param <U>          the type of the indexed key
+     * @return the definition of the index
+     * @throws IllegalArgumentException if name or keyExtractor is null
+     */
+    public static <T extends AbstractTableEntry, U> IndexDefinition<T> hash(String name, Function<T, U> keyExtractor) {
+        return new IndexDefinition<>(name, keyExtractor, false);
+    }
+
+    /**
+     * Defines a sorted index. Besides exact lookups, a sorted index
+     * also serves range lookups made through {@link AbstractTable#searchByRange}.
+     *
+     * @param name         the unique name of the index
+     * @param keyExtractor a function that extracts the indexed key from an entry
+     * @param <T>          the type of entries in the table
+     * @param <U>          the type of the indexed key
+     * @return the definition of the index
+     * @throws IllegalArgumentException if name or keyExtractor is null
+     * @see #hash(String, Function)
+     */
+    public static <T extends AbstractTableEntry, U extends Comparable<? super U>> IndexDefinition<T> sorted(String name, Function<T, U> keyExtractor) {
+        return new IndexDefinition<>(name, keyExtractor, true);
+    }
+
+    /**
+     * Builds a new, empty index from this definition.
+     *
+     * @return the index
+     */
+    SecondaryIndex<T, ?> create() {
+        return new SecondaryIndex<>(name, keyExtractor, sorted);
+    }
+}
@@ -0,0 +1,235 @@
+package org.hms.entities;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from primitive int keys to primitive int values.
+ * <p>
+ * This is used by {@link AbstractTable} to map a tableEntryID to the position of the
+ * entry inside the table's backing list, without boxing either side of the mapping.
+ * Collisions are resolved by linear probing, and removals use backward-shift deletion
+ * so no tombstones are left behind.
+ */
+final class IntIndexMap implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    /**
+     * The value returned by {@link #get(int)} when a key is not present.
+     */
+    static final int MISSING = -1;
+    /**
+     * The smallest capacity the key/value arrays will ever be sized to. Must be a power of two.
+     */
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * The keys of the map. Only meaningful where the matching slot in {@link #used} is set.
+     */
+    private int[] keys;
+    /**
+     * The values of the map, stored in the same slot as their key.
+     */
+    private int[] values;
+    /**
+     * Marks which slots are occupied, so that every int (including 0 and negatives) is a valid key.
+     */
+    private boolean[] used;
+    /**
+     * The number of keys currently stored in the map.
+     */
+    private int size;
+
+    /**
+     * Creates an empty map with the minimum capacity.
+     */
+    IntIndexMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Returns the number of keys stored in the map.
+     *
+     * @return the number of keys in the map
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the given key is present in the map.
+     *
+     * @param key the key to look for
+     * @return true if the key is present, false otherwise
+     */
+    boolean containsKey(int key) {
+        return used[findSlot(key)];
+    }
+
+    /**
+     * Retrieves the value associated with the given key.
+     *
+     * @param key the key to look up
+     * @return the value mapped to the key, or {@link #MISSING} if the key is not present
+     */
+    int get(int key) {
+        int slot = findSlot(key);
+        return used[slot] ? values[slot] : MISSING;
+    }
+
+    /**
+     * Associates the given value with the given key, replacing any previous value.
+     *
+     * @param key   the key to store
+     * @param value the value to associate with the key
+     */
+    void put(int key, int value) {
+        int slot = findSlot(key);
+        if (used[slot]) {
+            values[slot] = value;
+            return;
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        // Keep the load factor at or below 0.5 so probe sequences stay short.
+        if (size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * Removes the given key from the map, if present.
+     *
+     * @param key the key to remove
+     * @return the value that was associated with the key, or {@link #MISSING} if the key was not present
+     */
+    int remove(int key) {
+        int slot = findSlot(key);
+        if (!used[slot]) {
+            return MISSING;
+        }
+        int removedValue = values[slot];
+        used[slot] = false;
+        size--;
+
+        // Backward-shift the following cluster so that lookups never stop early on the freed slot.
+        int mask = keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (used[next]) {
+            int home = mix(keys[next]) & mask;
+            // Move the entry into the gap if the gap lies cyclically between its home slot and its current slot.
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                used[gap] = true;
+                used[next] = false;
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        return removedValue;
+    }
+
+    /**
+     * Removes every key from the map, shrinking it back to its minimum capacity.
+     */
+    void clear() {
+        if (keys.length > MIN_CAPACITY) {
+            allocate(MIN_CAPACITY);
+        } else {
+            Arrays.fill(used, false);
+        }
+        size = 0;
+    }
+
+    /**
+     * Ensures the map can hold the given number of keys without resizing.
+     *
+     * @param expectedSize the number of keys the map should be able to hold
+     */
+    void ensureCapacity(int expectedSize) {
+        int required = tableSizeFor(expectedSize * 2);
+        if (required > keys.length) {
+            rehash(required);
+        }
+    }
+
+    /**
+     * Finds the slot holding the given key, or the empty slot where it would be inserted.
+     *
+     * @param key the key to look for
+     * @return the index of the slot
+     */
+    private int findSlot(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Reallocates the backing arrays to the given capacity and reinserts every key.
+     *
+     * @param newCapacity the new capacity, which must be a power of two
+     */
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(newCapacity);
+        int mask = newCapacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Allocates empty backing arrays of the given capacity.
+     *
+     * @param capacity the capacity of the new arrays
+     */
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+    }
+
+    /**
+     * Scrambles the bits of a key. Table entry IDs are mostly sequential, which would
+     * otherwise produce long runs of adjacent occupied slots.
+     *
+     * @param key the key to scramble
+     * @return the scrambled hash of the key
+     */
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Rounds the given size up to the next power of two, with a floor of {@link #MIN_CAPACITY}.
+     *
+     * @param size the size to round up
+     * @return a power of two no smaller than size
+     */
+    private static int tableSizeFor(int size) {
+        if (size <= MIN_CAPACITY) {
+            return MIN_CAPACITY;
+        }
+        return Integer.highestOneBit(size - 1) << 1;
+    }
+}
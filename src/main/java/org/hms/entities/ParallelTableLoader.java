@@ -0,0 +1,193 @@
+package org.hms.entities;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Parses the entries of a large CSV file on several threads.
+ * <p>
+ * The file is memory-mapped and cut into chunks of roughly equal size. Like the sequential loader,
+ * which reads the file with {@link java.io.BufferedReader#readLine()}, every line holds exactly one entry,
+ * so each chunk is extended to the end of the line it stops in and never splits an entry in two.
+ * Chunks are then parsed in parallel on the common fork-join pool, and returned in file order.
+ * </p>
+ */
+final class ParallelTableLoader {
+    /**
+     * The size from which a file is worth loading in parallel, in bytes. Smaller files load faster on one thread.
+     */
+    static final long MIN_FILE_SIZE = 4L << 20;
+    /**
+     * The smallest chunk a file is cut into, in bytes.
+     */
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    /**
+     * The number of chunks created per thread of the fork-join pool, so that threads finishing early can steal work.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * The entries parsed from a single chunk of the file.
+     *
+     * @param entries the entries parsed from the chunk, in file order
+     * @param failure the exception that stopped the chunk from being parsed to its end, or null if there was none
+     * @param <T>     the type of entries in the table
+     */
+    record ParsedChunk<T extends AbstractTableEntry>(List<T> entries, RuntimeException failure) {
+    }
+
+    /**
+     * This class only holds static methods.
+     */
+    private ParallelTableLoader() {
+    }
+
+    /**
+     * Checks if a file is small enough to be mapped at once, and large enough to be worth loading in parallel.
+     *
+     * @param size the size of the file, in bytes
+     * @return true if the file should be loaded in parallel, false otherwise
+     */
+    static boolean isWorthwhile(long size) {
+        return size >= MIN_FILE_SIZE && size <= Integer.MAX_VALUE
+                && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    /**
+     * Parses every entry of a CSV file, skipping its header line.
+     * Each chunk is parsed with templates created by its own empty copy of the table,
+     * so that the table being loaded is never touched from another thread.
+     *
+     * @param table the table the entries are loaded for
+     * @param path  the path of the CSV file
+     * @param <T>   the type of entries in the table
+     * @return the parsed chunks, in file order
+     * @throws IOException if the file could not be mapped
+     */
+    static <T extends AbstractTableEntry> List<ParsedChunk<T>> parse(AbstractTable<T> table, Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed.
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        List<int[]> chunks = split(buffer, skipLine(buffer, 0));
+        return chunks.parallelStream()
+                .map(chunk -> parseChunk(table, buffer, chunk[0], chunk[1]))
+                .toList();
+    }
+
+    /**
+     * Cuts the file into chunks, each ending right after a line break or at the end of the file.
+     *
+     * @param buffer the mapped file
+     * @param start  the position of the first entry, right after the header line
+     * @return the start (inclusive) and end (exclusive) of each chunk, in file order
+     */
+    private static List<int[]> split(MappedByteBuffer buffer, int start) {
+        int size = buffer.limit();
+        int chunkCount = ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_THREAD;
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (size - start) / chunkCount);
+        List<int[]> chunks = new ArrayList<>();
+        int from = start;
+        while (from < size) {
+            int to = (int) Math.min((long) from + chunkSize, size);
+            while (to < size && buffer.get(to - 1) != '\n') {
+                to++;
+            }
+            chunks.add(new int[]{from, to});
+            from = to;
+        }
+        return chunks;
+    }
+
+    /**
+     * Parses every line in a chunk of the file into an entry. Lines are terminated by "\n", "\r" or "\r\n",
+     * exactly as with BufferedReader.readLine(). If a line cannot be parsed, the entries parsed before it
+     * are returned along with the exception, as the sequential loader would have stopped at the same line.
+     *
+     * @param table  the table the entries are loaded for
+     * @param buffer the mapped file
+     * @param from   the start of the chunk, inclusive
+     * @param to     the end of the chunk, exclusive
+     * @param <T>    the type of entries in the table
+     * @return the entries parsed from the chunk
+     */
+    private static <T extends AbstractTableEntry> ParsedChunk<T> parseChunk(AbstractTable<T> table, MappedByteBuffer buffer, int from, int to) {
+        AbstractTable<T> scratch = table.createEmpty();
+        CSVTokenizer fields = new CSVTokenizer();
+        List<T> entries = new ArrayList<>();
+        byte[] bytes = new byte[256];
+        int position = from;
+        try {
+            while (position < to) {
+                int end = position;
+                byte b;
+                while (end < to && (b = buffer.get(end)) != '\n' && b != '\r') {
+                    end++;
+                }
+                int length = end - position;
+                if (length > bytes.length) {
+                    bytes = new byte[Math.max(length, bytes.length * 2)];
+                }
+                buffer.get(position, bytes, 0, length);
+                String line = new String(bytes, 0, length, StandardCharsets.UTF_8);
+
+                T entry = scratch.createValidEntryTemplate();
+                entry.loadFields(fields.reset(line));
+                entry.cacheCSVLine(line);
+                entries.add(entry);
+
+                position = skipLineSeparator(buffer, end, to);
+            }
+        } catch (RuntimeException e) {
+            return new ParsedChunk<>(entries, e);
+        }
+        return new ParsedChunk<>(entries, null);
+    }
+
+    /**
+     * Finds the start of the line following the one starting at the given position.
+     *
+     * @param buffer   the mapped file
+     * @param position the start of a line
+     * @return the start of the next line, or the end of the file if there is none
+     */
+    private static int skipLine(MappedByteBuffer buffer, int position) {
+        int size = buffer.limit();
+        byte b;
+        while (position < size && (b = buffer.get(position)) != '\n' && b != '\r') {
+            position++;
+        }
+        return skipLineSeparator(buffer, position, size);
+    }
+
+    /**
+     * Skips the line separator at the given position, if any.
+     *
+     * @param buffer   the mapped file
+     * @param position the position of a line separator, or of the end
+     * @param end      the position not to read past
+     * @return the position right after the line separator
+     */
+    private static int skipLineSeparator(MappedByteBuffer buffer, int position, int end) {
+        if (position >= end) {
+            return position;
+        }
+        if (buffer.get(position) == '\r') {
+            position++;
+            // A "\r\n" pair is a single line separator.
+            if (position < end && buffer.get(position) == '\n') {
+                position++;
+            }
+            return position;
+        }
+        return position + 1;
+    }
+}
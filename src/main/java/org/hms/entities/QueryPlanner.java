@@ -0,0 +1,251 @@
+package org.hms.entities;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Chooses how a {@link TableQuery} reads its candidate entries from a table.
+ * <p>
+ * Every equality condition whose key extractor is indexed is a possible access path. Its cost is estimated
+ * from the cardinality statistics the {@link SecondaryIndex} maintains: the exact number of entries holding
+ * the key, so that a doctor with thousands of records is not mistaken for one with a handful. The planner then:
+ * <ol>
+ *     <li>drives the query from the most selective index, if it keeps less than half of the table;</li>
+ *     <li>intersects its IDs with those of every other index that also keeps less than half of the table,
+ *     since, assuming the keys are independent, each such intersection discards at least half of the candidates
+ *     before any entry is resolved;</li>
+ *     <li>otherwise, scans the whole table, which is cheaper than resolving most of the table through an index.</li>
+ * </ol>
+ * In every case, all conditions are still tested on the candidates in a single fused pass,
+ * so the plan only affects how fast a query runs, never its results.
+ * </p>
+ */
+final class QueryPlanner {
+    /**
+     * The largest fraction of the table an index may select for it to be used rather than a full scan.
+     */
+    private static final double MAX_INDEX_SELECTIVITY = 0.5;
+
+    /**
+     * An equality condition that can be answered by an index, along with its estimated number of matches.
+     *
+     * @param index    the index registered with the condition's key extractor
+     * @param keys     the keys the condition matches
+     * @param estimate the number of entries the index holds under the keys
+     * @param <T>      the type of entries in the table
+     */
+    private record IndexAccess<T extends AbstractTableEntry>(SecondaryIndex<T, Object> index, Collection<Object> keys, int estimate) {
+        /**
+         * Reads the IDs of the entries holding any of the keys from the index.
+         *
+         * @return the IDs, in ascending order
+         */
+        Collection<Integer> lookup() {
+            if (keys.size() == 1) {
+                return index.lookup(keys.iterator().next());
+            }
+            TreeSet<Integer> ids = new TreeSet<>();
+            for (Object key : keys) {
+                ids.addAll(index.lookup(key));
+            }
+            return ids;
+        }
+
+        /**
+         * Describes this access path for {@link Plan#explain()}.
+         *
+         * @param tableSize the number of entries in the table
+         * @return a one line description of the access path
+         */
+        String describe(int tableSize) {
+            String condition = keys.size() == 1 ? " = " + keys.iterator().next() : " IN " + keys;
+            return index.getName() + condition + " (estimated " + estimate + " of " + tableSize
+                    + " entries, " + index.distinctKeys() + " distinct keys)";
+        }
+    }
+
+    /**
+     * The access path chosen for a query.
+     *
+     * @param <T> the type of entries in the table
+     */
+    static final class Plan<T extends AbstractTableEntry> {
+        /**
+         * The table the plan reads from.
+         */
+        private final AbstractTable<T> table;
+        /**
+         * The index the candidates are read from, or null for a full scan.
+         */
+        private final IndexAccess<T> driver;
+        /**
+         * The indexes the driving IDs are intersected with, most selective first.
+         */
+        private final List<IndexAccess<T>> intersections;
+        /**
+         * The indexed conditions that were not worth using, kept for {@link #explain()}.
+         */
+        private final List<IndexAccess<T>> skipped;
+        /**
+         * The number of conditions tested on every candidate.
+         */
+        private final int conditionCount;
+
+        /**
+         * Creates a plan.
+         *
+         * @param table          the table the plan reads from
+         * @param driver         the index the candidates are read from, or null for a full scan
+         * @param intersections  the indexes the driving IDs are intersected with
+         * @param skipped        the indexed conditions that were not worth using
+         * @param conditionCount the number of conditions tested on every candidate
+         */
+        private Plan(AbstractTable<T> table, IndexAccess<T> driver, List<IndexAccess<T>> intersections,
+                     List<IndexAccess<T>> skipped, int conditionCount) {
+            this.table = table;
+            this.driver = driver;
+            this.intersections = intersections;
+            this.skipped = skipped;
+            this.conditionCount = conditionCount;
+        }
+
+        /**
+         * Checks if the plan reads the whole table.
+         *
+         * @return true for a full scan, false if the candidates come from an index
+         */
+        boolean isFullScan() {
+            return driver == null;
+        }
+
+        /**
+         * Reads the candidate entries of the query.
+         *
+         * @return the candidates, in TableEntryID order
+         */
+        List<T> candidates() {
+            if (driver == null) {
+                return table.viewEntries();
+            }
+            Collection<Integer> ids = driver.lookup();
+            for (IndexAccess<T> other : intersections) {
+                ids = intersect(ids, other.lookup());
+            }
+            return table.resolveIDs(ids);
+        }
+
+        /**
+         * Intersects two collections of IDs by merging them, since both are in ascending order.
+         *
+         * @param ids      the IDs kept so far, in ascending order
+         * @param otherIDs the IDs selected by another index, in ascending order
+         * @return the IDs found in both collections, in ascending order
+         */
+        private static List<Integer> intersect(Collection<Integer> ids, Collection<Integer> otherIDs) {
+            List<Integer> kept = new ArrayList<>(Math.min(ids.size(), otherIDs.size()));
+            Iterator<Integer> left = ids.iterator();
+            Iterator<Integer> right = otherIDs.iterator();
+            if (!left.hasNext() || !right.hasNext()) {
+                return kept;
+            }
+            int a = left.next();
+            int b = right.next();
+            while (true) {
+                if (a < b) {
+                    if (!left.hasNext()) {
+                        return kept;
+                    }
+                    a = left.next();
+                } else if (b < a) {
+                    if (!right.hasNext()) {
+                        return kept;
+                    }
+                    b = right.next();
+                } else {
+                    kept.add(a);
+                    if (!left.hasNext() || !right.hasNext()) {
+                        return kept;
+                    }
+                    a = left.next();
+                    b = right.next();
+                }
+            }
+        }
+
+        /**
+         * Describes the plan, one step per line, from the access path to the filter.
+         *
+         * @return a human-readable description of the plan
+         */
+        String explain() {
+            int tableSize = table.size();
+            StringBuilder out = new StringBuilder();
+            if (driver == null) {
+                out.append("FULL SCAN (").append(tableSize).append(" entries)");
+            } else {
+                out.append("INDEX LOOKUP ").append(driver.describe(tableSize));
+            }
+            for (IndexAccess<T> other : intersections) {
+                out.append(System.lineSeparator()).append("  INTERSECT ").append(other.describe(tableSize));
+            }
+            for (IndexAccess<T> other : skipped) {
+                out.append(System.lineSeparator()).append("  SKIPPED INDEX ").append(other.describe(tableSize));
+            }
+            out.append(System.lineSeparator()).append("  FILTER ").append(conditionCount).append(" condition(s) in one pass");
+            return out.toString();
+        }
+    }
+
+    /**
+     * This class only holds static methods.
+     */
+    private QueryPlanner() {
+    }
+
+    /**
+     * Plans a query over a table.
+     *
+     * @param table          the table to query
+     * @param equalities     the equality conditions of the query
+     * @param conditionCount the total number of conditions of the query
+     * @param <T>            the type of entries in the table
+     * @return the cheapest plan found
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends AbstractTableEntry> Plan<T> plan(AbstractTable<T> table, List<TableQuery.Equality<T, ?>> equalities, int conditionCount) {
+        List<IndexAccess<T>> accesses = new ArrayList<>();
+        for (TableQuery.Equality<T, ?> equality : equalities) {
+            SecondaryIndex<T, Object> index = (SecondaryIndex<T, Object>) table.findIndex(equality.keyExtractor());
+            if (index != null) {
+                Collection<Object> keys = (Collection<Object>) equality.keyValues();
+                int estimate = 0;
+                for (Object key : keys) {
+                    estimate += index.count(key);
+                }
+                accesses.add(new IndexAccess<>(index, keys, estimate));
+            }
+        }
+        accesses.sort(Comparator.comparingInt(IndexAccess::estimate));
+
+        int maxEstimate = (int) (table.size() * MAX_INDEX_SELECTIVITY);
+        IndexAccess<T> driver = null;
+        List<IndexAccess<T>> intersections = new ArrayList<>();
+        List<IndexAccess<T>> skipped = new ArrayList<>();
+        for (IndexAccess<T> access : accesses) {
+            // An empty index hit is always worth using, as it proves the query has no result.
+            boolean selective = access.estimate() == 0 || access.estimate() < maxEstimate;
+            if (driver == null && selective) {
+                driver = access;
+            } else if (driver != null && driver.estimate() > 0 && selective) {
+                intersections.add(access);
+            } else {
+                skipped.add(access);
+            }
+        }
+        return new Plan<>(table, driver, intersections, skipped, conditionCount);
+    }
+}
@@ -0,0 +1,202 @@
+package org.hms.entities;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * A secondary index over the entries of an {@link AbstractTable}.
+ * <p>
+ * The index maps the key extracted from each entry to the set of tableEntryIDs that share that key.
+ * A hash index supports exact lookups, while a sorted index additionally supports range lookups.
+ * Since entries are often mutated in place before being passed to {@link AbstractTable#replaceEntry},
+ * the index remembers the key each entry was last indexed under, so it can always unlink the stale key.
+ * An entry whose key is changed in place and that is not passed to replaceEntry keeps its stale key until
+ * the table is next saved, when {@link #refresh(AbstractTableEntry)} moves it under its current key.
+ * </p>
+ *
+ * @param <T> the type of entries in the table
+ * @param <K> the type of the key used for indexing
+ */
+final class SecondaryIndex<T extends AbstractTableEntry, K> {
+    /**
+     * The name this index was registered under.
+     */
+    private final String name;
+    /**
+     * The function used to extract the indexed key from an entry.
+     */
+    private final Function<T, K> keyExtractor;
+    /**
+     * Maps each key to the IDs of the entries holding that key. IDs are kept in ascending order.
+     */
+    private final Map<K, TreeSet<Integer>> idsByKey;
+    /**
+     * Maps each indexed tableEntryID to the key it was last indexed under.
+     */
+    private final Map<Integer, K> keyById;
+
+    /**
+     * Creates an empty secondary index.
+     *
+     * @param name         the name of the index
+     * @param keyExtractor the function used to extract the indexed key from an entry
+     * @param sorted       true to keep keys in their natural order, allowing range lookups
+     */
+    SecondaryIndex(String name, Function<T, K> keyExtractor, boolean sorted) {
+        this.name = name;
+        this.keyExtractor = keyExtractor;
+        this.idsByKey = sorted ? new TreeMap<>() : new HashMap<>();
+        this.keyById = new HashMap<>();
+    }
+
+    /**
+     * Retrieves the name this index was registered under.
+     *
+     * @return the name of the index
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Retrieves the function used to extract the indexed key from an entry.
+     *
+     * @return the key extractor of the index
+     */
+    Function<T, K> getKeyExtractor() {
+        return keyExtractor;
+    }
+
+    /**
+     * Checks if the index keeps its keys in natural order.
+     *
+     * @return true if this is a sorted index, false if it is a hash index
+     */
+    boolean isSorted() {
+        return idsByKey instanceof NavigableMap;
+    }
+
+    /**
+     * Adds an entry to the index under its current key.
+     * Entries with a null key are not indexed, as they can never be searched for.
+     *
+     * @param entry the entry to index
+     */
+    void add(T entry) {
+        K key = keyExtractor.apply(entry);
+        if (key == null) {
+            return;
+        }
+        idsByKey.computeIfAbsent(key, k -> new TreeSet<>()).add(entry.getTableEntryID());
+        keyById.put(entry.getTableEntryID(), key);
+    }
+
+    /**
+     * Removes the entry with the given ID from the index, using the key it was last indexed under.
+     *
+     * @param tableEntryID the ID of the entry to remove
+     */
+    void remove(int tableEntryID) {
+        K key = keyById.remove(tableEntryID);
+        if (key == null) {
+            return;
+        }
+        TreeSet<Integer> ids = idsByKey.get(key);
+        ids.remove(tableEntryID);
+        if (ids.isEmpty()) {
+            idsByKey.remove(key);
+        }
+    }
+
+    /**
+     * Moves an entry under its current key, if that key differs from the one it was last indexed under.
+     *
+     * @param entry the entry to re-index
+     */
+    void refresh(T entry) {
+        K key = keyExtractor.apply(entry);
+        if (!Objects.equals(key, keyById.get(entry.getTableEntryID()))) {
+            remove(entry.getTableEntryID());
+            add(entry);
+        }
+    }
+
+    /**
+     * Removes every entry from the index.
+     */
+    void clear() {
+        idsByKey.clear();
+        keyById.clear();
+    }
+
+    /**
+     * Retrieves the IDs of the entries holding exactly the given key.
+     * The IDs are copied, so the result stays valid once the lock of the table is released.
+     *
+     * @param key the key to look up
+     * @return an unmodifiable list of the IDs of the matching entries in ascending order, possibly empty
+     */
+    List<Integer> lookup(K key) {
+        TreeSet<Integer> ids = idsByKey.get(key);
+        return ids == null ? List.of() : List.copyOf(ids);
+    }
+
+    /**
+     * Counts the entries holding exactly the given key, without copying their IDs.
+     * This is the per-key cardinality used by the query planner, so skewed keys are estimated exactly.
+     *
+     * @param key the key to count
+     * @return the number of indexed entries holding the key
+     */
+    int count(K key) {
+        TreeSet<Integer> ids = idsByKey.get(key);
+        return ids == null ? 0 : ids.size();
+    }
+
+    /**
+     * Counts the distinct keys currently in the index.
+     *
+     * @return the number of distinct keys
+     */
+    int distinctKeys() {
+        return idsByKey.size();
+    }
+
+    /**
+     * Counts the entries currently in the index. Entries with a null key are not indexed, and not counted.
+     *
+     * @return the number of indexed entries
+     */
+    int size() {
+        return keyById.size();
+    }
+
+    /**
+     * Retrieves the IDs of the entries whose key lies within the given inclusive range.
+     * The IDs are grouped by key in ascending key order. Only valid on a sorted index.
+     *
+     * @param from the lowest key to include
+     * @param to   the highest key to include
+     * @return the IDs of the matching entries, possibly empty
+     * @throws IllegalStateException if this is not a sorted index
+     */
+    Collection<Integer> lookupRange(K from, K to) {
+        if (!isSorted()) {
+            throw new IllegalStateException("Index " + name + " does not support range lookups");
+        }
+        NavigableMap<K, TreeSet<Integer>> range = ((NavigableMap<K, TreeSet<Integer>>) idsByKey).subMap(from, true, to, true);
+        Collection<Integer> ids = new ArrayList<>();
+        for (TreeSet<Integer> group : range.values()) {
+            ids.addAll(group);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,132 @@
+package org.hms.entities;
+
+import org.hms.utils.DurableFiles;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.BiConsumer;
+
+/**
+ * An append-only journal of the mutations made to an {@link AbstractTable} since its last checkpoint.
+ * <p>
+ * Each mutation is stored as a single line, made of a one character operation code, a comma,
+ * and a payload. For inserts and updates the payload is the CSV string of the entry,
+ * for deletes it is the tableEntryID of the removed entry.
+ * The journal is emptied whenever the table writes a full CSV snapshot of itself.
+ * </p>
+ */
+final class TableJournal {
+    /**
+     * Operation code for an entry added to the table.
+     */
+    static final char INSERT = 'I';
+    /**
+     * Operation code for an entry replaced in the table.
+     */
+    static final char UPDATE = 'U';
+    /**
+     * Operation code for an entry removed from the table.
+     */
+    static final char DELETE = 'D';
+    /**
+     * The bytes written after every record.
+     */
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * The path of the journal file.
+     */
+    private final Path path;
+    /**
+     * The number of records after which the owning table should write a checkpoint.
+     */
+    private final int checkpointInterval;
+    /**
+     * The number of records appended since the last checkpoint.
+     */
+    private int pendingRecords;
+
+    /**
+     * Creates a journal stored at the given path.
+     *
+     * @param path               the path of the journal file
+     * @param checkpointInterval the number of records after which a checkpoint is due
+     * @throws IllegalArgumentException if checkpointInterval is not positive
+     */
+    TableJournal(String path, int checkpointInterval) {
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        this.path = Paths.get(path);
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Appends a record to the end of the journal.
+     *
+     * @param operation the operation code of the record
+     * @param payload   the UTF-8 bytes of the payload of the record
+     * @throws IOException if the record could not be written
+     */
+    void append(char operation, byte[] payload) throws IOException {
+        byte[] record = new byte[2 + payload.length + LINE_SEPARATOR.length];
+        record[0] = (byte) operation;
+        record[1] = ',';
+        System.arraycopy(payload, 0, record, 2, payload.length);
+        System.arraycopy(LINE_SEPARATOR, 0, record, 2 + payload.length, LINE_SEPARATOR.length);
+        DurableFiles.append(path, record);
+        pendingRecords++;
+    }
+
+    /**
+     * Checks if enough records have been appended that the table should write a checkpoint.
+     *
+     * @return true if a checkpoint is due, false otherwise
+     */
+    boolean isCheckpointDue() {
+        return pendingRecords >= checkpointInterval;
+    }
+
+    /**
+     * Empties the journal. This must only be called once a snapshot containing every
+     * journaled mutation has been written.
+     *
+     * @throws IOException if the journal could not be emptied
+     */
+    void truncate() throws IOException {
+        Files.deleteIfExists(path);
+        pendingRecords = 0;
+    }
+
+    /**
+     * Replays every record in the journal, in the order they were appended.
+     * A malformed record, such as one torn by a crash while it was being written, is skipped.
+     *
+     * @param handler receives the operation code and payload of each record
+     * @throws IOException if the journal could not be read
+     */
+    void replay(BiConsumer<Character, String> handler) throws IOException {
+        pendingRecords = 0;
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.length() < 2 || line.charAt(1) != ',') {
+                    continue;
+                }
+                try {
+                    handler.accept(line.charAt(0), line.substring(2));
+                } catch (RuntimeException e) {
+                    continue;
+                }
+                pendingRecords++;
+            }
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package org.hms.entities;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A lazy, composable query over the entries of an {@link AbstractTable}, created by {@link AbstractTable#query()}.
+ * <p>
+ * Conditions added with {@code where}, the ordering and the limit are only recorded. Nothing is read from the
+ * table until a terminal operation such as {@link #toList()} or {@link #toTable()} is called, at which point every
+ * condition is tested in a single pass over the candidate entries. Unlike chaining
+ * {@link AbstractTable#filterByAttribute}, no intermediate table is built between conditions.
+ * </p>
+ * <p>
+ * Equality conditions using a key extractor the table has an index for let the {@link QueryPlanner} read the
+ * candidates from the most selective of those indexes, instead of scanning the whole table, as described by
+ * {@link #explain()}. Without an ordering, entries are returned in TableEntryID order.
+ * </p>
+ * <p>
+ * Terminal operations run under the read lock of the table, like its searches, so they run concurrently with
+ * other readers but not with writers. Conditions must not mutate the table, which would deadlock.
+ * The entries returned are those of the table, so mutating them <b>WILL MUTATE THE ENTRIES IN THE TABLE</b>.
+ * </p>
+ *
+ * @param <T> the type of entries in the table
+ */
+public final class TableQuery<T extends AbstractTableEntry> {
+    /**
+     * The table being queried.
+     */
+    private final AbstractTable<T> table;
+    /**
+     * The conditions an entry must all satisfy to be returned, in the order they were added.
+     */
+    private final List<Predicate<? super T>> conditions = new ArrayList<>();
+    /**
+     * The equality conditions, kept apart so that one of them can be answered by an index.
+     */
+    private final List<Equality<T, ?>> equalities = new ArrayList<>();
+    /**
+     * The order in which matching entries are returned, or null to keep TableEntryID order.
+     */
+    private Comparator<T> order;
+    /**
+     * The maximum number of entries returned, or -1 if there is no limit.
+     */
+    private int limit = -1;
+
+    /**
+     * An equality condition on an extracted key, which the key must satisfy for at least one of its values.
+     *
+     * @param keyExtractor the function extracting the key from an entry
+     * @param keyValues    the values the key may be equal to, without duplicates
+     * @param <T>          the type of entries in the table
+     * @param <U>          the type of the key
+     */
+    record Equality<T extends AbstractTableEntry, U>(Function<T, U> keyExtractor, Collection<U> keyValues) {
+    }
+
+    /**
+     * Creates a query matching every entry of the table.
+     *
+     * @param table the table to query
+     */
+    TableQuery(AbstractTable<T> table) {
+        this.table = table;
+    }
+
+    /**
+     * Only keeps the entries whose extracted key is equal to the given value.
+     * Passing the key extractor constant an index was registered with lets the query use that index.
+     *
+     * @param keyExtractor a function that extracts the key from an entry
+     * @param keyValue     the value to match against
+     * @param <U>          the type of the key
+     * @return this query
+     * @throws IllegalArgumentException if keyExtractor or keyValue is null
+     */
+    public <U> TableQuery<T> where(Function<T, U> keyExtractor, U keyValue) {
+        if (keyExtractor == null || keyValue == null) {
+            throw new IllegalArgumentException("Key extractor and key value cannot be null");
+        }
+        equalities.add(new Equality<>(keyExtractor, List.of(keyValue)));
+        conditions.add(entry -> keyValue.equals(keyExtractor.apply(entry)));
+        return this;
+    }
+
+    /**
+     * Only keeps the entries whose extracted key is equal to one of the given values.
+     * Like {@link #where(Function, Object)}, passing the key extractor constant an index was registered with
+     * lets the query use that index, reading the entries of every value from it.
+     *
+     * @param keyExtractor a function that extracts the key from an entry
+     * @param keyValues    the values to match against
+     * @param <U>          the type of the key
+     * @return this query
+     * @throws IllegalArgumentException if keyExtractor or keyValues is null, or keyValues contains null
+     */
+    public <U> TableQuery<T> whereIn(Function<T, U> keyExtractor, Collection<U> keyValues) {
+        if (keyExtractor == null || keyValues == null) {
+            throw new IllegalArgumentException("Key extractor and key values cannot be null");
+        }
+        Set<U> values = new LinkedHashSet<>(keyValues);
+        if (values.contains(null)) {
+            throw new IllegalArgumentException("Key values cannot be null");
+        }
+        equalities.add(new Equality<>(keyExtractor, values));
+        conditions.add(entry -> values.contains(keyExtractor.apply(entry)));
+        return this;
+    }
+
+    /**
+     * Only keeps the entries satisfying the given condition.
+     *
+     * @param condition the condition to test each entry against
+     * @return this query
+     * @throws IllegalArgumentException if condition is null
+     */
+    public TableQuery<T> where(Predicate<? super T> condition) {
+        if (condition == null) {
+            throw new IllegalArgumentException("Condition cannot be null");
+        }
+        conditions.add(condition);
+        return this;
+    }
+
+    /**
+     * Orders the matching entries by the natural order of an extracted key. Calling this again
+     * breaks ties with the new key. Entries with equal keys stay in TableEntryID order.
+     *
+     * @param keyExtractor a function that extracts a comparable key from an entry
+     * @param <U>          the type of the key
+     * @return this query
+     * @throws IllegalArgumentException if keyExtractor is null
+     */
+    public <U extends Comparable<? super U>> TableQuery<T> orderBy(Function<T, U> keyExtractor) {
+        if (keyExtractor == null) {
+            throw new IllegalArgumentException("Key extractor cannot be null");
+        }
+        Comparator<T> byKey = Comparator.comparing(keyExtractor);
+        order = order == null ? byKey : order.thenComparing(byKey);
+        return this;
+    }
+
+    /**
+     * Returns at most the given number of matching entries. Without an ordering,
+     * the query stops reading the table as soon as enough entries have matched.
+     *
+     * @param maxEntries the maximum number of entries to return
+     * @return this query
+     * @throws IllegalArgumentException if maxEntries is negative
+     */
+    public TableQuery<T> limit(int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative");
+        }
+        limit = maxEntries;
+        return this;
+    }
+
+    /**
+     * Runs the query.
+     *
+     * @return the matching entries, ordered and limited as requested
+     */
+    public List<T> toList() {
+        // Without an ordering, the first matches are the ones kept, so the scan can stop early.
+        int stopAfter = order == null ? limit : -1;
+        List<T> results = table.readLocked(() -> {
+            List<T> matches = new ArrayList<>();
+            if (stopAfter != 0) {
+                for (T entry : candidates()) {
+                    if (matches(entry)) {
+                        matches.add(entry);
+                        if (matches.size() == stopAfter) {
+                            break;
+                        }
+                    }
+                }
+            }
+            return matches;
+        });
+        if (order != null) {
+            results.sort(order);
+            if (limit >= 0 && results.size() > limit) {
+                results = new ArrayList<>(results.subList(0, limit));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Runs the query, and retrieves its first result.
+     *
+     * @return the first matching entry, or null if no entry matches
+     */
+    public T findFirst() {
+        if (order == null) {
+            if (limit == 0) {
+                return null;
+            }
+            return table.readLocked(() -> {
+                for (T entry : candidates()) {
+                    if (matches(entry)) {
+                        return entry;
+                    }
+                }
+                return null;
+            });
+        }
+        List<T> results = toList();
+        return results.isEmpty() ? null : results.getFirst();
+    }
+
+    /**
+     * Runs the query, and counts its results without collecting them.
+     *
+     * @return the number of matching entries, at most the limit
+     */
+    public int count() {
+        return table.readLocked(() -> {
+            int count = 0;
+            for (T entry : candidates()) {
+                if (limit >= 0 && count == limit) {
+                    break;
+                }
+                if (matches(entry)) {
+                    count++;
+                }
+            }
+            return count;
+        });
+    }
+
+    /**
+     * Runs the query, and checks if it has any result.
+     *
+     * @return true if at least one entry matches, false otherwise
+     */
+    public boolean exists() {
+        return findFirst() != null;
+    }
+
+    /**
+     * Runs the query, and retrieves the IDs of its results.
+     *
+     * @return the TableEntryIDs of the matching entries, in the order of the results
+     */
+    public List<Integer> ids() {
+        return toList().stream()
+                .map(AbstractTableEntry::getTableEntryID)
+                .toList();
+    }
+
+    /**
+     * Runs the query, and performs an action on each of its results.
+     *
+     * @param action the action to perform on each matching entry, which must not mutate the table
+     */
+    public void forEach(Consumer<? super T> action) {
+        toList().forEach(action);
+    }
+
+    /**
+     * Runs the query, and copies its results into a new in-memory table of the same kind,
+     * for callers that need a table, for instance to print it. The new table is not linked to a file.
+     * <p>
+     * Adding or deleting entries in the result table will not affect the original table.
+     * However, mutating the entries in the result table <b>WILL MUTATE THE ENTRIES IN THE ORIGINAL TABLE</b>.
+     * </p>
+     *
+     * @return a new table holding the matching entries
+     */
+    public AbstractTable<T> toTable() {
+        return table.copyOf(toList());
+    }
+
+    /**
+     * Describes how the query would currently be run: which index, if any, its candidates are read from,
+     * which other indexes they are intersected with, and how many conditions are then tested.
+     * The plan depends on the entries in the table, so it may change as the table does.
+     *
+     * @return a human-readable description of the query plan
+     * @see QueryPlanner
+     */
+    public String explain() {
+        return table.readLocked(() -> QueryPlanner.plan(table, equalities, conditions.size()).explain());
+    }
+
+    /**
+     * Chooses the entries the conditions are tested against, using the cheapest plan
+     * the {@link QueryPlanner} finds for the current contents of the table.
+     * Must only be called while holding the read lock of the table, through {@link AbstractTable#readLocked}.
+     *
+     * @return the candidate entries, in TableEntryID order
+     */
+    private List<T> candidates() {
+        return QueryPlanner.plan(table, equalities, conditions.size()).candidates();
+    }
+
+    /**
+     * Tests an entry against every condition of the query.
+     *
+     * @param entry the entry to test
+     * @return true if the entry satisfies every condition, false otherwise
+     */
+    private boolean matches(T entry) {
+        for (Predicate<? super T> condition : conditions) {
+            if (!condition.test(entry)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
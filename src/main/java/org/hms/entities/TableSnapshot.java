@@ -0,0 +1,126 @@
+package org.hms.entities;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list of the entries of an {@link AbstractTable}, returned by {@link AbstractTable#snapshot()}.
+ * <p>
+ * Which entries a snapshot holds, and in what order, never changes once it is published, so long-running readers
+ * such as reports and exports can walk it without holding any lock, while writers keep adding, removing and
+ * replacing entries of the table. The entries are stored in fixed-size segments,
+ * and a new snapshot shares every segment the writes since the previous one did not touch, so appending to or
+ * replacing entries in a large table only copies the segments involved.
+ * </p>
+ * <p>
+ * Only these structural changes are isolated. Snapshots hold the table's live entry objects, not copies, so a
+ * field changed in place through a setter, whether or not {@link AbstractTable#saveToFile()} is called afterwards,
+ * is seen by every snapshot holding that entry. Such a change is not made under any lock a snapshot reader takes,
+ * so a reader may see an entry with only some of its fields updated. Code that must not observe an entry change
+ * under it should change a copy of the entry and pass it to {@link AbstractTable#replaceEntry}, which leaves the
+ * entry held by existing snapshots untouched.
+ * </p>
+ *
+ * @param <T> the type of entries in the table
+ */
+public final class TableSnapshot<T extends AbstractTableEntry> extends AbstractList<T> implements RandomAccess {
+    /**
+     * The base 2 logarithm of the number of entries in a segment.
+     */
+    static final int SEGMENT_SHIFT = 9;
+    /**
+     * The number of entries in every segment but the last.
+     */
+    static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+
+    /**
+     * The segments holding the entries, each shared with other snapshots and never modified.
+     */
+    private final Object[][] segments;
+    /**
+     * The number of entries in the snapshot.
+     */
+    private final int size;
+    /**
+     * The version of the table this snapshot was taken at.
+     */
+    private final long version;
+
+    /**
+     * Creates a snapshot from its segments.
+     *
+     * @param segments the segments holding the entries, which must not be modified afterwards
+     * @param size     the number of entries
+     * @param version  the version of the table the snapshot was taken at
+     */
+    TableSnapshot(Object[][] segments, int size, long version) {
+        this.segments = segments;
+        this.size = size;
+        this.version = version;
+    }
+
+    /**
+     * Computes the number of segments needed to hold a number of entries.
+     *
+     * @param size the number of entries
+     * @return the number of segments
+     */
+    static int segmentCount(int size) {
+        return (size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT;
+    }
+
+    /**
+     * Retrieves a segment, so that a newer snapshot can share it.
+     *
+     * @param index the index of the segment
+     * @return the segment, which must not be modified
+     */
+    Object[] segment(int index) {
+        return segments[index];
+    }
+
+    /**
+     * Retrieves the number of segments of the snapshot.
+     *
+     * @return the number of segments
+     */
+    int getSegmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * Retrieves the version of the table this snapshot was taken at. Every mutation of the table
+     * creates a new version, so two snapshots with the same version hold the same entries.
+     *
+     * @return the version of the snapshot
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Retrieves the entry at the given position, in the order of the table when the snapshot was taken.
+     *
+     * @param index the position of the entry
+     * @return the entry at that position
+     * @throws IndexOutOfBoundsException if index is negative or not less than the size of the snapshot
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for snapshot of size " + size);
+        }
+        return (T) segments[index >>> SEGMENT_SHIFT][index & (SEGMENT_SIZE - 1)];
+    }
+
+    /**
+     * Retrieves the number of entries in the snapshot.
+     *
+     * @return the number of entries
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,197 @@
+package org.hms.entities;
+
+import org.hms.utils.DurableFiles;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A transaction spanning one or more {@link AbstractTable}s.
+ * <p>
+ * While a table takes part in a transaction, its mutations are applied in memory only, and nothing
+ * is written to its linked file. On {@link #commit()}, every table that was modified is written
+ * exactly once: all new files are first written next to their targets, and only once all of them
+ * have been written are they moved into place. On {@link #rollback()}, every table is restored
+ * to the state it had when the transaction began.
+ * </p>
+ * <p>
+ * A transaction belongs to the thread that began it, which must also commit or roll it back. It holds the write
+ * lock of each of its tables throughout, so other threads wait for it to end before reading or mutating them, and
+ * neither see its uncommitted changes nor have their own changes discarded by its rollback. Tables are locked
+ * in a fixed order, so that two transactions over the same tables cannot deadlock.
+ * </p>
+ * <p>
+ * Typical usage:
+ * <pre>{@code
+ * TableTransaction.run(() -> {
+ *     inventory.replaceEntry(entry);
+ *     requests.removeEntry(requestID);
+ * }, inventory, requests);
+ * }</pre>
+ * </p>
+ */
+public final class TableTransaction implements AutoCloseable {
+    /**
+     * A unit of work executed inside a transaction.
+     */
+    @FunctionalInterface
+    public interface Work {
+        /**
+         * Performs the work.
+         *
+         * @throws Exception if the work fails, which rolls the transaction back
+         */
+        void run() throws Exception;
+    }
+
+    /**
+     * The tables taking part in this transaction.
+     */
+    private final List<AbstractTable<?>> tables;
+    /**
+     * Whether the transaction has been committed or rolled back.
+     */
+    private boolean finished;
+
+    /**
+     * Creates a transaction over the given tables and enrolls each of them.
+     *
+     * @param tables the tables taking part in the transaction
+     */
+    private TableTransaction(AbstractTable<?>... tables) {
+        this.tables = new ArrayList<>();
+        List<AbstractTable<?>> ordered = new ArrayList<>(List.of(tables));
+        ordered.sort(Comparator.comparingInt(System::identityHashCode));
+        try {
+            for (AbstractTable<?> table : ordered) {
+                table.joinTransaction(this);
+                this.tables.add(table);
+            }
+        } catch (RuntimeException e) {
+            // Release the tables that were already enrolled before reporting the failure.
+            for (AbstractTable<?> table : this.tables) {
+                table.leaveTransaction();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Begins a transaction over the given tables.
+     *
+     * @param tables the tables taking part in the transaction
+     * @return the new transaction
+     * @throws IllegalStateException if any of the tables is already taking part in a transaction of the calling thread
+     */
+    public static TableTransaction begin(AbstractTable<?>... tables) {
+        return new TableTransaction(tables);
+    }
+
+    /**
+     * Runs the given work inside a transaction over the given tables. The transaction is committed
+     * if the work completes, and rolled back if it throws.
+     *
+     * @param work   the work to run
+     * @param tables the tables taking part in the transaction
+     * @throws Exception if the work fails, or the transaction could not be committed
+     */
+    public static void run(Work work, AbstractTable<?>... tables) throws Exception {
+        try (TableTransaction transaction = begin(tables)) {
+            work.run();
+            transaction.commit();
+        }
+    }
+
+    /**
+     * Writes every table modified during the transaction to its linked file, and ends the transaction.
+     * Each modified file is written once, to a temporary file next to it, and the temporary files
+     * are only moved into place once all of them have been written successfully.
+     *
+     * @throws IOException           if any file could not be written, in which case the transaction is rolled back
+     * @throws IllegalStateException if the transaction has already ended
+     */
+    public void commit() throws IOException {
+        ensureActive();
+        List<AbstractTable<?>> modified = new ArrayList<>();
+        for (AbstractTable<?> table : tables) {
+            if (table.isModifiedInTransaction() && table.isLinkedToFile()) {
+                modified.add(table);
+            }
+        }
+
+        List<Path> written = new ArrayList<>();
+        try {
+            for (AbstractTable<?> table : modified) {
+                Path temp = temporaryPathFor(table);
+                table.writeCSV(temp.toString());
+                written.add(temp);
+            }
+            for (int i = 0; i < modified.size(); i++) {
+                DurableFiles.move(written.get(i), Paths.get(modified.get(i).filePath));
+            }
+        } catch (IOException e) {
+            for (Path temp : written) {
+                Files.deleteIfExists(temp);
+            }
+            rollback();
+            throw e;
+        }
+
+        finished = true;
+        for (AbstractTable<?> table : tables) {
+            table.leaveTransaction();
+        }
+        for (AbstractTable<?> table : modified) {
+            table.onSnapshotWritten();
+        }
+    }
+
+    /**
+     * Discards every mutation made during the transaction, and ends the transaction.
+     *
+     * @throws IllegalStateException if the transaction has already ended
+     */
+    public void rollback() {
+        ensureActive();
+        finished = true;
+        for (AbstractTable<?> table : tables) {
+            table.rollbackTransaction();
+        }
+    }
+
+    /**
+     * Rolls the transaction back if it has neither been committed nor rolled back yet.
+     */
+    @Override
+    public void close() {
+        if (!finished) {
+            rollback();
+        }
+    }
+
+    /**
+     * Ensures the transaction has not been committed or rolled back yet.
+     *
+     * @throws IllegalStateException if the transaction has already ended
+     */
+    private void ensureActive() {
+        if (finished) {
+            throw new IllegalStateException("Transaction has already ended");
+        }
+    }
+
+    /**
+     * Retrieves the path of the temporary file a table is written to before being moved into place.
+     *
+     * @param table the table being committed
+     * @return the path of the temporary file
+     */
+    private static Path temporaryPathFor(AbstractTable<?> table) {
+        return Paths.get(table.filePath + ".tmp");
+    }
+}
@@ -0,0 +1,199 @@
+package org.hms.services.appointment;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Indexes the appointments of an {@link AppointmentService} by appointment ID, patient ID, doctor ID,
+ * and doctor ID together with status, so that looking up the appointments of a patient or a doctor
+ * does not scan the appointment history.
+ * <p>
+ * Each appointment is numbered in the order it was added, and every lookup returns appointments in that order,
+ * so iterating over a lookup visits the same appointments in the same order as scanning the full list would.
+ * The patient ID and appointment ID of an appointment never change, but its doctor ID and status do, and
+ * must only be changed through {@link #setDoctorID} and {@link #setStatus}, which keep the index in step.
+ * </p>
+ */
+final class AppointmentIndex {
+    /**
+     * The key of the appointments of a doctor with a given status.
+     *
+     * @param doctorID the ID of the doctor
+     * @param status   the status of the appointments
+     */
+    private record DoctorStatus(String doctorID, AppointmentStatus status) {
+    }
+
+    /**
+     * The number each indexed appointment was given when it was added.
+     */
+    private final Map<AppointmentInformation, Integer> positions = new IdentityHashMap<>();
+    /**
+     * The appointments with each appointment ID, which is normally one.
+     */
+    private final Map<Integer, NavigableMap<Integer, AppointmentInformation>> byAppointmentID = new HashMap<>();
+    /**
+     * The appointments of each patient.
+     */
+    private final Map<String, NavigableMap<Integer, AppointmentInformation>> byPatient = new HashMap<>();
+    /**
+     * The appointments of each doctor.
+     */
+    private final Map<String, NavigableMap<Integer, AppointmentInformation>> byDoctor = new HashMap<>();
+    /**
+     * The appointments of each doctor with each status.
+     */
+    private final Map<DoctorStatus, NavigableMap<Integer, AppointmentInformation>> byDoctorStatus = new HashMap<>();
+
+    /**
+     * Adds an appointment to the index, after every appointment added before it.
+     *
+     * @param appointment the appointment to add
+     */
+    void add(AppointmentInformation appointment) {
+        int position = positions.size();
+        positions.put(appointment, position);
+        bucket(byAppointmentID, appointment.getAppointmentID()).put(position, appointment);
+        bucket(byPatient, appointment.getPatientID()).put(position, appointment);
+        addToDoctor(appointment, position);
+    }
+
+    /**
+     * Changes the doctor of an indexed appointment.
+     *
+     * @param appointment the appointment
+     * @param doctorID    the ID of the new doctor
+     */
+    void setDoctorID(AppointmentInformation appointment, String doctorID) {
+        int position = removeFromDoctor(appointment);
+        appointment.setDoctorID(doctorID);
+        addToDoctor(appointment, position);
+    }
+
+    /**
+     * Changes the status of an indexed appointment.
+     *
+     * @param appointment the appointment
+     * @param status      the new status
+     */
+    void setStatus(AppointmentInformation appointment, AppointmentStatus status) {
+        int position = removeFromDoctor(appointment);
+        appointment.setAppointmentStatus(status);
+        addToDoctor(appointment, position);
+    }
+
+    /**
+     * Finds the appointments with an appointment ID.
+     *
+     * @param appointmentID the appointment ID
+     * @return the appointments with the ID, in the order they were added
+     */
+    Collection<AppointmentInformation> findByAppointmentID(int appointmentID) {
+        return view(byAppointmentID.get(appointmentID));
+    }
+
+    /**
+     * Finds the appointments of a patient.
+     *
+     * @param patientID the ID of the patient
+     * @return the appointments of the patient, in the order they were added
+     */
+    Collection<AppointmentInformation> findByPatient(String patientID) {
+        return view(byPatient.get(patientID));
+    }
+
+    /**
+     * Finds the appointments of a doctor.
+     *
+     * @param doctorID the ID of the doctor
+     * @return the appointments of the doctor, in the order they were added
+     */
+    Collection<AppointmentInformation> findByDoctor(String doctorID) {
+        return view(byDoctor.get(doctorID));
+    }
+
+    /**
+     * Finds the appointments of a doctor with a given status.
+     *
+     * @param doctorID the ID of the doctor
+     * @param status   the status of the appointments
+     * @return the matching appointments, in the order they were added
+     */
+    Collection<AppointmentInformation> findByDoctorAndStatus(String doctorID, AppointmentStatus status) {
+        return view(byDoctorStatus.get(new DoctorStatus(doctorID, status)));
+    }
+
+    /**
+     * Adds an appointment to the indexes that depend on its doctor and status.
+     *
+     * @param appointment the appointment
+     * @param position    the number of the appointment
+     */
+    private void addToDoctor(AppointmentInformation appointment, int position) {
+        bucket(byDoctor, appointment.getDoctorID()).put(position, appointment);
+        bucket(byDoctorStatus, new DoctorStatus(appointment.getDoctorID(), appointment.getAppointmentStatus()))
+                .put(position, appointment);
+    }
+
+    /**
+     * Removes an appointment from the indexes that depend on its doctor and status.
+     *
+     * @param appointment the appointment
+     * @return the number of the appointment
+     * @throws IllegalArgumentException if the appointment is not indexed
+     */
+    private int removeFromDoctor(AppointmentInformation appointment) {
+        Integer position = positions.get(appointment);
+        if (position == null) {
+            throw new IllegalArgumentException("Appointment " + appointment.getAppointmentID() + " is not indexed");
+        }
+        removeFromBucket(byDoctor, appointment.getDoctorID(), position);
+        removeFromBucket(byDoctorStatus, new DoctorStatus(appointment.getDoctorID(), appointment.getAppointmentStatus()), position);
+        return position;
+    }
+
+    /**
+     * Retrieves the appointments under a key of an index, creating an empty set of them if there are none.
+     *
+     * @param index the index
+     * @param key   the key
+     * @param <K>   the type of the keys of the index
+     * @return the appointments under the key, by number
+     */
+    private static <K> NavigableMap<Integer, AppointmentInformation> bucket(Map<K, NavigableMap<Integer, AppointmentInformation>> index, K key) {
+        return index.computeIfAbsent(key, k -> new TreeMap<>());
+    }
+
+    /**
+     * Removes an appointment from under a key of an index, dropping the key once it has no appointments left.
+     *
+     * @param index    the index
+     * @param key      the key
+     * @param position the number of the appointment
+     * @param <K>      the type of the keys of the index
+     */
+    private static <K> void removeFromBucket(Map<K, NavigableMap<Integer, AppointmentInformation>> index, K key, int position) {
+        NavigableMap<Integer, AppointmentInformation> bucket = index.get(key);
+        if (bucket != null) {
+            bucket.remove(position);
+            if (bucket.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Wraps the appointments under a key of an index as a read-only collection.
+     *
+     * @param bucket the appointments by number, or null if there are none
+     * @return the appointments, in the order they were added
+     */
+    private static Collection<AppointmentInformation> view(NavigableMap<Integer, AppointmentInformation> bucket) {
+        return bucket == null ? Collections.emptyList() : Collections.unmodifiableCollection(bucket.values());
+    }
+}
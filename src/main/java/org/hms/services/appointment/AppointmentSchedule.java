@@ -1,32 +1,156 @@
 package org.hms.services.appointment;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * The AppointmentSchedule class is responsible for storing and managing a scheduling matrix
  * which includes information about doctor IDs and their assigned time slots.
+ * <p>
+ * Each slot holds "available", "unavailable", or the ID of the patient occupying it. Rather than a matrix of
+ * strings, the schedule keeps dictionaries of its doctor IDs and time slots, so that finding the column of a doctor
+ * or the row of a time slot is a hash lookup, and stores each slot as an int code into a dictionary of occupants.
+ * Which slots are available is also kept as bitsets, one per doctor and one per time slot, so that checking a slot
+ * or finding a free doctor at a given time are bit operations.
+ * </p>
  */
 public class AppointmentSchedule {
     /**
-     * A 2D String array representing the scheduling matrix.
-     * This matrix holds information about doctor IDs and the corresponding time slots.
-     * The top row and leftmost column serve as headers for doctor IDs and time slots respectively.
+     * The value of a slot open for booking.
+     */
+    public static final String AVAILABLE = "available";
+    /**
+     * The value of a slot the doctor is not working.
      */
-    private String[][] matrix;  // Stores the schedule with doctor IDs and time slots included
+    public static final String UNAVAILABLE = "unavailable";
+    /**
+     * The label of the top-left cell of a new scheduling matrix.
+     */
+    private static final String HEADER_LABEL = "Time/Doctor";
+    /**
+     * The occupant code of an empty slot.
+     */
+    private static final int EMPTY_CODE = 0;
+    /**
+     * The occupant code of an available slot.
+     */
+    private static final int AVAILABLE_CODE = 1;
+    /**
+     * The occupant code of an unavailable slot.
+     */
+    private static final int UNAVAILABLE_CODE = 2;
+
+    /**
+     * The label of the top-left cell of the scheduling matrix.
+     */
+    private String headerLabel;
+    /**
+     * The doctor ID of each column.
+     */
+    private SlotDictionary doctors;
+    /**
+     * The time slot of each row.
+     */
+    private SlotDictionary timeSlots;
+    /**
+     * The occupant code of each slot, row by row.
+     */
+    private int[] occupants;
+    /**
+     * For each doctor, the rows where they are available.
+     */
+    private BitSet[] availableByDoctor;
+    /**
+     * For each time slot, the columns of the doctors available then.
+     */
+    private BitSet[] availableByTimeSlot;
+    /**
+     * The value of each occupant code, starting with those of empty, available and unavailable slots.
+     */
+    private final List<String> occupantValues = new ArrayList<>(List.of("", AVAILABLE, UNAVAILABLE));
+    /**
+     * Maps each slot value to its occupant code.
+     */
+    private final Map<String, Integer> occupantCodes = new HashMap<>(Map.of(AVAILABLE, AVAILABLE_CODE, UNAVAILABLE, UNAVAILABLE_CODE));
 
     /**
      * Constructs an AppointmentSchedule object with a specified number of doctors
-     * and time slots. The scheduling matrix is initialized with these dimensions,
-     * and the top-left cell is set as the header label.
+     * and time slots. Every slot starts empty, and doctor IDs and time slots are unset.
      *
      * @param numDoctors   the number of doctors to be included in the schedule
      * @param numTimeSlots the number of time slots to be included in the schedule
      */
-    // Constructor initializes the matrix with predefined dimensions
     public AppointmentSchedule(int numDoctors, int numTimeSlots) {
+        this.headerLabel = HEADER_LABEL;
+        resize(numDoctors, numTimeSlots);
+    }
+
+    /**
+     * Constructs a copy of another schedule. Changing either schedule afterwards does not change the other.
+     *
+     * @param other the schedule to copy
+     */
+    public AppointmentSchedule(AppointmentSchedule other) {
+        this.headerLabel = other.headerLabel;
+        this.doctors = new SlotDictionary(other.doctors);
+        this.timeSlots = new SlotDictionary(other.timeSlots);
+        this.occupants = other.occupants.clone();
+        this.availableByDoctor = new BitSet[other.availableByDoctor.length];
+        for (int col = 0; col < availableByDoctor.length; col++) {
+            availableByDoctor[col] = (BitSet) other.availableByDoctor[col].clone();
+        }
+        this.availableByTimeSlot = new BitSet[other.availableByTimeSlot.length];
+        for (int row = 0; row < availableByTimeSlot.length; row++) {
+            availableByTimeSlot[row] = (BitSet) other.availableByTimeSlot[row].clone();
+        }
+        occupantValues.clear();
+        occupantValues.addAll(other.occupantValues);
+        occupantCodes.putAll(other.occupantCodes);
+    }
+
+    /**
+     * Replaces every slot, doctor ID and time slot with empty ones.
+     *
+     * @param numDoctors   the number of doctors
+     * @param numTimeSlots the number of time slots
+     */
+    private void resize(int numDoctors, int numTimeSlots) {
+        // A schedule read from a missing file has no rows, and so -1 time slots and doctors.
+        numDoctors = Math.max(0, numDoctors);
+        numTimeSlots = Math.max(0, numTimeSlots);
+        doctors = new SlotDictionary(numDoctors);
+        timeSlots = new SlotDictionary(numTimeSlots);
+        occupants = new int[numDoctors * numTimeSlots];
+        availableByDoctor = new BitSet[numDoctors];
+        for (int col = 0; col < numDoctors; col++) {
+            availableByDoctor[col] = new BitSet(numTimeSlots);
+        }
+        availableByTimeSlot = new BitSet[numTimeSlots];
+        for (int row = 0; row < numTimeSlots; row++) {
+            availableByTimeSlot[row] = new BitSet(numDoctors);
+        }
+    }
 
-        this.matrix = new String[numTimeSlots + 1][numDoctors + 1];
-        this.matrix[0][0] = "Time/Doctor";  // Top-left cell as header label
+    /**
+     * Retrieves the number of doctors in the schedule.
+     *
+     * @return the number of doctor columns
+     */
+    public int getDoctorCount() {
+        return doctors.size();
     }
 
+    /**
+     * Retrieves the number of time slots in the schedule.
+     *
+     * @return the number of time slot rows
+     */
+    public int getTimeSlotCount() {
+        return timeSlots.size();
+    }
 
     /**
      * Sets the ID of a doctor in the scheduling matrix.
@@ -35,10 +159,9 @@ public class AppointmentSchedule {
      * @param doctorID A String representing the ID of the doctor to be set in the specified column.
      */
     public void setDoctorID(int col, String doctorID) {
-        matrix[0][col + 1] = doctorID;  // +1 to skip header cell
+        doctors.set(col, doctorID);
     }
 
-
     /**
      * Sets the time slot string at the specified row in the schedule matrix.
      *
@@ -46,22 +169,24 @@ public class AppointmentSchedule {
      * @param timeSlot the time slot string to be inserted into the matrix
      */
     public void setTimeSlot(int row, String timeSlot) {
-        matrix[row + 1][0] = timeSlot;  // +1 to skip header cell
+        timeSlots.set(row, timeSlot);
     }
 
-
     /**
      * Sets a value for a specific time slot and doctor in the scheduling matrix.
      *
      * @param timeSlotRow the row index of the time slot (0-based)
      * @param doctorCol   the column index of the doctor (0-based)
-     * @param value       the value to set in the slot
+     * @param value       the value to set in the slot, or null to empty it
      */
     public void setSlot(int timeSlotRow, int doctorCol, String value) {
-        matrix[timeSlotRow + 1][doctorCol + 1] = value;  // Adjust for headers
+        int code = encode(value);
+        occupants[slotIndex(timeSlotRow, doctorCol)] = code;
+        boolean available = code == AVAILABLE_CODE;
+        availableByDoctor[doctorCol].set(timeSlotRow, available);
+        availableByTimeSlot[timeSlotRow].set(doctorCol, available);
     }
 
-
     /**
      * Retrieves the doctor ID at the specified column index in the scheduling matrix.
      *
@@ -69,10 +194,9 @@ public class AppointmentSchedule {
      * @return The doctor ID located at the specified column index.
      */
     public String getDoctorID(int col) {
-        return matrix[0][col + 1];  // +1 to skip header cell
+        return doctors.get(col);
     }
 
-
     /**
      * Retrieves the time slot string at the specified row in the schedule matrix.
      *
@@ -80,38 +204,190 @@ public class AppointmentSchedule {
      * @return the time slot string associated with the specified row
      */
     public String getTimeSlot(int row) {
-        return matrix[row + 1][0];  // +1 to skip header cell
+        return timeSlots.get(row);
     }
 
-
     /**
      * Retrieves the value of a specific slot in the scheduling matrix.
      *
      * @param timeSlotRow The row index corresponding to the desired time slot (0-based).
      * @param doctorCol   The column index corresponding to the desired doctor (0-based).
-     * @return The value stored in the specified slot of the scheduling matrix.
+     * @return The value stored in the specified slot, or null if the slot is empty.
      */
     public String getSlot(int timeSlotRow, int doctorCol) {
-        return matrix[timeSlotRow + 1][doctorCol + 1];  // Adjust for headers
+        int code = occupants[slotIndex(timeSlotRow, doctorCol)];
+        return code == EMPTY_CODE ? null : occupantValues.get(code);
+    }
+
+    /**
+     * Finds the column of a doctor.
+     *
+     * @param doctorID the ID of the doctor
+     * @return the 0-based column of the doctor, or -1 if the doctor is not in the schedule
+     */
+    public int findDoctorColumn(String doctorID) {
+        return doctors.indexOf(doctorID);
+    }
+
+    /**
+     * Finds the row of a time slot.
+     *
+     * @param timeSlot the time slot, such as "11:00"
+     * @return the 0-based row of the time slot, or -1 if the time slot is not in the schedule
+     */
+    public int findTimeSlotRow(String timeSlot) {
+        return timeSlots.indexOf(timeSlot);
+    }
+
+    /**
+     * Checks if a slot is available for booking.
+     *
+     * @param timeSlotRow the 0-based row of the time slot
+     * @param doctorCol   the 0-based column of the doctor
+     * @return true if the slot is available, false otherwise
+     */
+    public boolean isAvailable(int timeSlotRow, int doctorCol) {
+        return availableByDoctor[doctorCol].get(timeSlotRow);
+    }
+
+    /**
+     * Checks if a doctor is available for booking at a time slot.
+     *
+     * @param doctorID the ID of the doctor
+     * @param timeSlot the time slot
+     * @return true if the doctor and time slot are in the schedule and the slot is available, false otherwise
+     */
+    public boolean isAvailable(String doctorID, String timeSlot) {
+        int doctorCol = findDoctorColumn(doctorID);
+        int timeSlotRow = findTimeSlotRow(timeSlot);
+        return doctorCol >= 0 && timeSlotRow >= 0 && isAvailable(timeSlotRow, doctorCol);
+    }
+
+    /**
+     * Finds a doctor available at a time slot.
+     *
+     * @param timeSlot the time slot
+     * @return the ID of the leftmost doctor available at the time slot, or null if there is none
+     */
+    public String findAvailableDoctor(String timeSlot) {
+        int timeSlotRow = findTimeSlotRow(timeSlot);
+        if (timeSlotRow < 0) {
+            return null;
+        }
+        int doctorCol = availableByTimeSlot[timeSlotRow].nextSetBit(0);
+        return doctorCol < 0 ? null : doctors.get(doctorCol);
+    }
+
+    /**
+     * Lists the doctors available at a time slot.
+     *
+     * @param timeSlot the time slot
+     * @return the IDs of the doctors available at the time slot, from left to right
+     */
+    public List<String> getAvailableDoctors(String timeSlot) {
+        List<String> available = new ArrayList<>();
+        int timeSlotRow = findTimeSlotRow(timeSlot);
+        if (timeSlotRow >= 0) {
+            BitSet columns = availableByTimeSlot[timeSlotRow];
+            for (int col = columns.nextSetBit(0); col >= 0; col = columns.nextSetBit(col + 1)) {
+                available.add(doctors.get(col));
+            }
+        }
+        return available;
     }
 
+    /**
+     * Finds the first available slot of a doctor at or after a row.
+     *
+     * @param doctorCol the 0-based column of the doctor
+     * @param fromRow   the 0-based row to start from
+     * @return the 0-based row of the first available slot, or -1 if there is none
+     */
+    public int nextAvailableTimeSlot(int doctorCol, int fromRow) {
+        return availableByDoctor[doctorCol].nextSetBit(fromRow);
+    }
 
     /**
      * Retrieves the scheduling matrix containing doctor IDs and their assigned time slots.
+     * The top row and leftmost column serve as headers for doctor IDs and time slots respectively.
+     * <p>
+     * The matrix is built on each call, so changing it does not change the schedule;
+     * use {@link #setMatrix(String[][])} or {@link #setSlot(int, int, String)} instead.
+     * </p>
      *
      * @return A 2D String array representing the schedule with doctor IDs and time slots.
      */
     public String[][] getMatrix() {
+        int numDoctors = doctors.size();
+        int numTimeSlots = timeSlots.size();
+        String[][] matrix = new String[numTimeSlots + 1][numDoctors + 1];
+        matrix[0][0] = headerLabel;
+        for (int col = 0; col < numDoctors; col++) {
+            matrix[0][col + 1] = doctors.get(col);
+        }
+        for (int row = 0; row < numTimeSlots; row++) {
+            matrix[row + 1][0] = timeSlots.get(row);
+            for (int col = 0; col < numDoctors; col++) {
+                matrix[row + 1][col + 1] = getSlot(row, col);
+            }
+        }
         return matrix;
     }
 
     /**
-     * Updates the matrix with a new scheduling matrix.
+     * Updates the matrix with a new scheduling matrix, which may have different dimensions.
      *
      * @param newMatrix The new scheduling matrix containing updated
      *                  doctor IDs and time slot information.
      */
     public void setMatrix(String[][] newMatrix) {
-        this.matrix = newMatrix;
+        int numDoctors = newMatrix[0].length - 1;
+        int numTimeSlots = newMatrix.length - 1;
+        headerLabel = newMatrix[0][0];
+        resize(numDoctors, numTimeSlots);
+        for (int col = 0; col < numDoctors; col++) {
+            setDoctorID(col, newMatrix[0][col + 1]);
+        }
+        for (int row = 0; row < numTimeSlots; row++) {
+            String[] cells = newMatrix[row + 1];
+            setTimeSlot(row, cells.length > 0 ? cells[0] : null);
+            for (int col = 0; col < numDoctors && col + 1 < cells.length; col++) {
+                setSlot(row, col, cells[col + 1]);
+            }
+        }
+    }
+
+    /**
+     * Computes the position of a slot in the occupant array.
+     *
+     * @param timeSlotRow the 0-based row of the time slot
+     * @param doctorCol   the 0-based column of the doctor
+     * @return the index of the slot in the occupant array
+     * @throws IndexOutOfBoundsException if the row or column is outside the schedule
+     */
+    private int slotIndex(int timeSlotRow, int doctorCol) {
+        if (timeSlotRow < 0 || timeSlotRow >= timeSlots.size() || doctorCol < 0 || doctorCol >= doctors.size()) {
+            throw new IndexOutOfBoundsException("No slot at row " + timeSlotRow + ", column " + doctorCol);
+        }
+        return timeSlotRow * doctors.size() + doctorCol;
+    }
+
+    /**
+     * Finds the occupant code of a slot value, assigning a new code to values not seen before.
+     *
+     * @param value the slot value, or null for an empty slot
+     * @return the occupant code of the value
+     */
+    private int encode(String value) {
+        if (value == null) {
+            return EMPTY_CODE;
+        }
+        Integer code = occupantCodes.get(value);
+        if (code == null) {
+            code = occupantValues.size();
+            occupantValues.add(value);
+            occupantCodes.put(value, code);
+        }
+        return code;
     }
 }
@@ -4,12 +4,13 @@ import org.hms.entities.Colour;
 import org.hms.services.AbstractService;
 import org.hms.services.drugdispensary.DrugDispenseRequest;
 import org.hms.services.drugdispensary.DrugRequestStatus;
-import org.hms.services.storage.StorageService;
 
 import java.io.File;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Scanner;
@@ -28,6 +29,11 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
      * appointment ID, patient ID, doctor ID, appointment time slot, and status.
      */
     private List<AppointmentInformation> appointments;
+    /**
+     * Indexes {@link #appointments} by appointment, patient and doctor, so that the appointments of
+     * one patient or doctor are found without scanning the whole appointment history.
+     */
+    private final AppointmentIndex appointmentIndex = new AppointmentIndex();
     /**
      * Represents the schedule for appointments within the appointment service.
      * This field encapsulates the data and methods related to appointment scheduling.
@@ -51,9 +57,11 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
      */
     public AppointmentService(IAppointmentDataInterface dataInterface) {
         this.storageServiceInterface = dataInterface;
-        StorageService storageService = new StorageService();
-        appointments = storageService.readAppointments();
-        appointmentOutcomes = storageService.readAppointmentOutcomesFromCSV();
+        appointments = dataInterface.readAppointments();
+        for (AppointmentInformation appointment : appointments) {
+            appointmentIndex.add(appointment);
+        }
+        appointmentOutcomes = dataInterface.readAppointmentOutcomesFromCSV();
     }
 
     /**
@@ -91,13 +99,10 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
      */
     //For patient
     public String getDoctorID(String patientID) {
-        for (AppointmentInformation appointment : appointments) {
-            // Check if the patientID matches
-            if (appointment.getPatientID().equals(patientID)) {
-                if ((appointment.getAppointmentStatus() == AppointmentStatus.PENDING) || (appointment.getAppointmentStatus() == AppointmentStatus.CONFIRMED)) {
-                    // Return the doctor's ID for the matching appointment
-                    return appointment.getDoctorID();
-                }
+        for (AppointmentInformation appointment : appointmentIndex.findByPatient(patientID)) {
+            if ((appointment.getAppointmentStatus() == AppointmentStatus.PENDING) || (appointment.getAppointmentStatus() == AppointmentStatus.CONFIRMED)) {
+                // Return the doctor's ID for the matching appointment
+                return appointment.getDoctorID();
             }
         }
         // If no appointment is found for the given patientID
@@ -112,8 +117,7 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
      * @return The current status of the patient's appointment. If no appointment is found, returns null.
      */
     public AppointmentStatus getCurrentAppointmentStatus(String patientID) {
-        for (AppointmentInformation appointment : appointments) {
-            // Check if the patientID matches
+        for (AppointmentInformation appointment : appointmentIndex.findByPatient(patientID)) {
             if (appointment.getAppointmentStatus() == AppointmentStatus.PENDING
                     || appointment.getAppointmentStatus() == AppointmentStatus.CONFIRMED) {
                 return appointment.getAppointmentStatus();
@@ -134,14 +138,11 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
      * {@code false} if there is an active appointment.
      */
     public Boolean checkExistingAppointment(String patientID) {
-        for (AppointmentInformation appointment : appointments) {
-            // Check if the patientID matches
-            if (appointment.getPatientID().equals(patientID)) {
-                // Check if the appointment status is not COMPLETED
-                if (appointment.getAppointmentStatus() != AppointmentStatus.COMPLETED
-                        && appointment.getAppointmentStatus() != AppointmentStatus.CANCELLED) {
-                    return false; // An active appointment exists
-                }
+        for (AppointmentInformation appointment : appointmentIndex.findByPatient(patientID)) {
+            // Check if the appointment status is not COMPLETED
+            if (appointment.getAppointmentStatus() != AppointmentStatus.COMPLETED
+                    && appointment.getAppointmentStatus() != AppointmentStatus.CANCELLED) {
+                return false; // An active appointment exists
             }
         }
         // No active appointment found or all appointments are COMPLETED
@@ -160,15 +161,12 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
         SimpleDateFormat dateFormatter = new SimpleDateFormat("yyyyMMdd");
         SimpleDateFormat timeFormatter = new SimpleDateFormat("HH:mm");
 
-        for (AppointmentInformation appointment : appointments) {
-            // Check if the patientID matches
-            if (appointment.getPatientID().equals(patientID)) {
-                if (appointment.getAppointmentStatus() == AppointmentStatus.PENDING || appointment.getAppointmentStatus() == AppointmentStatus.CONFIRMED) {
-                    // Format the date and time slot
-                    String date = dateFormatter.format(appointment.getAppointmentTimeSlot());
-                    String timeSlot = timeFormatter.format(appointment.getAppointmentTimeSlot());
-                    return new String[]{date, timeSlot};
-                }
+        for (AppointmentInformation appointment : appointmentIndex.findByPatient(patientID)) {
+            if (appointment.getAppointmentStatus() == AppointmentStatus.PENDING || appointment.getAppointmentStatus() == AppointmentStatus.CONFIRMED) {
+                // Format the date and time slot
+                String date = dateFormatter.format(appointment.getAppointmentTimeSlot());
+                String timeSlot = timeFormatter.format(appointment.getAppointmentTimeSlot());
+                return new String[]{date, timeSlot};
             }
         }
         // If no appointment is found for the given patientID
@@ -185,30 +183,11 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
      */
     public void resumeDoctorSchedule(String doctorID, String Date, String timeSlot) {
         AppointmentSchedule schedule = storageServiceInterface.loadSchedule(Date);
-        int doctorCol = -1;  // Find doctor column
-        int timeSlotRow = -1;
-        String[][] matrix = schedule.getMatrix();
-
-        for (int col = 1; col < matrix[0].length; col++) {
-            if (matrix[0][col] != null && matrix[0][col].equals(doctorID)) {
-                doctorCol = col - 1;
-                break;
-            }
-        }
-
-
-        for (int row = 1; row < matrix.length; row++) {
-            if (matrix[row][0] != null && matrix[row][0].equals(timeSlot)) {
-                timeSlotRow = row - 1;
-                break;
-            }
-        }
-
-        String slotValue = schedule.getSlot(timeSlotRow, doctorCol);
-
-        if (!("available".equals(slotValue))) {  // If slot is available (1)
+        int doctorCol = schedule.findDoctorColumn(doctorID);
+        int timeSlotRow = schedule.findTimeSlotRow(timeSlot);
+        if (doctorCol >= 0 && timeSlotRow >= 0 && !schedule.isAvailable(timeSlotRow, doctorCol)) {  // If slot is available (1)
             schedule.setSlot(timeSlotRow, doctorCol, "available");
-            storageServiceInterface.writeScheduleToCSV(schedule, Date);// Occupy the slot with patientID
+            storageServiceInterface.writeScheduleSlotToCSV(schedule, Date, timeSlotRow, doctorCol);// Occupy the slot with patientID
             //System.out.println("Schedule set successful for doctor " + doctorID + " at " + timeSlot + " on " + "2024-11-01" + ".");//hard code the date here,need change
 
         } else {
@@ -224,17 +203,14 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
      * @param patientID the ID of the patient whose appointment is to be canceled
      */
     public void setAppointmentToCanceled(String patientID) {
-        for (AppointmentInformation appointment : appointments) {
-            // Check if the patientID matches
-            if (appointment.getPatientID().equals(patientID)) {
-                // Set the appointment status to CANCELED for the first match
-                if (appointment.getAppointmentStatus() == AppointmentStatus.CONFIRMED || appointment.getAppointmentStatus() == AppointmentStatus.PENDING) {
-                    appointment.setAppointmentStatus(AppointmentStatus.CANCELLED);
-                    storageServiceInterface.writeAppointmentsToCsv(appointments);
-                    return; // Exit after setting the first matching appointment
-                } else {
-                    continue;
-                }
+        for (AppointmentInformation appointment : appointmentIndex.findByPatient(patientID)) {
+            // Set the appointment status to CANCELED for the first match
+            if (appointment.getAppointmentStatus() == AppointmentStatus.CONFIRMED || appointment.getAppointmentStatus() == AppointmentStatus.PENDING) {
+                appointmentIndex.setStatus(appointment, AppointmentStatus.CANCELLED);
+                storageServiceInterface.writeAppointmentsToCsv(appointments);
+                return; // Exit after setting the first matching appointment
+            } else {
+                continue;
             }
             // If no appointment is found for the given patientID
             //System.out.println("No appointment found for patient ID: " + patientID);
@@ -255,28 +231,11 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
     public boolean scheduleAppointment(String patientID, String doctorID, String Date, String timeSlot, AppointmentSchedule schedule) {
         //before calling any function related to schedule/reschedule appointment, use storageservice to get schedule of wanted date first;
 
-        int doctorCol = -1;  // Find doctor column
-        int timeSlotRow = -1;
-        String[][] matrix = schedule.getMatrix();
-
-        for (int col = 1; col < matrix[0].length; col++) {
-            if (matrix[0][col] != null && matrix[0][col].equals(doctorID)) {
-                doctorCol = col - 1;
-                break;
-            }
-        }
-
-        for (int row = 1; row < matrix.length; row++) {
-            if (matrix[row][0] != null && matrix[row][0].equals(timeSlot)) {
-                timeSlotRow = row - 1;
-                break;
-            }
-        }
-
-        String slotValue = schedule.getSlot(timeSlotRow, doctorCol);
-        if ("available".equals(slotValue)) {  // If slot is available (1)
+        int doctorCol = schedule.findDoctorColumn(doctorID);
+        int timeSlotRow = schedule.findTimeSlotRow(timeSlot);
+        if (doctorCol >= 0 && timeSlotRow >= 0 && schedule.isAvailable(timeSlotRow, doctorCol)) {  // If slot is available (1)
             schedule.setSlot(timeSlotRow, doctorCol, patientID);
-            storageServiceInterface.writeScheduleToCSV(schedule, Date);// Occupy the slot with patientID
+            storageServiceInterface.writeScheduleSlotToCSV(schedule, Date, timeSlotRow, doctorCol);// Occupy the slot with patientID
             System.out.println("Appointment scheduled successfully for patient " + patientID + " with doctor " + doctorID + " at " + timeSlot + " on " + "2024-11-01" + ".");//hard code the date here,need change
 
             String timeSlotString = Date + " " + timeSlot + "-" + timeSlot;
@@ -302,53 +261,35 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
 
 
         AppointmentSchedule schedule = storageServiceInterface.loadSchedule(date);
-        int doctorCol = -1;  // Find doctor column
-        int timeSlotRow = -1;
-        String[][] matrix = schedule.getMatrix();
+        int doctorCol = schedule.findDoctorColumn(doctorID);
+        int timeSlotRow = schedule.findTimeSlotRow(timeSlot);
 
         SimpleDateFormat dateTimeFormat = new SimpleDateFormat("yyyyMMdd HH:mm");
         boolean found = false;
-        for (AppointmentInformation appointment : appointments) {
-            if (appointment.getPatientID().equals(patientID)) {
-                found = true;
-                //setDoctorSchedule(doctorID, date, timeSlot, schedule);  //need to interact with previous date schedule, settle later
-                try {
-                    // Combine date and timeSlot into a single Date object
-                    Date newTimeSlot = dateTimeFormat.parse(date + " " + timeSlot);
-
-                    // Update the appointment's time slot
-                    appointment.setAppointmentTimeSlot(newTimeSlot);
-                    storageServiceInterface.writeAppointmentsToCsv(appointments);
-                } catch (ParseException e) {
-                    System.out.println("Failed to parse the new time slot: " + e.getMessage());
-                }
-                appointment.setDoctorID(doctorID);
-
-                for (int col = 1; col < matrix[0].length; col++) {
-                    if (matrix[0][col] != null && matrix[0][col].equals(doctorID)) {
-                        doctorCol = col - 1;
-                        break;
-                    }
-                }
-
-                for (int row = 1; row < matrix.length; row++) {
-                    if (matrix[row][0] != null && matrix[row][0].equals(timeSlot)) {
-                        timeSlotRow = row - 1;
-                        break;
-                    }
-                }
+        for (AppointmentInformation appointment : appointmentIndex.findByPatient(patientID)) {
+            found = true;
+            //setDoctorSchedule(doctorID, date, timeSlot, schedule);  //need to interact with previous date schedule, settle later
+            try {
+                // Combine date and timeSlot into a single Date object
+                Date newTimeSlot = dateTimeFormat.parse(date + " " + timeSlot);
+
+                // Update the appointment's time slot
+                appointment.setAppointmentTimeSlot(newTimeSlot);
+                storageServiceInterface.writeAppointmentsToCsv(appointments);
+            } catch (ParseException e) {
+                System.out.println("Failed to parse the new time slot: " + e.getMessage());
+            }
+            appointmentIndex.setDoctorID(appointment, doctorID);
 
-                String slotValue = schedule.getSlot(timeSlotRow, doctorCol);
-                if ("available".equals(slotValue)) {  // If slot is available (1)
-                    schedule.setSlot(timeSlotRow, doctorCol, patientID);  // Occupy the slot with patientID
-                    System.out.println("Appointment scheduled successfully for patient " + patientID + " with doctor " + doctorID + " at " + timeSlot + " on " + "2024-11-01" + ".");//hard code the date here,need change
+            if (doctorCol >= 0 && timeSlotRow >= 0 && schedule.isAvailable(timeSlotRow, doctorCol)) {  // If slot is available (1)
+                schedule.setSlot(timeSlotRow, doctorCol, patientID);  // Occupy the slot with patientID
+                System.out.println("Appointment scheduled successfully for patient " + patientID + " with doctor " + doctorID + " at " + timeSlot + " on " + "2024-11-01" + ".");//hard code the date here,need change
 
 
-                } else {
-                    System.out.println("The selected time slot is already occupied.");
-                }
-
+            } else {
+                System.out.println("The selected time slot is already occupied.");
             }
+
         }
 
         if (!found) {
@@ -365,12 +306,10 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
      */
     public void viewAppointmentStatus(String patientID) {
         boolean found = false;
-        for (AppointmentInformation appointment : appointments) {
-            if (appointment.getPatientID().equals(patientID)) {
-                displayOneAppointment(appointment);
+        for (AppointmentInformation appointment : appointmentIndex.findByPatient(patientID)) {
+            displayOneAppointment(appointment);
 
-                found = true;
-            }
+            found = true;
         }
 
         if (!found) {
@@ -386,14 +325,12 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
      */
     public void viewUpcomingAppointments(String patientID) {
         boolean found = false;
-        for (AppointmentInformation appointment : appointments) {
-            if (appointment.getPatientID().equals(patientID)) {
-                // Check if the appointment status is PENDING or CONFIRMED
-                if (appointment.getAppointmentStatus() == AppointmentStatus.PENDING
-                        || appointment.getAppointmentStatus() == AppointmentStatus.CONFIRMED) {
-                    displayOneAppointment(appointment); // Display the appointment details
-                    found = true;
-                }
+        for (AppointmentInformation appointment : appointmentIndex.findByPatient(patientID)) {
+            // Check if the appointment status is PENDING or CONFIRMED
+            if (appointment.getAppointmentStatus() == AppointmentStatus.PENDING
+                    || appointment.getAppointmentStatus() == AppointmentStatus.CONFIRMED) {
+                displayOneAppointment(appointment); // Display the appointment details
+                found = true;
             }
         }
 
@@ -423,6 +360,7 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
                     AppointmentStatus.PENDING
             );
             appointments.add(newAppointment);
+            appointmentIndex.add(newAppointment);
             storageServiceInterface.writeAppointmentsToCsv(appointments);
         } catch (ParseException e) {
             throw new RuntimeException("Failed to parse the time slot: " + e.getMessage());
@@ -534,11 +472,9 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
      */
     //For doctor
     public String getPatienIDbyAppointmentID(String appointmentID) {
-        for (AppointmentInformation appointment : appointments) {
-            // Check if the appointment ID matches
-            if (String.valueOf(appointment.getAppointmentID()).equals(appointmentID)) {
-                return appointment.getPatientID(); // Return the patient ID if found
-            }
+        Collection<AppointmentInformation> matches = findByAppointmentID(appointmentID);
+        if (!matches.isEmpty()) {
+            return matches.iterator().next().getPatientID(); // Return the patient ID if found
         }
 
         // If no appointment matches, return a suitable message or null
@@ -546,6 +482,24 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
         return null;
     }
 
+    /**
+     * Finds the appointments with an appointment ID given as text, as entered in the menus.
+     *
+     * @param appointmentID the appointment ID, in decimal without leading zeros
+     * @return the appointments with the ID, or an empty collection if the text is not such an ID
+     */
+    private Collection<AppointmentInformation> findByAppointmentID(String appointmentID) {
+        try {
+            int id = Integer.parseInt(appointmentID);
+            if (String.valueOf(id).equals(appointmentID)) {
+                return appointmentIndex.findByAppointmentID(id);
+            }
+        } catch (NumberFormatException e) {
+            // Not an appointment ID, so no appointment has it
+        }
+        return Collections.emptyList();
+    }
+
     /**
      * Displays all pending appointment requests for a given doctor based on their ID.
      * If no pending requests are found, it prints a message to the console.
@@ -555,12 +509,10 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
      */
     public boolean viewRequest(String doctorID) {
         boolean found = false;
-        for (AppointmentInformation appointment : appointments) {
-            if (appointment.getDoctorID().equals(doctorID) && appointment.getAppointmentStatus() == AppointmentStatus.PENDING) {
-                displayOneAppointment(appointment);
+        for (AppointmentInformation appointment : appointmentIndex.findByDoctorAndStatus(doctorID, AppointmentStatus.PENDING)) {
+            displayOneAppointment(appointment);
 
-                found = true;
-            }
+            found = true;
         }
 
         if (!found) {
@@ -580,10 +532,9 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
         boolean found = false;
         Scanner scanner = new Scanner(System.in);
 
-        for (AppointmentInformation appointment : appointments) {
-            // Check if the appointment ID and doctor ID match and the status is PENDING
-            if (appointment.getAppointmentID() == appointmentID
-                    && appointment.getDoctorID().equals(doctorID)
+        for (AppointmentInformation appointment : appointmentIndex.findByAppointmentID(appointmentID)) {
+            // Check if the doctor ID matches and the status is PENDING
+            if (appointment.getDoctorID().equals(doctorID)
                     && appointment.getAppointmentStatus() == AppointmentStatus.PENDING) {
 
                 displayOneAppointment(appointment);
@@ -595,7 +546,7 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
                 // Validate and update the status
                 if (newStatusInput.equals("CONFIRMED") || newStatusInput.equals("CANCELLED")) {
                     AppointmentStatus newStatus = AppointmentStatus.valueOf(newStatusInput);
-                    appointment.setAppointmentStatus(newStatus);
+                    appointmentIndex.setStatus(appointment, newStatus);
                     storageServiceInterface.writeAppointmentsToCsv(appointments);
                     System.out.println("Appointment status updated successfully to " + newStatus + ".");
                 } else {
@@ -621,13 +572,10 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
      */
     public void viewDoctorSchedule(String doctorID, String date) {
         boolean found = false;
-        for (AppointmentInformation appointment : appointments) {
-            // Check if the appointment's doctor ID matches and the status is CONFIRMED
-            if (appointment.getDoctorID().equals(doctorID) && appointment.getAppointmentStatus() == AppointmentStatus.CONFIRMED) {
-                displayOneAppointment(appointment);
+        for (AppointmentInformation appointment : appointmentIndex.findByDoctorAndStatus(doctorID, AppointmentStatus.CONFIRMED)) {
+            displayOneAppointment(appointment);
 
-                found = true;
-            }
+            found = true;
         }
 
         if (!found) {
@@ -645,29 +593,13 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
      */
     public void setDoctorSchedule(String doctorID, String Date, String timeSlot) {
         AppointmentSchedule schedule = storageServiceInterface.loadSchedule(Date);
-        int doctorCol = -1;  // Find doctor column
-        int timeSlotRow = -1;
-        String[][] matrix = schedule.getMatrix();
-
-        for (int col = 1; col < matrix[0].length; col++) {
-            if (matrix[0][col] != null && matrix[0][col].equals(doctorID)) {
-                doctorCol = col - 1;
-                break;
-            }
-        }
-
-        for (int row = 1; row < matrix.length; row++) {
-            if (matrix[row][0] != null && matrix[row][0].equals(timeSlot)) {
-                timeSlotRow = row - 1;
-                break;
-            }
-        }
-
-        String slotValue = schedule.getSlot(timeSlotRow, doctorCol);
+        int doctorCol = schedule.findDoctorColumn(doctorID);
+        int timeSlotRow = schedule.findTimeSlotRow(timeSlot);
+        String slotValue = doctorCol < 0 || timeSlotRow < 0 ? null : schedule.getSlot(timeSlotRow, doctorCol);
 
         if ("unavailable".equals(slotValue)) {  // If slot is available (1)
             schedule.setSlot(timeSlotRow, doctorCol, "available");
-            storageServiceInterface.writeScheduleToCSV(schedule, Date);// Occupy the slot with patientID
+            storageServiceInterface.writeScheduleSlotToCSV(schedule, Date, timeSlotRow, doctorCol);// Occupy the slot with patientID
             //System.out.println("Schedule set successful for doctor " + doctorID + " at " + timeSlot + " on " + "2024-11-01" + ".");//hard code the date here,need change
 
         } else {
@@ -685,29 +617,11 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
      */
     public void cancelDoctorSchedule(String doctorID, String Date, String timeSlot) {
         AppointmentSchedule schedule = storageServiceInterface.loadSchedule(Date);
-        int doctorCol = -1;  // Find doctor column
-        int timeSlotRow = -1;
-        String[][] matrix = schedule.getMatrix();
-
-        for (int col = 1; col < matrix[0].length; col++) {
-            if (matrix[0][col] != null && matrix[0][col].equals(doctorID)) {
-                doctorCol = col - 1;
-                break;
-            }
-        }
-
-        for (int row = 1; row < matrix.length; row++) {
-            if (matrix[row][0] != null && matrix[row][0].equals(timeSlot)) {
-                timeSlotRow = row - 1;
-                break;
-            }
-        }
-
-        String slotValue = schedule.getSlot(timeSlotRow, doctorCol);
-
-        if ("available".equals(slotValue)) {  // If slot is available (1)
+        int doctorCol = schedule.findDoctorColumn(doctorID);
+        int timeSlotRow = schedule.findTimeSlotRow(timeSlot);
+        if (doctorCol >= 0 && timeSlotRow >= 0 && schedule.isAvailable(timeSlotRow, doctorCol)) {  // If slot is available (1)
             schedule.setSlot(timeSlotRow, doctorCol, "unavailable");
-            storageServiceInterface.writeScheduleToCSV(schedule, Date);// Occupy the slot with patientID
+            storageServiceInterface.writeScheduleSlotToCSV(schedule, Date, timeSlotRow, doctorCol);// Occupy the slot with patientID
             //System.out.println("Schedule disabled successfully for doctor " + doctorID + " at " + timeSlot + " on " + "2024-11-01" + ".");//hard code the date here,need change
 
         } else {
@@ -725,21 +639,11 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
      */
     public boolean viewDoctorDailySchedule(String doctorID, String date) {
         AppointmentSchedule schedule = storageServiceInterface.loadSchedule(date);
-        String[][] matrix = schedule.getMatrix();
-        boolean found = false;
-
         // Find the column corresponding to the doctorID
-        int doctorCol = -1;
-        for (int col = 1; col < matrix[0].length; col++) {
-            if (matrix[0][col] != null && matrix[0][col].equals(doctorID)) {
-                doctorCol = col;
-                found = true;
-                break;
-            }
-        }
+        int doctorCol = schedule.findDoctorColumn(doctorID);
 
         // If the doctorID is not found in the schedule
-        if (!found) {
+        if (doctorCol < 0) {
             System.out.println("No schedule found for Doctor ID: " + doctorID + " on " + date);
             return false;
         }
@@ -749,10 +653,12 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
         System.out.println("--------------------------------------------------");
         System.out.println("Time Slot\tDetails");*/
 
-        for (int row = 1; row < matrix.length; row++) { // Skip the header row
-            String timeSlot = matrix[row][0]; // First column: Time slot
-            String details = matrix[row][doctorCol]; // Corresponding column for doctorID
-            if (details.equals("available")) {
+        for (int row = 0; row < schedule.getTimeSlotCount(); row++) {
+            String timeSlot = schedule.getTimeSlot(row);
+            String details = schedule.getSlot(row, doctorCol); // Slot of the doctor at this time
+            if (details == null) {
+                details = "";
+            } else if (details.equals("available")) {
                 details = Colour.GREEN + "Available" + Colour.RESET;
             } else if (details.equals("unavailable")) {
                 details = Colour.RED + "Unavailable" + Colour.RESET;
@@ -793,10 +699,10 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
         System.out.println("Appointments for Doctor ID: " + doctorID + " on " + date);
         System.out.println("--------------------------------------------------");
 
-        for (AppointmentInformation appointment : appointments) {
-            // Check if the appointment matches the given date and doctor ID
+        for (AppointmentInformation appointment : appointmentIndex.findByDoctorAndStatus(doctorID, AppointmentStatus.CONFIRMED)) {
+            // Check if the appointment matches the given date
             String appointmentDate = new SimpleDateFormat("yyyyMMdd").format(appointment.getAppointmentTimeSlot());
-            if (appointmentDate.equals(date) && appointment.getDoctorID().equals(doctorID) && appointment.getAppointmentStatus() == AppointmentStatus.CONFIRMED) {
+            if (appointmentDate.equals(date)) {
                 displayOneAppointment(appointment);
                 found = true;
             }
@@ -821,12 +727,9 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
         System.out.println("All Confirmed Appointments for Doctor ID: " + doctorID);
         System.out.println("--------------------------------------------------");
 
-        for (AppointmentInformation appointment : appointments) {
-            // Check if the appointment matches the given doctor ID and is CONFIRMED
-            if (appointment.getDoctorID().equals(doctorID) && appointment.getAppointmentStatus() == AppointmentStatus.CONFIRMED) {
-                displayOneAppointment(appointment);
-                found = true;
-            }
+        for (AppointmentInformation appointment : appointmentIndex.findByDoctorAndStatus(doctorID, AppointmentStatus.CONFIRMED)) {
+            displayOneAppointment(appointment);
+            found = true;
         }
 
         if (!found) {
@@ -1057,15 +960,14 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
     //For update appointmentStatus to COMPLETED
     public boolean completeAnAppointment(String appointmentID, String doctorID) {
         boolean updated = false;
-        for (AppointmentInformation appointment : appointments) {
-            // Check if the appointmentID and doctorID match
-            if (String.valueOf(appointment.getAppointmentID()).equals(appointmentID)
-                    && appointment.getDoctorID().equals(doctorID)) {
+        for (AppointmentInformation appointment : findByAppointmentID(appointmentID)) {
+            // Check if the doctorID matches
+            if (appointment.getDoctorID().equals(doctorID)) {
 
                 // Check if the appointmentStatus is CONFIRMED
                 if (appointment.getAppointmentStatus() == AppointmentStatus.CONFIRMED) {
                     // Update the status to COMPLETED
-                    appointment.setAppointmentStatus(AppointmentStatus.COMPLETED);
+                    appointmentIndex.setStatus(appointment, AppointmentStatus.COMPLETED);
                     storageServiceInterface.writeAppointmentsToCsv(appointments);
                     System.out.println("Appointment ID: " + appointmentID + " for Doctor ID: " + doctorID + " has been completed.");
                     updated = true;
@@ -1168,7 +1070,34 @@ public class AppointmentService extends AbstractService<IAppointmentDataInterfac
      */
     public void createNewSchedule(String date) {
         storageServiceInterface.initializeSchedule(date);
+    }
 
+    /**
+     * Finds the earliest available appointment slot between two dates, across all saved schedules.
+     *
+     * @param doctorID the ID of the doctor to book, or null to accept any doctor
+     * @param fromDate the first date to search, formatted as YYYYMMDD, or null to start from the earliest schedule
+     * @param toDate   the last date to search, formatted as YYYYMMDD, or null to search up to the latest schedule
+     * @return an array holding the date, time slot and doctor ID of the slot, or null if no slot is available
+     */
+    public String[] findEarliestAvailability(String doctorID, String fromDate, String toDate) {
+        return findEarliestAvailability(doctorID, fromDate, toDate, null, null);
+    }
+
+    /**
+     * Finds the earliest available appointment slot between two dates and within a time of day window,
+     * across all saved schedules. Only the schedule files are searched, so dates without a schedule yet are skipped.
+     *
+     * @param doctorID     the ID of the doctor to book, or null to accept any doctor
+     * @param fromDate     the first date to search, formatted as YYYYMMDD, or null to start from the earliest schedule
+     * @param toDate       the last date to search, formatted as YYYYMMDD, or null to search up to the latest schedule
+     * @param earliestTime the earliest time slot to accept, such as "10:00", or null for no limit
+     * @param latestTime   the latest time slot to accept, or null for no limit
+     * @return an array holding the date, time slot and doctor ID of the slot, or null if no slot is available
+     * @throws IllegalArgumentException if earliestTime or latestTime is not a time of day
+     */
+    public String[] findEarliestAvailability(String doctorID, String fromDate, String toDate, String earliestTime, String latestTime) {
+        return storageServiceInterface.findEarliestAvailability(doctorID, fromDate, toDate, earliestTime, latestTime);
     }
 }
 
@@ -75,6 +75,31 @@ public interface IAppointmentDataInterface extends IDataInterface {
      */
     public void writeScheduleToCSV(AppointmentSchedule schedule, String date);
 
+    /**
+     * Writes a single slot of the given appointment schedule to the CSV file of the specified date,
+     * without rewriting the rest of the schedule.
+     *
+     * @param schedule    the appointment schedule holding the new value of the slot
+     * @param date        the date of the schedule
+     * @param timeSlotRow the 0-based row of the time slot that changed
+     * @param doctorCol   the 0-based column of the doctor whose slot changed
+     */
+    public void writeScheduleSlotToCSV(AppointmentSchedule schedule, String date, int timeSlotRow, int doctorCol);
+
+    /**
+     * Finds the earliest available appointment slot between two dates and within a time of day window,
+     * across all saved schedules.
+     *
+     * @param doctorID     the ID of the doctor to book, or null to accept any doctor
+     * @param fromDate     the first date to search, formatted as YYYYMMDD, or null to start from the earliest schedule
+     * @param toDate       the last date to search, formatted as YYYYMMDD, or null to search up to the latest schedule
+     * @param earliestTime the earliest time slot to accept, such as "10:00", or null for no limit
+     * @param latestTime   the latest time slot to accept, or null for no limit
+     * @return an array holding the date, time slot and doctor ID of the slot, or null if no slot is available
+     * @throws IllegalArgumentException if earliestTime or latestTime is not a time of day
+     */
+    public String[] findEarliestAvailability(String doctorID, String fromDate, String toDate, String earliestTime, String latestTime);
+
     /**
      * Retrieves the Staff member associated with a given schedule based on the staff ID.
      *
@@ -0,0 +1,100 @@
+package org.hms.services.appointment;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The names of the columns or rows of an {@link AppointmentSchedule}, such as its doctor IDs or time slots,
+ * with a hash index from each name to its position.
+ * <p>
+ * Like a scan of the header of the schedule from the start, looking up a name that appears several times
+ * finds its first position.
+ * </p>
+ */
+final class SlotDictionary {
+    /**
+     * The name at each position, null where no name has been set.
+     */
+    private final String[] names;
+    /**
+     * Maps each name to the first position it appears at.
+     */
+    private final Map<String, Integer> positions;
+
+    /**
+     * Creates a dictionary of the given size, with no names set.
+     *
+     * @param size the number of positions
+     */
+    SlotDictionary(int size) {
+        this.names = new String[size];
+        this.positions = new HashMap<>(Math.max(16, size * 2));
+    }
+
+    /**
+     * Creates a copy of a dictionary, which can then be changed independently of it.
+     *
+     * @param other the dictionary to copy
+     */
+    SlotDictionary(SlotDictionary other) {
+        this.names = other.names.clone();
+        this.positions = new HashMap<>(other.positions);
+    }
+
+    /**
+     * Retrieves the number of positions.
+     *
+     * @return the number of positions
+     */
+    int size() {
+        return names.length;
+    }
+
+    /**
+     * Retrieves the name at a position.
+     *
+     * @param position the position
+     * @return the name at the position, or null if none is set
+     */
+    String get(int position) {
+        return names[position];
+    }
+
+    /**
+     * Finds the first position of a name.
+     *
+     * @param name the name to look up
+     * @return the first position of the name, or -1 if it is not in the dictionary
+     */
+    int indexOf(String name) {
+        if (name == null) {
+            return -1;
+        }
+        Integer position = positions.get(name);
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * Sets the name at a position, replacing the name previously there.
+     *
+     * @param position the position
+     * @param name     the new name, or null to clear the position
+     */
+    void set(int position, String name) {
+        String previous = names[position];
+        names[position] = name;
+        if (previous != null && positions.get(previous) == position) {
+            positions.remove(previous);
+            // The previous name may still appear further on, which is then its first position.
+            for (int i = position + 1; i < names.length; i++) {
+                if (previous.equals(names[i])) {
+                    positions.put(previous, i);
+                    break;
+                }
+            }
+        }
+        if (name != null) {
+            positions.merge(name, position, Math::min);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package org.hms.services.authentication;
 import org.hms.entities.User;
 import org.hms.entities.UserRole;
 import org.hms.services.authentication.AuthenticationResult;
+import org.hms.utils.DurableFiles;
 import org.hms.utils.PasswordUtils;
 
 import java.io.*;
@@ -101,12 +102,12 @@ public class AuthenticationService {
             Files.createDirectories(Paths.get(dataRoot));
 
             if (!Files.exists(Paths.get(USER_DB_FILE))) {
-                try (PrintWriter writer = new PrintWriter(USER_DB_FILE)) {
-                    writer.println("id,password,role,isFirstLogin");
+                DurableFiles.replaceText(Paths.get(USER_DB_FILE), writer -> {
+                    writer.write("id,password,role,isFirstLogin" + System.lineSeparator());
                     // Add default admin account with hashed password
                     String hashedPassword = PasswordUtils.hashPassword("password");
-                    writer.println("ADMIN001," + hashedPassword + ",ADMINISTRATOR,true");
-                }
+                    writer.write("ADMIN001," + hashedPassword + ",ADMINISTRATOR,true" + System.lineSeparator());
+                });
             }
         } catch (IOException e) {
             System.out.println("Error initializing user database: " + e.getMessage());
@@ -163,16 +164,18 @@ public class AuthenticationService {
      * printing an error message if any issues occur during saving.
      */
     private void saveUsers() {
-        try (PrintWriter writer = new PrintWriter(USER_DB_FILE)) {
-            writer.println("id,password,role,isFirstLogin");
-            for (User user : users.values()) {
-                writer.printf("%s,%s,%s,%b%n",
-                        user.getId(),
-                        user.getPassword(), // Password is already hashed
-                        user.getRole().toString(),
-                        user.isFirstLogin()
-                );
-            }
+        try {
+            DurableFiles.replaceText(Paths.get(USER_DB_FILE), writer -> {
+                writer.write("id,password,role,isFirstLogin" + System.lineSeparator());
+                for (User user : users.values()) {
+                    writer.write(String.format("%s,%s,%s,%b%n",
+                            user.getId(),
+                            user.getPassword(), // Password is already hashed
+                            user.getRole().toString(),
+                            user.isFirstLogin()
+                    ));
+                }
+            });
         } catch (IOException e) {
             System.out.println("Error saving users: " + e.getMessage());
         }
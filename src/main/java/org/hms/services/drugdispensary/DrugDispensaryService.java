@@ -1,6 +1,7 @@
 package org.hms.services.drugdispensary;
 
 import org.hms.entities.Colour;
+import org.hms.entities.TableTransaction;
 import org.hms.services.AbstractService;
 
 import java.io.IOException;
@@ -90,7 +91,7 @@ public class DrugDispensaryService extends AbstractService<IDrugStockDataInterfa
         String drugRequested = pendingRequest.getDrugName();
 
         // Try finding the drug in the table.
-        ArrayList<DrugInventoryEntry> results = drugInventory.searchByAttribute(DrugInventoryEntry::getName, drugRequested);
+        ArrayList<DrugInventoryEntry> results = drugInventory.searchByAttribute(DrugInventoryTable.BY_NAME, drugRequested);
 
         // If empty, it means Drug doesn't exist.
         // print here?
@@ -204,13 +205,22 @@ public class DrugDispensaryService extends AbstractService<IDrugStockDataInterfa
 
     /**
      * Processes all pending replenish requests and accepts them.
+     * All requests are processed in a single transaction, so the inventory and
+     * replenish request files are each written once, rather than once per request.
      *
      * @return true if all requests were successfully processed, false otherwise
      */
     public boolean approveAllReplenishRequests() {
         List<DrugReplenishRequest> requests = drugReplenishRequestTable.getEntries();
-        for (DrugReplenishRequest request : requests) {
-            processReplenishRequest(request.getTableEntryID(), true);
+        try {
+            TableTransaction.run(() -> {
+                for (DrugReplenishRequest request : requests) {
+                    processReplenishRequest(request.getTableEntryID(), true);
+                }
+            }, drugInventory, drugReplenishRequestTable);
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+            return false;
         }
         return true;
     }
@@ -224,7 +234,7 @@ public class DrugDispensaryService extends AbstractService<IDrugStockDataInterfa
      * @return true if stock quantity successfully updated, false otherwise
      */
     public boolean setDrugStockQuantity(String drugName, int newQuantity) {
-        ArrayList<DrugInventoryEntry> results = drugInventory.searchByAttribute(DrugInventoryEntry::getName, drugName);
+        ArrayList<DrugInventoryEntry> results = drugInventory.searchByAttribute(DrugInventoryTable.BY_NAME, drugName);
         if (results.isEmpty()) {
             return false;
         }
@@ -247,7 +257,7 @@ public class DrugDispensaryService extends AbstractService<IDrugStockDataInterfa
      * @return true if the threshold was successfully updated, false otherwise.
      */
     public boolean setDrugLowStockAlertThreshold(String drugName, int newLowStockAlertThreshold) {
-        ArrayList<DrugInventoryEntry> results = drugInventory.searchByAttribute(DrugInventoryEntry::getName, drugName);
+        ArrayList<DrugInventoryEntry> results = drugInventory.searchByAttribute(DrugInventoryTable.BY_NAME, drugName);
         if (results.isEmpty()) {
             return false;
         }
@@ -269,7 +279,7 @@ public class DrugDispensaryService extends AbstractService<IDrugStockDataInterfa
      * @return true if the stock quantity was successfully updated, false otherwise.
      */
     public boolean addDrugStockQuantity(String drugName, int newQuantity) {
-        ArrayList<DrugInventoryEntry> results = drugInventory.searchByAttribute(DrugInventoryEntry::getName, drugName);
+        ArrayList<DrugInventoryEntry> results = drugInventory.searchByAttribute(DrugInventoryTable.BY_NAME, drugName);
         if (results.isEmpty()) {
             return false;
         }
@@ -290,7 +300,7 @@ public class DrugDispensaryService extends AbstractService<IDrugStockDataInterfa
      * @return the current stock quantity, or -1 if the drug does not exist.
      */
     public int getDrugStockQuantity(String drugName) {
-        ArrayList<DrugInventoryEntry> results = drugInventory.searchByAttribute(DrugInventoryEntry::getName, drugName);
+        ArrayList<DrugInventoryEntry> results = drugInventory.searchByAttribute(DrugInventoryTable.BY_NAME, drugName);
         if (results.isEmpty()) {
             return -1;
         }
@@ -305,7 +315,7 @@ public class DrugDispensaryService extends AbstractService<IDrugStockDataInterfa
      * @return true if valid, false otherwise
      */
     public boolean isValidDrugEntryID(int entryID) {
-        return !drugInventory.searchByAttribute(DrugInventoryEntry::getTableEntryID, entryID).isEmpty();
+        return drugInventory.getEntry(entryID) != null;
     }
 
     /**
@@ -315,7 +325,7 @@ public class DrugDispensaryService extends AbstractService<IDrugStockDataInterfa
      * @return true if the entryID is valid, false otherwise
      */
     public boolean isValidReplenishRequestID(int entryID) {
-        return !drugReplenishRequestTable.searchByAttribute(DrugReplenishRequest::getTableEntryID, entryID).isEmpty();
+        return drugReplenishRequestTable.getEntry(entryID) != null;
     }
 
     /**
@@ -325,7 +335,7 @@ public class DrugDispensaryService extends AbstractService<IDrugStockDataInterfa
      * @return true if the drug exists, false otherwise.
      */
     public boolean doesDrugExist(String drugName) {
-        return !drugInventory.searchByAttribute(DrugInventoryEntry::getName, drugName).isEmpty();
+        return !drugInventory.searchByAttribute(DrugInventoryTable.BY_NAME, drugName).isEmpty();
     }
 
     /**
@@ -386,10 +396,10 @@ public class DrugDispensaryService extends AbstractService<IDrugStockDataInterfa
      * @return the name of the drug if found, otherwise null.
      */
     public String getDrugName(int entryID) {
-        ArrayList<DrugInventoryEntry> results = drugInventory.searchByAttribute(DrugInventoryEntry::getTableEntryID, entryID);
-        if (results.isEmpty()) {
+        DrugInventoryEntry entry = drugInventory.getEntry(entryID);
+        if (entry == null) {
             return null;
         }
-        return results.getFirst().getName();
+        return entry.getName();
     }
 }
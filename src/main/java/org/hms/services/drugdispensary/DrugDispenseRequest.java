@@ -1,6 +1,8 @@
 package org.hms.services.drugdispensary;
 
 import org.hms.entities.AbstractTableEntry;
+import org.hms.entities.FieldReader;
+import org.hms.entities.FieldWriter;
 import org.hms.entities.Colour;
 
 /**
@@ -51,6 +53,7 @@ public class DrugDispenseRequest extends AbstractTableEntry {
      */
     public void setStatus(DrugRequestStatus status) {
         this.status = status;
+        markDirty();
     }
 
     /**
@@ -78,34 +81,33 @@ public class DrugDispenseRequest extends AbstractTableEntry {
      */
     public void setQuantity(int quantity) {
         this.quantity = quantity;
+        markDirty();
     }
 
     /**
-     * Converts the drug dispense request to a CSV formatted string.
+     * Writes the drug dispense request to a row.
      *
-     * @return a CSV string representing the request details.
+     * @param row the writer to append the fields to
      */
     @Override
-    public String toCSVString() {
-        return String.format("%s,%s,%s,%s",
-                getTableEntryID(),
-                preprocessCSVString(drugName),
-                quantity,
-                status);
+    public void writeFields(FieldWriter row) {
+        row.field(getTableEntryID())
+                .field(drugName)
+                .field(quantity)
+                .field(status);
     }
 
     /**
      * Loads the drug dispense request details from a CSV formatted string.
      *
-     * @param csvLine the CSV string containing request details.
+     * @param fields the reader to read the fields of this entry from
      */
     @Override
-    public void loadFromCSVString(String csvLine) {
-        String[] parts = parseCSVLine(csvLine);
-        tableEntryID = Integer.parseInt(parts[0]);
-        drugName = parts[1];
-        quantity = Integer.parseInt(parts[2]);
-        status = DrugRequestStatus.valueOf(parts[3]);
+    public void loadFields(FieldReader fields) {
+        tableEntryID = fields.nextInt();
+        drugName = fields.nextString();
+        quantity = fields.nextInt();
+        status = fields.nextEnum(DrugRequestStatus.class);
     }
 
     /**
@@ -1,6 +1,8 @@
 package org.hms.services.drugdispensary;
 
 import org.hms.entities.AbstractTableEntry;
+import org.hms.entities.FieldReader;
+import org.hms.entities.FieldWriter;
 
 /**
  * The DrugInventoryEntry class represents an entry in a drug inventory table.
@@ -60,6 +62,7 @@ public class DrugInventoryEntry extends AbstractTableEntry {
      */
     public void setLowStockAlertThreshold(int lowStockAlertThreshold) {
         this.lowStockAlertThreshold = lowStockAlertThreshold;
+        markDirty();
     }
 
     /**
@@ -78,6 +81,7 @@ public class DrugInventoryEntry extends AbstractTableEntry {
      */
     public void setQuantity(int quantity) {
         this.quantity = quantity;
+        markDirty();
     }
 
     /**
@@ -96,32 +100,33 @@ public class DrugInventoryEntry extends AbstractTableEntry {
      */
     public void setName(String name) {
         this.name = name;
+        markDirty();
     }
 
     /**
-     * Converts the drug inventory entry to a CSV formatted string
+     * Writes the drug inventory entry to a row.
      *
-     * @return a CSV string representing the entry details
+     * @param row the writer to append the fields to
      */
     @Override
-    public String toCSVString() {
-        return String.format("%s,%s,%s,%s",
-                getTableEntryID(),
-                preprocessCSVString(name), quantity, lowStockAlertThreshold);
+    public void writeFields(FieldWriter row) {
+        row.field(getTableEntryID())
+                .field(name)
+                .field(quantity)
+                .field(lowStockAlertThreshold);
     }
 
     /**
      * Loads the drug inventory entry details from a CSV formatted string
      *
-     * @param csvLine comma seperated entry values.
+     * @param fields the reader to read the fields of this entry from
      */
     @Override
-    public void loadFromCSVString(String csvLine) {
-        String[] parts = parseCSVLine(csvLine);
-        tableEntryID = Integer.parseInt(parts[0]);
-        name = parts[1];
-        quantity = Integer.parseInt(parts[2]);
-        lowStockAlertThreshold = Integer.parseInt(parts[3]);
+    public void loadFields(FieldReader fields) {
+        tableEntryID = fields.nextInt();
+        name = fields.nextString();
+        quantity = fields.nextInt();
+        lowStockAlertThreshold = fields.nextInt();
     }
 
     /**
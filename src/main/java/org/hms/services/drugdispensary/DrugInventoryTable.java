@@ -1,6 +1,10 @@
 package org.hms.services.drugdispensary;
 
 import org.hms.entities.AbstractTable;
+import org.hms.entities.IndexDefinition;
+
+import java.util.List;
+import java.util.function.Function;
 
 /**
  * DrugInventoryTable is a specialized implementation of AbstractTable for managing drug inventory entries.
@@ -20,6 +24,11 @@ public class DrugInventoryTable extends AbstractTable<DrugInventoryEntry> {
      */
     private static final String formatString = "│ %-4s│ %-15s│ %-5s│ %-12s│\n";
 
+    /**
+     * Key extractor for the index on the name of each drug in the inventory.
+     */
+    public static final Function<DrugInventoryEntry, String> BY_NAME = DrugInventoryEntry::getName;
+
     /**
      * This constructor creates a new DrugInventoryTable without linking to a file.
      * Calls to saveToFile() will have no effect.
@@ -28,7 +37,7 @@ public class DrugInventoryTable extends AbstractTable<DrugInventoryEntry> {
      * Or call setFilePath(String filePath).
      */
     public DrugInventoryTable() {
-        super();
+        super(IndexDefinition.hash("name", BY_NAME));
     }
 
     /**
@@ -37,7 +46,7 @@ public class DrugInventoryTable extends AbstractTable<DrugInventoryEntry> {
      * @param filePath the path of the file to link with this table.
      */
     public DrugInventoryTable(String filePath) {
-        super();
+        this();
         this.filePath = filePath;
     }
 
@@ -80,11 +89,12 @@ public class DrugInventoryTable extends AbstractTable<DrugInventoryEntry> {
      * This string is meant to be printed to the console.
      */
     public String toPrintString() {
-        StringBuilder printStringBuilder = new StringBuilder(entries.size() * 100);
+        List<DrugInventoryEntry> snapshot = snapshot();
+        StringBuilder printStringBuilder = new StringBuilder(snapshot.size() * 100);
         printStringBuilder.append("┌─────┬────────────────┬──────┬─────────────┐\n");
         printStringBuilder.append(String.format(formatString, (Object[]) HEADERS));
         printStringBuilder.append("├─────┼────────────────┼──────┼─────────────┤\n");
-        for (DrugInventoryEntry entry : getEntries()) {
+        for (DrugInventoryEntry entry : snapshot) {
             printStringBuilder.append(entry.toPrintString(formatString));
         }
         printStringBuilder.append("└─────┴────────────────┴──────┴─────────────┘\n");
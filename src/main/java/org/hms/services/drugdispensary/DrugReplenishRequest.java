@@ -1,6 +1,8 @@
 package org.hms.services.drugdispensary;
 
 import org.hms.entities.AbstractTableEntry;
+import org.hms.entities.FieldReader;
+import org.hms.entities.FieldWriter;
 
 /**
  * Represents a request to replenish a specific drug with a specified quantity and optional notes.
@@ -57,6 +59,7 @@ public class DrugReplenishRequest extends AbstractTableEntry {
      */
     public void setDrugName(String drugName) {
         this.drugName = drugName;
+        markDirty();
     }
 
     /**
@@ -75,6 +78,7 @@ public class DrugReplenishRequest extends AbstractTableEntry {
      */
     public void setAddQuantity(int addQuantity) {
         this.addQuantity = addQuantity;
+        markDirty();
     }
 
     /**
@@ -93,34 +97,33 @@ public class DrugReplenishRequest extends AbstractTableEntry {
      */
     public void setNotes(String notes) {
         this.notes = notes;
+        markDirty();
     }
 
     /**
-     * Converts the drug replenish request to a CSV formatted string.
+     * Writes the drug replenish request to a row.
      *
-     * @return a CSV string representing the request details
+     * @param row the writer to append the fields to
      */
     @Override
-    public String toCSVString() {
-        return String.format("%s,%s,%s,%s",
-                getTableEntryID(),
-                preprocessCSVString(drugName),
-                addQuantity,
-                preprocessCSVString(notes));
+    public void writeFields(FieldWriter row) {
+        row.field(getTableEntryID())
+                .field(drugName)
+                .field(addQuantity)
+                .field(notes);
     }
 
     /**
      * Loads the drug replenish request details from a CSV formatted string.
      *
-     * @param csvLine comma seperated entry values.
+     * @param fields the reader to read the fields of this entry from
      */
     @Override
-    public void loadFromCSVString(String csvLine) {
-        String[] parts = parseCSVLine(csvLine);
-        tableEntryID = Integer.parseInt(parts[0]);
-        drugName = parts[1];
-        addQuantity = Integer.parseInt(parts[2]);
-        notes = parts[3];
+    public void loadFields(FieldReader fields) {
+        tableEntryID = fields.nextInt();
+        drugName = fields.nextString();
+        addQuantity = fields.nextInt();
+        notes = fields.nextString();
     }
 
     /**
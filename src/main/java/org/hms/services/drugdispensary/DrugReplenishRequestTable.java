@@ -2,6 +2,8 @@ package org.hms.services.drugdispensary;
 
 import org.hms.entities.AbstractTable;
 
+import java.util.List;
+
 /**
  * Represents a table for managing and storing drug replenish requests.
  * Provides functionality to handle entries, headers, and file operations
@@ -86,12 +88,13 @@ public class DrugReplenishRequestTable extends AbstractTable<DrugReplenishReques
      * This string is meant to be printed to the console.
      */
     public String toPrintString() {
-        StringBuilder printStringBuilder = new StringBuilder(entries.size() * 100);
+        List<DrugReplenishRequest> snapshot = snapshot();
+        StringBuilder printStringBuilder = new StringBuilder(snapshot.size() * 100);
         printStringBuilder.append("┌─────┬────────────────┬──────┬─────────────────────────────────────────────────────────────┐\n");
 //        printStringBuilder.append(String.format(formatString, "ID", "Name", "Qty", "Notes"));
         printStringBuilder.append(String.format(formatString, (Object[]) HEADERS));
         printStringBuilder.append("├─────┼────────────────┼──────┼─────────────────────────────────────────────────────────────┤\n");
-        for (DrugReplenishRequest entry : getEntries()) {
+        for (DrugReplenishRequest entry : snapshot) {
             printStringBuilder.append(entry.toPrintString(formatString));
         }
         printStringBuilder.append("└─────┴────────────────┴──────┴─────────────────────────────────────────────────────────────┘\n");
@@ -1,5 +1,7 @@
 package org.hms.services.logging;
 
+import org.hms.utils.DurableFiles;
+
 import java.io.*;
 import java.nio.file.*;
 import java.time.LocalDateTime;
@@ -90,12 +92,7 @@ public class AuditLogger {
                     action
             );
 
-            Files.write(
-                    Paths.get(AUDIT_LOG_FILE),
-                    logEntry.getBytes(),
-                    StandardOpenOption.APPEND,
-                    StandardOpenOption.CREATE
-            );
+            DurableFiles.append(Paths.get(AUDIT_LOG_FILE), logEntry.getBytes());
 
         } catch (IOException e) {
             System.err.println("Error writing to audit log: " + e.getMessage());
@@ -1,6 +1,8 @@
 package org.hms.services.medicalrecord;
 
 import org.hms.entities.AbstractTableEntry;
+import org.hms.entities.FieldReader;
+import org.hms.entities.FieldWriter;
 
 /**
  * The ContactInformation class represents the contact details of a patient,
@@ -74,6 +76,7 @@ public class ContactInformation extends AbstractTableEntry {
     // Setters for updates
     public void setPatientID(String patientID) {
         this.patientID = patientID;
+        markDirty();
     }
 
     /**
@@ -92,6 +95,7 @@ public class ContactInformation extends AbstractTableEntry {
      */
     public void setPhoneNumber(String phoneNumber) {
         this.phoneNumber = phoneNumber;
+        markDirty();
     }
 
     /**
@@ -110,6 +114,7 @@ public class ContactInformation extends AbstractTableEntry {
      */
     public void setEmail(String email) {
         this.email = email;
+        markDirty();
     }
 
     /**
@@ -128,24 +133,22 @@ public class ContactInformation extends AbstractTableEntry {
      */
     public void setAddress(String address) {
         this.address = address;
+        markDirty();
     }
 
     /**
-     * Converts the contact information to a CSV string representation.
-     * This includes the table entry ID, patient ID, phone number, email, and address,
-     * all separated by commas.
+     * Writes the contact information to a row.
+     * This includes the table entry ID, patient ID, phone number, email, and address.
      *
-     * @return a string containing the CSV representation of the contact information
+     * @param row the writer to append the fields to
      */
     @Override
-    public String toCSVString() {
-        return String.format("%s,%s,%s,%s,%s",
-                getTableEntryID(),
-                preprocessCSVString(patientID),
-                preprocessCSVString(phoneNumber),
-                preprocessCSVString(email),
-                preprocessCSVString(address)
-        );
+    public void writeFields(FieldWriter row) {
+        row.field(getTableEntryID())
+                .field(patientID)
+                .field(phoneNumber)
+                .field(email)
+                .field(address);
     }
 
     /**
@@ -153,16 +156,15 @@ public class ContactInformation extends AbstractTableEntry {
      * The CSV string is assumed to have the following format:
      * tableEntryID,patientID,phoneNumber,email,address
      *
-     * @param csvLine a CSV formatted string containing contact information.
+     * @param fields the reader to read the fields of this entry from
      */
     @Override
-    public void loadFromCSVString(String csvLine) {
-        String[] parts = parseCSVLine(csvLine);
-        tableEntryID = Integer.parseInt(parts[0]);
-        patientID = parts[1];
-        phoneNumber = parts[2];
-        email = parts[3];
-        address = parts[4];
+    public void loadFields(FieldReader fields) {
+        tableEntryID = fields.nextInt();
+        patientID = fields.nextString();
+        phoneNumber = fields.nextString();
+        email = fields.nextString();
+        address = fields.nextString();
     }
 
     /**
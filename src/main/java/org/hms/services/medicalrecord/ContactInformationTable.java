@@ -1,6 +1,10 @@
 package org.hms.services.medicalrecord;
 
 import org.hms.entities.AbstractTable;
+import org.hms.entities.IndexDefinition;
+
+import java.util.List;
+import java.util.function.Function;
 
 /**
  * This class represents a table of contact information, providing functionality
@@ -26,13 +30,18 @@ public class ContactInformationTable extends AbstractTable<ContactInformation> {
      */
     private static final String formatString = "│ %-6s│ %-11s│ %-12s│ %-25s│ %-30s│\n";
 
+    /**
+     * Key extractor for the index on the patient ID of each contact information entry.
+     */
+    public static final Function<ContactInformation, String> BY_PATIENT_ID = ContactInformation::getPatientID;
+
     /**
      * Constructs an instance of the ContactInformationTable.
      * This constructor invokes the superclass's constructor to initialize
      * the entries list and set the file path to an empty string.
      */
     public ContactInformationTable() {
-        super();
+        super(IndexDefinition.hash("patientID", BY_PATIENT_ID));
     }
 
     /**
@@ -41,7 +50,7 @@ public class ContactInformationTable extends AbstractTable<ContactInformation> {
      * @param filePath the path to the file containing the contact information data
      */
     public ContactInformationTable(String filePath) {
-        super();
+        this();
         this.filePath = filePath;
     }
 
@@ -85,11 +94,12 @@ public class ContactInformationTable extends AbstractTable<ContactInformation> {
      * borders and headers.
      */
     public String toPrintString() {
-        StringBuilder printStringBuilder = new StringBuilder(entries.size() * 100);
+        List<ContactInformation> snapshot = snapshot();
+        StringBuilder printStringBuilder = new StringBuilder(snapshot.size() * 100);
         printStringBuilder.append("┌───────┬────────────┬─────────────┬──────────────────────────┬───────────────────────────────┐\n");
         printStringBuilder.append(String.format(formatString, (Object[]) HEADERS));
         printStringBuilder.append("├───────┼────────────┼─────────────┼──────────────────────────┼───────────────────────────────┤\n");
-        for (ContactInformation entry : getEntries()) {
+        for (ContactInformation entry : snapshot) {
             printStringBuilder.append(entry.toPrintString(formatString));
         }
         printStringBuilder.append("└───────┴────────────┴─────────────┴──────────────────────────┴───────────────────────────────┘\n");
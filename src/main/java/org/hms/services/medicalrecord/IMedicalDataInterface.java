@@ -18,11 +18,12 @@ public interface IMedicalDataInterface extends IDataInterface {
     PatientTable getPatientTable();
 
     /**
-     * Retrieves the table containing medical records.
+     * Retrieves the medical record shards, which route each patient's medical entries to the table holding them.
+     * When the medical records are not sharded, a single table holds every entry.
      *
-     * @return A MedicalRecord table.
+     * @return the MedicalRecordShards of the medical records.
      */
-    MedicalRecord getMedicalRecordTable();
+    MedicalRecordShards getMedicalRecordShards();
 
     /**
      * Retrieves the ContactInformationTable, which contains and manages contact information entries
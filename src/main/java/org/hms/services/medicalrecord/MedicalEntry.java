@@ -2,6 +2,8 @@
 package org.hms.services.medicalrecord;
 
 import org.hms.entities.AbstractTableEntry;
+import org.hms.entities.FieldReader;
+import org.hms.entities.FieldWriter;
 import org.hms.services.appointment.AppointmentOutcome;
 
 import java.io.Serializable;
@@ -90,6 +92,23 @@ public class MedicalEntry extends AbstractTableEntry {
         this.consultationNotes = outcome.getConsultationNotes();
     }
 
+    /**
+     * Constructs a copy of a medical entry, with the same ID and details.
+     * Updates are made on a copy and then swapped into the table with replaceEntry,
+     * so that readers of the table never see an entry halfway through an update.
+     *
+     * @param other the medical entry to copy
+     */
+    public MedicalEntry(MedicalEntry other) {
+        super(other.getTableEntryID());
+        this.patientID = other.patientID;
+        this.doctorID = other.doctorID;
+        this.date = other.date;
+        this.diagnosis = other.diagnosis;
+        this.treatmentPlan = other.treatmentPlan;
+        this.consultationNotes = other.consultationNotes;
+    }
+
 
     /**
      * Retrieves the ID of the patient associated with this medical entry.
@@ -109,6 +128,7 @@ public class MedicalEntry extends AbstractTableEntry {
     // Setters
     public void setPatientID(String patientID) {
         this.patientID = patientID;
+        markDirty();
     }
 
     /**
@@ -127,6 +147,7 @@ public class MedicalEntry extends AbstractTableEntry {
      */
     public void setDoctorID(String doctorID) {
         this.doctorID = doctorID;
+        markDirty();
     }
 
     /**
@@ -145,6 +166,7 @@ public class MedicalEntry extends AbstractTableEntry {
      */
     public void setDate(String date) {
         this.date = date;
+        markDirty();
     }
 
     /**
@@ -163,6 +185,7 @@ public class MedicalEntry extends AbstractTableEntry {
      */
     public void setDiagnosis(String diagnosis) {
         this.diagnosis = diagnosis;
+        markDirty();
     }
 
     /**
@@ -181,6 +204,7 @@ public class MedicalEntry extends AbstractTableEntry {
      */
     public void setTreatmentPlan(String treatmentPlan) {
         this.treatmentPlan = treatmentPlan;
+        markDirty();
     }
 
     /**
@@ -199,41 +223,39 @@ public class MedicalEntry extends AbstractTableEntry {
      */
     public void setConsultationNotes(String consultationNotes) {
         this.consultationNotes = consultationNotes;
+        markDirty();
     }
 
     /**
-     * Converts the medical entry to a CSV string format.
+     * Writes the medical entry to a row. The patient ID is written in upper case.
      *
-     * @return a CSV string representation of the medical entry
+     * @param row the writer to append the fields to
      */
     @Override
-    public String toCSVString() {
-        return String.format("%s,%S,%s,%s,%s,%s,%s",
-                getTableEntryID(),
-                preprocessCSVString(getPatientID()),
-                preprocessCSVString(getDoctorID()),
-                preprocessCSVString(getDate()),
-                preprocessCSVString(getDiagnosis()),
-                preprocessCSVString(getTreatmentPlan()),
-                preprocessCSVString(getConsultationNotes())
-        );
+    public void writeFields(FieldWriter row) {
+        row.field(getTableEntryID())
+                .field(getPatientID().toUpperCase())
+                .field(getDoctorID())
+                .field(getDate())
+                .field(getDiagnosis())
+                .field(getTreatmentPlan())
+                .field(getConsultationNotes());
     }
 
     /**
      * Loads the medical entry details from a CSV formatted string.
      *
-     * @param csvLine a CSV formatted string containing the details of a medical entry
+     * @param fields the reader to read the fields of this entry from
      */
     @Override
-    public void loadFromCSVString(String csvLine) {
-        String[] parts = parseCSVLine(csvLine);
-        tableEntryID = Integer.parseInt(parts[0]);
-        patientID = parts[1];
-        doctorID = parts[2];
-        date = parts[3];
-        diagnosis = parts[4];
-        treatmentPlan = parts[5];
-        consultationNotes = parts[6];
+    public void loadFields(FieldReader fields) {
+        tableEntryID = fields.nextInt();
+        patientID = fields.nextString();
+        doctorID = fields.nextString();
+        date = fields.nextString();
+        diagnosis = fields.nextString();
+        treatmentPlan = fields.nextString();
+        consultationNotes = fields.nextString();
     }
 
     /**
@@ -3,12 +3,14 @@ package org.hms.services.medicalrecord;
 
 import org.hms.entities.AbstractTable;
 import org.hms.entities.BloodType;
+import org.hms.entities.IndexDefinition;
 import org.hms.services.appointment.AppointmentOutcome;
 import org.hms.services.drugdispensary.DrugInventoryEntry;
 
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * This class represents a medical record which contains a collection of medical entries.
@@ -34,13 +36,28 @@ public class MedicalRecord extends AbstractTable<MedicalEntry> {
      */
     private static final String formatString = "│ %-6s│ %-11s│ %-11s│ %-11s│ %-20s│ %-30s│ %-40s│\n";
 
+    /**
+     * Key extractor for the index on the patient ID of each medical entry.
+     * Searches must pass this exact instance to searchByAttribute or filterByAttribute to use the index.
+     */
+    public static final Function<MedicalEntry, String> BY_PATIENT_ID = MedicalEntry::getPatientID;
+    /**
+     * Key extractor for the index on the doctor ID of each medical entry.
+     */
+    public static final Function<MedicalEntry, String> BY_DOCTOR_ID = MedicalEntry::getDoctorID;
+    /**
+     * Key extractor for the sorted index on the date of each medical entry.
+     * Dates are stored as yyyy-MM-dd, so this index can also serve searchByRange.
+     */
+    public static final Function<MedicalEntry, String> BY_DATE = MedicalEntry::getDate;
+
     /**
      * Default constructor for the MedicalRecord class.
      * Initializes a new instance of MedicalRecord by calling the constructor
      * of its superclass AbstractTable with the parameterized type MedicalEntry.
      */
     public MedicalRecord() {
-        super();
+        this("");
     }
 
     /**
@@ -50,7 +67,22 @@ public class MedicalRecord extends AbstractTable<MedicalEntry> {
      * @param filePath the path to the CSV file containing medical records
      */
     public MedicalRecord(String filePath) {
-        super();
+        this(filePath, 0, 1);
+    }
+
+    /**
+     * Constructs a MedicalRecord instance with a specified file path, whose new entries are only given
+     * IDs from a sequence, so that they never collide with the IDs of entries held by other tables.
+     *
+     * @param filePath the path to the CSV file containing medical records
+     * @param firstID  the first ID given to a new entry
+     * @param idStride the step between two IDs given to new entries
+     */
+    protected MedicalRecord(String filePath, int firstID, int idStride) {
+        super(firstID, idStride,
+                IndexDefinition.hash("patientID", BY_PATIENT_ID),
+                IndexDefinition.hash("doctorID", BY_DOCTOR_ID),
+                IndexDefinition.sorted("date", BY_DATE));
         this.filePath = filePath;
     }
 
@@ -90,11 +122,12 @@ public class MedicalRecord extends AbstractTable<MedicalEntry> {
      * @return A string representing the medical record in a formatted table layout.
      */
     public String toPrintString() {
-        StringBuilder printStringBuilder = new StringBuilder(entries.size() * 100);
+        List<MedicalEntry> snapshot = snapshot();
+        StringBuilder printStringBuilder = new StringBuilder(snapshot.size() * 100);
         printStringBuilder.append("┌───────┬────────────┬────────────┬────────────┬─────────────────────┬───────────────────────────────┬─────────────────────────────────────────┐\n");
         printStringBuilder.append(String.format(formatString, (Object[]) HEADERS));
         printStringBuilder.append("├───────┼────────────┼────────────┼────────────┼─────────────────────┼───────────────────────────────┼─────────────────────────────────────────┤\n");
-        for (MedicalEntry entry : getEntries()) {
+        for (MedicalEntry entry : snapshot) {
             printStringBuilder.append(entry.toPrintString(formatString));
         }
         printStringBuilder.append("└───────┴────────────┴────────────┴────────────┴─────────────────────┴───────────────────────────────┴─────────────────────────────────────────┘\n");
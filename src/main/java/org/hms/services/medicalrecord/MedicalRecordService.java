@@ -6,7 +6,9 @@ import org.hms.services.AbstractService;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.function.Predicate;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
 
 /**
  * MedicalRecordService is responsible for managing medical records, personal
@@ -40,6 +42,10 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      * and managing medical records for patients within the system.
      */
     private static final String MEDICAL_RECORDS_CSV = DATA_DIRECTORY + "/medical_records.csv";
+    /**
+     * The number of locks patient-scoped updates are striped over.
+     */
+    private static final int PATIENT_LOCK_STRIPES = 64;
 
     /**
      * An in-memory table storing patient particulars including their ID, name, birth date, gender, and blood type.
@@ -54,11 +60,16 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      */
     private ContactInformationTable contactInformationTable;
     /**
-     * A reference to the table containing medical records.
-     * This table manages entries related to patients' medical history,
-     * treatments, diagnoses, and consultation notes.
+     * Routes each patient's medical entries, covering their medical history,
+     * treatments, diagnoses, and consultation notes, to the table holding them.
+     * Patient-scoped and entry-scoped operations only touch that one table.
+     */
+    private MedicalRecordShards medicalRecords;
+    /**
+     * Serializes the read-modify-write updates made to a single patient's medical entries and
+     * contact information, while letting updates to unrelated patients proceed in parallel.
      */
-    private MedicalRecord medicalRecordsTable;
+    private final StripedLocks patientLocks = new StripedLocks(PATIENT_LOCK_STRIPES);
 
     /**
      * Constructs an instance of MedicalRecordService which initializes necessary tables
@@ -71,7 +82,7 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
         this.storageServiceInterface = storageService;
         this.patientTable = storageServiceInterface.getPatientTable();
         this.contactInformationTable = storageServiceInterface.getContactInformationTable();
-        this.medicalRecordsTable = storageServiceInterface.getMedicalRecordTable();
+        this.medicalRecords = storageServiceInterface.getMedicalRecordShards();
     }
 
 
@@ -84,7 +95,7 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      * @return A string representation of the patient's medical record.
      */
     public String getPatientMedicalRecord(String patientID) {
-        MedicalRecord medicalRecord = (MedicalRecord) medicalRecordsTable.filterByAttribute(MedicalEntry::getPatientID, patientID);
+        MedicalRecord medicalRecord = (MedicalRecord) medicalRecords.forPatient(patientID).filterByAttribute(MedicalRecord.BY_PATIENT_ID, patientID);
         return medicalRecord.toPrintString();
     }
 
@@ -97,9 +108,10 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      */
     public String getPatientMedicalRecord(String doctorID, String patientID) {
         MedicalRecord medicalRecord =
-                (MedicalRecord) medicalRecordsTable
-                        .filterByAttribute(MedicalEntry::getPatientID, patientID)
-                        .filterByAttribute(MedicalEntry::getDoctorID, doctorID);
+                (MedicalRecord) medicalRecords.forPatient(patientID).query()
+                        .where(MedicalRecord.BY_PATIENT_ID, patientID)
+                        .where(MedicalRecord.BY_DOCTOR_ID, doctorID)
+                        .toTable();
         return medicalRecord.toPrintString();
     }
 
@@ -110,7 +122,7 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      * @return a formatted string representation of the medical record entry.
      */
     public String getMedicalRecordEntry(int entryID) {
-        MedicalRecord medicalRecord = (MedicalRecord) medicalRecordsTable.filterByAttribute(MedicalEntry::getTableEntryID, entryID);
+        MedicalRecord medicalRecord = (MedicalRecord) medicalRecords.forEntry(entryID).filterByEntryID(entryID);
         return medicalRecord.toPrintString();
     }
 
@@ -121,8 +133,9 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      * @return a list of integers representing the entry IDs of the patient's medical records
      */
     public List<Integer> getPatientMedicalRecordEntryIDs(String patientID) {
-        MedicalRecord medicalRecord = (MedicalRecord) medicalRecordsTable.filterByAttribute(MedicalEntry::getPatientID, patientID);
-        return medicalRecord.getValidEntryNumbers();
+        return medicalRecords.forPatient(patientID).query()
+                .where(MedicalRecord.BY_PATIENT_ID, patientID)
+                .ids();
     }
 
     /**
@@ -133,12 +146,10 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      * @return a list of integers representing the valid entry IDs in the patient's medical record
      */
     public List<Integer> getPatientMedicalRecordEntryIDs(String doctorID, String patientID) {
-        MedicalRecord medicalRecord =
-                (MedicalRecord) medicalRecordsTable
-                        .filterByAttribute(MedicalEntry::getDoctorID, doctorID)
-                        .filterByAttribute(MedicalEntry::getPatientID, patientID);
-
-        return medicalRecord.getValidEntryNumbers();
+        return medicalRecords.forPatient(patientID).query()
+                .where(MedicalRecord.BY_DOCTOR_ID, doctorID)
+                .where(MedicalRecord.BY_PATIENT_ID, patientID)
+                .ids();
     }
 
     /**
@@ -148,7 +159,7 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      * @return the PatientParticulars object containing the patient's personal details
      */
     public PatientParticulars getPersonalParticulars(String patientID) {
-        return patientTable.searchByAttribute(PatientParticulars::getPatientID, patientID).getFirst();
+        return patientTable.searchByAttribute(PatientTable.BY_PATIENT_ID, patientID).getFirst();
     }
 
     /**
@@ -158,7 +169,7 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      * @return a string representation of the patient's personal particulars in an ASCII table format
      */
     public String getPatientPersonalParticulars(String patientID) {
-        return ((PatientTable) (patientTable.filterByAttribute(PatientParticulars::getPatientID, patientID))).toPrintString();
+        return ((PatientTable) (patientTable.filterByAttribute(PatientTable.BY_PATIENT_ID, patientID))).toPrintString();
     }
 
     /**
@@ -172,8 +183,10 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      * @return true if the update was successful, false otherwise
      */
     public boolean updateOwnContactInfo(String patientID, String phone, String email, String address) {
+        Lock lock = patientLocks.forKey(patientID);
+        lock.lock();
         try {
-            ContactInformation newContact = contactInformationTable.searchByAttribute(ContactInformation::getPatientID, patientID).getFirst();
+            ContactInformation newContact = contactInformationTable.searchByAttribute(ContactInformationTable.BY_PATIENT_ID, patientID).getFirst();
             newContact.setPhoneNumber(phone);
             newContact.setEmail(email);
             newContact.setAddress(address);
@@ -185,6 +198,8 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
         } catch (Exception e) {
             System.err.println("Error updating contact info: " + e.getMessage());
             return false;
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -223,7 +238,10 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
             return false;
         }
 
+        Lock lock = patientLocks.forKey(patientID);
+        lock.lock();
         try {
+            MedicalRecord medicalRecordsTable = medicalRecords.forPatient(patientID);
             MedicalEntry newEntry = medicalRecordsTable.createValidEntryTemplate();
             newEntry.setPatientID(patientID);
             newEntry.setDoctorID(String.valueOf(doctorContext.getHospitalID()));
@@ -236,6 +254,8 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
         } catch (Exception e) {
             System.err.println("Error adding medical entry: " + e.getMessage());
             return false;
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -246,7 +266,7 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      * @return a formatted string representation of the patient's contact information
      */
     public String getPatientContactInformation(String patientID) {
-        ContactInformationTable patientEntry = (ContactInformationTable) contactInformationTable.filterByAttribute(ContactInformation::getPatientID, patientID);
+        ContactInformationTable patientEntry = (ContactInformationTable) contactInformationTable.filterByAttribute(ContactInformationTable.BY_PATIENT_ID, patientID);
         return patientEntry.toPrintString();
     }
 
@@ -260,7 +280,7 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      * @return the MedicalRecord of the patient matching the provided patientID
      */
     private MedicalRecord getMedicalRecord(String patientID) {
-        return (MedicalRecord) medicalRecordsTable.filterByAttribute(MedicalEntry::getPatientID, patientID);
+        return (MedicalRecord) medicalRecords.forPatient(patientID).filterByAttribute(MedicalRecord.BY_PATIENT_ID, patientID);
     }
 
     /**
@@ -270,7 +290,7 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      * @return the ContactInformation instance associated with the given patient ID
      */
     private ContactInformation getPatientContactInformationEntry(String patientID) {
-        return contactInformationTable.searchByAttribute(ContactInformation::getPatientID, patientID).getFirst();
+        return contactInformationTable.searchByAttribute(ContactInformationTable.BY_PATIENT_ID, patientID).getFirst();
     }
 
     /**
@@ -280,13 +300,7 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      * @param newPhoneNumber the new phone number to be set for the patient
      */
     public void updatePatientPhoneNumber(String patientID, String newPhoneNumber) {
-        ContactInformation contactInfo = getPatientContactInformationEntry(patientID);
-        contactInfo.setPhoneNumber(newPhoneNumber);
-        try {
-            contactInformationTable.replaceEntry(contactInfo);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        updateContactInformation(patientID, contactInfo -> contactInfo.setPhoneNumber(newPhoneNumber));
     }
 
     /**
@@ -296,13 +310,7 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      * @param newEmail  The new email address to update for the patient.
      */
     public void updatePatientEmail(String patientID, String newEmail) {
-        ContactInformation contactInfo = getPatientContactInformationEntry(patientID);
-        contactInfo.setEmail(newEmail);
-        try {
-            contactInformationTable.replaceEntry(contactInfo);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        updateContactInformation(patientID, contactInfo -> contactInfo.setEmail(newEmail));
     }
 
     /**
@@ -312,13 +320,7 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      * @param newAddress the new address to be set for the patient
      */
     public void updatePatientAddress(String patientID, String newAddress) {
-        ContactInformation contactInfo = getPatientContactInformationEntry(patientID);
-        contactInfo.setAddress(newAddress);
-        try {
-            contactInformationTable.replaceEntry(contactInfo);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        updateContactInformation(patientID, contactInfo -> contactInfo.setAddress(newAddress));
     }
 
     /**
@@ -328,8 +330,8 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      * @return An array of unique patient IDs that have been treated by the specified doctor.
      */
     public String[] getPatientIDsTreatedByDoctor(String doctorID) {
-        return medicalRecordsTable.searchByAttribute(MedicalEntry::getDoctorID, doctorID)
-                .stream()
+        return medicalRecords.all().stream()
+                .flatMap(table -> table.searchByAttribute(MedicalRecord.BY_DOCTOR_ID, doctorID).stream())
                 .map(MedicalEntry::getPatientID).
                 distinct().
                 toArray(String[]::new);
@@ -343,11 +345,7 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      */
     public String getPatientParticularsTreatedByDoctor(String doctorID) {
         List<String> patientIDs = Arrays.asList(getPatientIDsTreatedByDoctor(doctorID));
-
-        Predicate<String> isInPatientIDs = patientIDs::contains;
-
-        return ((PatientTable) patientTable.filterByCondition(PatientParticulars::getPatientID, isInPatientIDs)).toPrintString();
-
+        return ((PatientTable) patientTable.query().whereIn(PatientTable.BY_PATIENT_ID, patientIDs).toTable()).toPrintString();
     }
 
     /**
@@ -358,9 +356,10 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      * @return true if the patient has been treated by the doctor, otherwise false
      */
     public boolean isPatientTreatedByDoctor(String patientID, String doctorID) {
-        return medicalRecordsTable.searchByAttribute(MedicalEntry::getPatientID, patientID)
-                .stream()
-                .anyMatch(medicalEntry -> medicalEntry.getDoctorID().equals(doctorID));
+        return medicalRecords.forPatient(patientID).query()
+                .where(MedicalRecord.BY_PATIENT_ID, patientID)
+                .where(MedicalRecord.BY_DOCTOR_ID, doctorID)
+                .exists();
     }
 
     /**
@@ -370,7 +369,7 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      * @return true if a patient with the given patient ID exists, false otherwise
      */
     public boolean patientExists(String patientID) {
-        return !patientTable.searchByAttribute(PatientParticulars::getPatientID, patientID).isEmpty();
+        return !patientTable.searchByAttribute(PatientTable.BY_PATIENT_ID, patientID).isEmpty();
     }
 
     /**
@@ -380,13 +379,7 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      * @param diagnosis The new diagnosis to be set for the specified medical record entry.
      */
     public void updateDiagnosis(int entryID, String diagnosis) {
-        MedicalEntry medicalEntry = medicalRecordsTable.filterByAttribute(MedicalEntry::getTableEntryID, entryID).getEntry(entryID);
-        medicalEntry.setDiagnosis(diagnosis);
-        try {
-            medicalRecordsTable.replaceEntry(medicalEntry);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        updateMedicalEntry(entryID, medicalEntry -> medicalEntry.setDiagnosis(diagnosis));
     }
 
     /**
@@ -396,13 +389,7 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      * @param treatmentPlan the new treatment plan to be set for the medical record entry
      */
     public void updateTreatmentPlan(int entryID, String treatmentPlan) {
-        MedicalEntry medicalEntry = medicalRecordsTable.filterByAttribute(MedicalEntry::getTableEntryID, entryID).getEntry(entryID);
-        medicalEntry.setTreatmentPlan(treatmentPlan);
-        try {
-            medicalRecordsTable.replaceEntry(medicalEntry);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        updateMedicalEntry(entryID, medicalEntry -> medicalEntry.setTreatmentPlan(treatmentPlan));
     }
 
     /**
@@ -412,12 +399,75 @@ public class MedicalRecordService extends AbstractService<IMedicalDataInterface>
      * @param consultationNotes the new consultation notes to be recorded
      */
     public void updateConsultationNotes(int entryID, String consultationNotes) {
-        MedicalEntry medicalEntry = medicalRecordsTable.filterByAttribute(MedicalEntry::getTableEntryID, entryID).getEntry(entryID);
-        medicalEntry.setConsultationNotes(consultationNotes);
+        updateMedicalEntry(entryID, medicalEntry -> medicalEntry.setConsultationNotes(consultationNotes));
+    }
+
+    /**
+     * Applies an update to a medical entry and writes it back to the table, holding the lock of the
+     * entry's patient so that concurrent updates to the same patient cannot interleave.
+     * <p>
+     * The entry is read again once the lock is held, so that the update applies to the latest version of it,
+     * and the update is made on a copy that replaceEntry then swaps in, so that the entry in the table is never
+     * changed outside the write lock of the table.
+     * </p>
+     *
+     * @param entryID the unique identifier of the medical record entry to update
+     * @param update  the change to make to the entry
+     * @throws NoSuchElementException if there is no medical entry with the given ID
+     */
+    private void updateMedicalEntry(int entryID, Consumer<MedicalEntry> update) {
+        MedicalRecord medicalRecordsTable = medicalRecords.forEntry(entryID);
+        Lock lock = patientLocks.forKey(findMedicalEntry(medicalRecordsTable, entryID).getPatientID());
+        lock.lock();
         try {
-            medicalRecordsTable.replaceEntry(medicalEntry);
+            MedicalEntry updated = new MedicalEntry(findMedicalEntry(medicalRecordsTable, entryID));
+            update.accept(updated);
+            medicalRecordsTable.replaceEntry(updated);
+        } catch (RuntimeException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves a medical entry by ID, failing if it does not exist.
+     *
+     * @param medicalRecordsTable the table holding the entry
+     * @param entryID             the unique identifier of the medical record entry
+     * @return the medical entry
+     * @throws NoSuchElementException if there is no medical entry with the given ID
+     */
+    private static MedicalEntry findMedicalEntry(MedicalRecord medicalRecordsTable, int entryID) {
+        MedicalEntry medicalEntry = medicalRecordsTable.getEntry(entryID);
+        if (medicalEntry == null) {
+            throw new NoSuchElementException("No medical entry with ID " + entryID);
+        }
+        return medicalEntry;
+    }
+
+    /**
+     * Applies an update to a patient's contact information and writes it back to the table,
+     * holding the lock of the patient.
+     *
+     * @param patientID the unique identifier of the patient
+     * @param update    the change to make to the contact information
+     */
+    private void updateContactInformation(String patientID, Consumer<ContactInformation> update) {
+        Lock lock = patientLocks.forKey(patientID);
+        lock.lock();
+        try {
+            ContactInformation contactInfo = getPatientContactInformationEntry(patientID);
+            update.accept(contactInfo);
+            try {
+                contactInformationTable.replaceEntry(contactInfo);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        } finally {
+            lock.unlock();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,32 @@
+package org.hms.services.medicalrecord;
+
+import java.io.Serial;
+
+/**
+ * One shard of a sharded medical record, holding the entries of the patients whose ID hashes to it.
+ * <p>
+ * Entries imported from the unsharded medical record keep their IDs, which are all below the ID base of the
+ * sharded medical record. So that an entry created since can be found from its ID alone, such an entry is given
+ * an ID at or above the ID base that leaves the shard index as remainder once the ID base is subtracted and the
+ * result divided by the number of shards. New entries are given the lowest such ID not yet in use, which
+ * {@link #getUnusedID()} hands out under the write lock of the shard, like for any other table.
+ * </p>
+ *
+ * @see MedicalRecordShards
+ */
+class MedicalRecordShard extends MedicalRecord {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates an empty shard linked to the given file.
+     *
+     * @param filePath   the path to the CSV file of the shard
+     * @param shardIndex the index of this shard
+     * @param shardCount the total number of shards
+     * @param idBase     the lowest ID given to entries created in a shard
+     */
+    MedicalRecordShard(String filePath, int shardIndex, int shardCount, int idBase) {
+        super(filePath, idBase + shardIndex, shardCount);
+    }
+}
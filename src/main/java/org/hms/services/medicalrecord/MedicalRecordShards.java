@@ -0,0 +1,440 @@
+package org.hms.services.medicalrecord;
+
+import org.hms.utils.DurableFiles;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Routes medical entries to the table holding them, so that reading or writing one patient's history
+ * only touches a small part of the data.
+ * <p>
+ * With a single shard, every entry lives in one {@link MedicalRecord} backed by medical_records.csv.
+ * With several shards, each patient's entries live in the shard their patient ID hashes to, and each shard
+ * is its own journaled table and CSV file, loaded the first time it is used and saved independently of the others.
+ * </p>
+ * <p>
+ * The number of shards and the ID base are recorded in a layout file next to medical_records.csv, named after it
+ * with the ".csv" extension replaced by ".shards". The first time the medical record is sharded, the entries of
+ * medical_records.csv are split between the shard files, keeping their IDs, and the ID base is set above all of
+ * them. Entries created since are given IDs from the ID base up that identify their shard, so entry-scoped
+ * operations on them never need to load other shards, while finding an imported entry by ID alone loads every
+ * shard. If the number of shards changes, the existing shard files are split again into the new number of shards,
+ * and if the medical record stops being sharded, {@link #merge} writes them back into medical_records.csv.
+ * In both cases every entry keeps its ID.
+ * </p>
+ */
+public class MedicalRecordShards {
+    /**
+     * The number of shards and the ID base of a sharded medical record, as recorded in its layout file.
+     *
+     * @param shardCount the number of shards
+     * @param idBase     the lowest ID given to entries created in a shard, above the ID of every imported entry
+     */
+    private record Layout(int shardCount, int idBase) {
+        /**
+         * Reads the layout of a sharded medical record.
+         *
+         * @param layoutPath the path of the layout file
+         * @return the layout, or null if the medical record is not sharded
+         * @throws IOException if the layout file could not be read or is malformed
+         */
+        static Layout read(Path layoutPath) throws IOException {
+            if (!Files.exists(layoutPath)) {
+                return null;
+            }
+            String[] values = Files.readString(layoutPath, StandardCharsets.UTF_8).trim().split(",");
+            try {
+                return new Layout(Integer.parseInt(values[0].trim()), Integer.parseInt(values[1].trim()));
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Malformed medical record layout file " + layoutPath, e);
+            }
+        }
+
+        /**
+         * Writes this layout, replacing the previous one atomically.
+         *
+         * @param layoutPath the path of the layout file
+         * @throws IOException if the layout file could not be written
+         */
+        void write(Path layoutPath) throws IOException {
+            DurableFiles.replaceText(layoutPath, writer -> writer.write(shardCount + "," + idBase + System.lineSeparator()));
+        }
+    }
+
+    /**
+     * The number of shards.
+     */
+    private final int shardCount;
+    /**
+     * The shards, each null until it is first used.
+     */
+    private final AtomicReferenceArray<MedicalRecord> shards;
+    /**
+     * The path of the CSV file of each shard.
+     */
+    private final String[] shardPaths;
+    /**
+     * The lowest ID given to entries created in a shard. Entries below it were imported, and can be in any shard.
+     */
+    private final int idBase;
+    /**
+     * The number of journaled mutations after which a shard file is rewritten in full, or 0 not to journal.
+     */
+    private final int checkpointInterval;
+
+    /**
+     * Creates the router of a single, already loaded, medical record table.
+     *
+     * @param table the table holding every medical entry
+     */
+    private MedicalRecordShards(MedicalRecord table) {
+        this.shardCount = 1;
+        this.shards = new AtomicReferenceArray<>(new MedicalRecord[]{table});
+        // The table is already loaded, so its path is never needed.
+        this.shardPaths = new String[1];
+        this.idBase = 0;
+        this.checkpointInterval = 0;
+    }
+
+    /**
+     * Creates the router of a set of lazily loaded shard files.
+     *
+     * @param shardPaths         the path of the CSV file of each shard
+     * @param idBase             the lowest ID given to entries created in a shard
+     * @param checkpointInterval the number of journaled mutations after which a shard file is rewritten in full
+     */
+    private MedicalRecordShards(String[] shardPaths, int idBase, int checkpointInterval) {
+        this.shardCount = shardPaths.length;
+        this.shards = new AtomicReferenceArray<>(shardCount);
+        this.shardPaths = shardPaths;
+        this.idBase = idBase;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Wraps a single medical record table, which then holds every entry.
+     *
+     * @param table the table holding every medical entry
+     * @return a router with a single shard
+     */
+    public static MedicalRecordShards single(MedicalRecord table) {
+        return new MedicalRecordShards(table);
+    }
+
+    /**
+     * Opens a sharded medical record next to the given CSV file. Shard i of n is stored in the file
+     * named after it, with ".shard-i-of-n" inserted before the extension.
+     * <p>
+     * If the medical record is not sharded yet, the shard files are created from the entries of the given file.
+     * If it is sharded into a different number of shards, the shard files are created from the existing ones,
+     * which are then deleted. The layout file is only updated once every new shard file is written, so an
+     * interrupted split is simply done again the next time the medical record is opened.
+     * </p>
+     *
+     * @param csvPath            the path of the unsharded medical records CSV file
+     * @param shardCount         the number of shards, at least 2
+     * @param checkpointInterval the number of journaled mutations after which a shard file is rewritten in full
+     * @return a router over the shards, none of which is loaded yet
+     * @throws IllegalArgumentException if shardCount is less than 2
+     * @throws IOException              if the shard files could not be read or created
+     */
+    public static MedicalRecordShards open(String csvPath, int shardCount, int checkpointInterval) throws IOException {
+        if (shardCount < 2) {
+            throw new IllegalArgumentException("A sharded medical record needs at least 2 shards");
+        }
+        String base = baseOf(csvPath);
+        Path layoutPath = Paths.get(base + ".shards");
+        Layout layout = Layout.read(layoutPath);
+        String[] shardPaths = shardPaths(base, shardCount);
+        if (layout != null && layout.shardCount() == shardCount) {
+            return new MedicalRecordShards(shardPaths, layout.idBase(), checkpointInterval);
+        }
+
+        List<MedicalEntry> entries;
+        if (layout != null) {
+            entries = readShards(shardPaths(base, layout.shardCount()));
+        } else if (Files.exists(Paths.get(csvPath))) {
+            entries = readTable(csvPath);
+        } else {
+            entries = List.of();
+        }
+        int idBase = split(entries, shardPaths, csvPath);
+        new Layout(shardCount, idBase).write(layoutPath);
+        if (layout != null) {
+            deleteShards(shardPaths(base, layout.shardCount()));
+        }
+        return new MedicalRecordShards(shardPaths, idBase, checkpointInterval);
+    }
+
+    /**
+     * Writes the entries of a sharded medical record back into the unsharded CSV file, keeping their IDs,
+     * and deletes the shard files. Has no effect if the medical record is not sharded.
+     * <p>
+     * medical_records.csv is left untouched while the medical record is sharded, so it must be merged
+     * before being used again as the only medical record file.
+     * </p>
+     *
+     * @param csvPath the path of the unsharded medical records CSV file
+     * @throws IOException if the shard files could not be read, or the CSV file could not be written
+     */
+    public static void merge(String csvPath) throws IOException {
+        String base = baseOf(csvPath);
+        Path layoutPath = Paths.get(base + ".shards");
+        Layout layout = Layout.read(layoutPath);
+        if (layout == null) {
+            return;
+        }
+        String[] shardPaths = shardPaths(base, layout.shardCount());
+        MedicalRecord merged = new MedicalRecord();
+        try {
+            for (MedicalEntry entry : readShards(shardPaths)) {
+                merged.addEntry(entry);
+            }
+        } catch (Exception e) {
+            throw new IOException("Could not merge the shards of " + csvPath, e);
+        }
+        merged.saveToFile(csvPath);
+        // The journal of the CSV file was already replayed into the shards when they were created.
+        Files.deleteIfExists(Paths.get(csvPath + ".journal"));
+        Files.delete(layoutPath);
+        deleteShards(shardPaths);
+    }
+
+    /**
+     * Splits entries between new shard files by patient, keeping their IDs.
+     * Any shard file or journal left over from an interrupted split is replaced.
+     *
+     * @param entries    the entries to split
+     * @param shardPaths the path of the CSV file of each shard
+     * @param csvPath    the path of the unsharded medical records CSV file, for error messages
+     * @return the ID base of the shards, above the ID of every entry
+     * @throws IOException if the shard files could not be written
+     */
+    private static int split(List<MedicalEntry> entries, String[] shardPaths, String csvPath) throws IOException {
+        MedicalRecord[] targets = new MedicalRecord[shardPaths.length];
+        for (int i = 0; i < shardPaths.length; i++) {
+            // Built in memory, then written once.
+            targets[i] = new MedicalRecord();
+        }
+        int idBase = 0;
+        try {
+            for (MedicalEntry entry : entries) {
+                targets[shardOf(entry.getPatientID(), shardPaths.length)].addEntry(entry);
+                idBase = Math.max(idBase, entry.getTableEntryID() + 1);
+            }
+        } catch (Exception e) {
+            throw new IOException("Could not split " + csvPath + " into shards", e);
+        }
+        for (int i = 0; i < shardPaths.length; i++) {
+            Files.deleteIfExists(Paths.get(shardPaths[i] + ".journal"));
+            targets[i].saveToFile(shardPaths[i]);
+        }
+        return idBase;
+    }
+
+    /**
+     * Reads every entry of a set of shard files, replaying their journals.
+     *
+     * @param shardPaths the path of the CSV file of each shard
+     * @return the entries of every shard
+     * @throws IOException if a shard file could not be read
+     */
+    private static List<MedicalEntry> readShards(String[] shardPaths) throws IOException {
+        List<MedicalEntry> entries = new ArrayList<>();
+        for (String shardPath : shardPaths) {
+            if (Files.exists(Paths.get(shardPath))) {
+                entries.addAll(readTable(shardPath));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Reads every entry of a medical records CSV file, replaying its journal if it has one.
+     *
+     * @param path the path of the CSV file
+     * @return the entries of the file
+     * @throws IOException if the file could not be read
+     */
+    private static List<MedicalEntry> readTable(String path) throws IOException {
+        MedicalRecord table = new MedicalRecord(path);
+        if (Files.exists(Paths.get(path + ".journal"))) {
+            table.enableJournal(Integer.MAX_VALUE);
+        }
+        table.loadFromFile();
+        return table.snapshot();
+    }
+
+    /**
+     * Deletes a set of shard files and their journals.
+     *
+     * @param shardPaths the path of the CSV file of each shard
+     * @throws IOException if a file could not be deleted
+     */
+    private static void deleteShards(String[] shardPaths) throws IOException {
+        for (String shardPath : shardPaths) {
+            Files.deleteIfExists(Paths.get(shardPath));
+            Files.deleteIfExists(Paths.get(shardPath + ".journal"));
+        }
+    }
+
+    /**
+     * Computes the path shared by the files of a sharded medical record, without its extension.
+     *
+     * @param csvPath the path of the unsharded medical records CSV file
+     * @return the path without the ".csv" extension
+     */
+    private static String baseOf(String csvPath) {
+        return csvPath.endsWith(".csv") ? csvPath.substring(0, csvPath.length() - 4) : csvPath;
+    }
+
+    /**
+     * Computes the path of the CSV file of each shard.
+     *
+     * @param base       the path shared by the files of the sharded medical record
+     * @param shardCount the number of shards
+     * @return the path of each shard file
+     */
+    private static String[] shardPaths(String base, int shardCount) {
+        String[] shardPaths = new String[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shardPaths[i] = base + ".shard-" + i + "-of-" + shardCount + ".csv";
+        }
+        return shardPaths;
+    }
+
+    /**
+     * Computes the shard a patient's entries are stored in.
+     *
+     * @param patientID  the unique identifier of the patient
+     * @param shardCount the number of shards
+     * @return the index of the patient's shard
+     */
+    static int shardOf(String patientID, int shardCount) {
+        int hash = patientID.hashCode();
+        // Fold the high bits in, so that the shard does not only depend on the last characters of the ID.
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, shardCount);
+    }
+
+    /**
+     * Retrieves the number of shards.
+     *
+     * @return the number of shards, 1 if the medical record is not sharded
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Retrieves the table holding the entries of the given patient, loading it if needed.
+     *
+     * @param patientID the unique identifier of the patient
+     * @return the table holding every entry of the patient
+     */
+    public MedicalRecord forPatient(String patientID) {
+        return shard(shardOf(patientID, shardCount));
+    }
+
+    /**
+     * Retrieves the table an entry with the given ID is stored in, loading it if needed.
+     * The shard of an entry created in a shard follows from its ID. An entry imported from the unsharded
+     * medical record kept its ID, which does not, so every shard is loaded to find it.
+     *
+     * @param entryID the ID of the medical entry
+     * @return the table that holds the entry, if it exists
+     */
+    public MedicalRecord forEntry(int entryID) {
+        if (entryID >= idBase) {
+            return shard(Math.floorMod(entryID - idBase, shardCount));
+        }
+        for (MedicalRecord table : all()) {
+            if (table.getEntry(entryID) != null) {
+                return table;
+            }
+        }
+        return shard(0);
+    }
+
+    /**
+     * Retrieves every shard, loading those not loaded yet. Only needed by operations that are not scoped
+     * to a patient or an entry, such as listing the patients of a doctor.
+     *
+     * @return the tables of every shard
+     */
+    public List<MedicalRecord> all() {
+        List<MedicalRecord> tables = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            tables.add(shard(i));
+        }
+        return tables;
+    }
+
+    /**
+     * Retrieves the shards that have been loaded so far, for instance to flush them.
+     *
+     * @return the tables of the loaded shards
+     */
+    public List<MedicalRecord> loaded() {
+        List<MedicalRecord> tables = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            MedicalRecord table = shards.get(i);
+            if (table != null) {
+                tables.add(table);
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Retrieves a shard, loading it from its file the first time it is used.
+     *
+     * @param index the index of the shard
+     * @return the table of the shard
+     */
+    private MedicalRecord shard(int index) {
+        MedicalRecord table = shards.get(index);
+        if (table != null) {
+            return table;
+        }
+        synchronized (this) {
+            table = shards.get(index);
+            if (table == null) {
+                table = loadShard(index);
+                shards.set(index, table);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Loads a shard from its file, or creates the file with an empty table if it does not exist yet.
+     *
+     * @param index the index of the shard
+     * @return the loaded table of the shard
+     * @throws RuntimeException if the shard file could not be read or created
+     */
+    private MedicalRecord loadShard(int index) {
+        MedicalRecordShard table = new MedicalRecordShard(shardPaths[index], index, shardCount, idBase);
+        if (checkpointInterval > 0) {
+            table.enableJournal(checkpointInterval);
+        }
+        try {
+            if (Files.exists(Paths.get(shardPaths[index]))) {
+                table.loadFromFile();
+            } else {
+                table.saveToFile();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return table;
+    }
+}
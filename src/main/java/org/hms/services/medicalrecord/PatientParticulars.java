@@ -2,9 +2,12 @@ package org.hms.services.medicalrecord;
 
 import org.hms.entities.AbstractTableEntry;
 import org.hms.entities.BloodType;
+import org.hms.entities.FieldReader;
+import org.hms.entities.FieldWriter;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.ZoneId;
 import java.util.Date;
 
 /**
@@ -170,47 +173,36 @@ public class PatientParticulars extends AbstractTableEntry {
     }
 
     /**
-     * Converts the patient's particulars to a CSV string format. Each field is
-     * converted to a string and concatenated with commas. Fields containing commas
+     * Writes the patient's particulars to a row. Fields containing commas
      * are enclosed in double quotes, and any existing double quotes within fields
-     * are doubled.
+     * are doubled. The date of birth is written in yyyy-MM-dd format.
      *
-     * @return a CSV formatted string representing the patient's particulars
+     * @param row the writer to append the fields to
      */
     @Override
-    public String toCSVString() {
-        // Entries have to be converted to Strings
-        // Convert Date to String
-        String dateString = new SimpleDateFormat("yyyy-MM-dd").format(dateOfBirth);
-        return String.format("%s,%s,%s,%s,%s,%s",
-                getTableEntryID(),
-                preprocessCSVString(patientID),
-                preprocessCSVString(name),
-                preprocessCSVString(dateString),
-                preprocessCSVString(gender),
-                bloodType
-        );
+    public void writeFields(FieldWriter row) {
+        row.field(getTableEntryID())
+                .field(patientID)
+                .field(name)
+                .field(dateOfBirth.toInstant().atZone(ZoneId.systemDefault()).toLocalDate())
+                .field(gender)
+                .field(bloodType);
     }
 
     /**
      * Loads the patient particulars from a given CSV string.
      *
-     * @param csvLine the CSV string containing patient particulars data.
-     *                Expected format: "entryID,patientID,name,dateOfBirth,gender,bloodType".
+     * @param fields the reader to read the fields of this entry from
      */
     @Override
-    public void loadFromCSVString(String csvLine) {
-        String[] parts = csvLine.split(",");
-        tableEntryID = Integer.parseInt(parts[0]);
-        patientID = parts[1];
-        name = parts[2];
-        try {
-            dateOfBirth = new SimpleDateFormat("yyyy-MM-dd").parse(parts[3]);
-        } catch (ParseException e) {
-            throw new RuntimeException(e);
-        }
-        gender = parts[4];
-        bloodType = BloodType.valueOf(parts[5]);
+    public void loadFields(FieldReader fields) {
+        tableEntryID = fields.nextInt();
+        patientID = fields.nextString();
+        name = fields.nextString();
+        // Midnight in the default time zone, the same instant SimpleDateFormat would have parsed.
+        dateOfBirth = Date.from(fields.nextLocalDate().atStartOfDay(ZoneId.systemDefault()).toInstant());
+        gender = fields.nextString();
+        bloodType = fields.nextEnum(BloodType.class);
     }
 
     /**
@@ -2,9 +2,12 @@ package org.hms.services.medicalrecord;
 
 import org.hms.entities.AbstractTable;
 import org.hms.entities.BloodType;
+import org.hms.entities.IndexDefinition;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.function.Function;
 
 /**
  * The PatientTable class extends AbstractTable to provide a specialized table for patient particulars.
@@ -31,12 +34,17 @@ public class PatientTable extends AbstractTable<PatientParticulars> {
      */
     private static final String formatString = "│ %-6s│ %-11s│ %-15s│ %-11s│ %-8s│ %-10s│\n";
 
+    /**
+     * Key extractor for the index on the patient ID of each patient's particulars.
+     */
+    public static final Function<PatientParticulars, String> BY_PATIENT_ID = PatientParticulars::getPatientID;
+
     /**
      * Default constructor for the PatientTable class.
      * Initializes the PatientTable by calling the superclass constructor.
      */
     public PatientTable() {
-        super();
+        super(IndexDefinition.hash("patientID", BY_PATIENT_ID));
     }
 
     /**
@@ -45,7 +53,7 @@ public class PatientTable extends AbstractTable<PatientParticulars> {
      * @param filePath the path to the CSV file containing patient particulars data
      */
     public PatientTable(String filePath) {
-        super();
+        this();
         this.filePath = filePath;
     }
 
@@ -95,11 +103,12 @@ public class PatientTable extends AbstractTable<PatientParticulars> {
      * This string is meant to be printed to the console.
      */
     public String toPrintString() {
-        StringBuilder printStringBuilder = new StringBuilder(entries.size() * 100);
+        List<PatientParticulars> snapshot = snapshot();
+        StringBuilder printStringBuilder = new StringBuilder(snapshot.size() * 100);
         printStringBuilder.append("┌───────┬────────────┬────────────────┬────────────┬─────────┬───────────┐\n");
         printStringBuilder.append(String.format(formatString, (Object[]) HEADERS));
         printStringBuilder.append("├───────┼────────────┼────────────────┼────────────┼─────────┼───────────┤\n");
-        for (PatientParticulars entry : getEntries()) {
+        for (PatientParticulars entry : snapshot) {
             printStringBuilder.append(entry.toPrintString(formatString));
         }
         printStringBuilder.append("└───────┴────────────┴────────────────┴────────────┴─────────┴───────────┘\n");
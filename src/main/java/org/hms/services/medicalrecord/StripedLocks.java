@@ -0,0 +1,61 @@
+package org.hms.services.medicalrecord;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks shared out between keys by hash, so that work on one key is serialized
+ * without creating, or ever cleaning up, a lock per key.
+ * <p>
+ * Two keys share a lock only if their hashes fall in the same stripe, so work on unrelated keys
+ * runs in parallel except for occasional collisions, while work on the same key always waits its turn.
+ * </p>
+ */
+final class StripedLocks {
+    /**
+     * The locks, one per stripe. The number of stripes is a power of two.
+     */
+    private final Lock[] stripes;
+
+    /**
+     * Creates a set of striped locks.
+     *
+     * @param stripeCount the minimum number of stripes, rounded up to a power of two
+     * @throws IllegalArgumentException if stripeCount is not positive
+     */
+    StripedLocks(int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        int size = Integer.highestOneBit(stripeCount);
+        if (size < stripeCount) {
+            size <<= 1;
+        }
+        stripes = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Retrieves the lock guarding the given key. The same key always maps to the same lock.
+     *
+     * @param key the key to lock, which must not be null
+     * @return the lock of the key's stripe
+     */
+    Lock forKey(Object key) {
+        int hash = key.hashCode();
+        // Spread the high bits down, since only the low bits select the stripe.
+        hash ^= hash >>> 16;
+        return stripes[hash & (stripes.length - 1)];
+    }
+
+    /**
+     * Retrieves the number of stripes.
+     *
+     * @return the number of locks
+     */
+    int getStripeCount() {
+        return stripes.length;
+    }
+}
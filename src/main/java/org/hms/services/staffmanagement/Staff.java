@@ -1,6 +1,8 @@
 package org.hms.services.staffmanagement;
 
 import org.hms.entities.AbstractTableEntry;
+import org.hms.entities.FieldReader;
+import org.hms.entities.FieldWriter;
 
 /**
  * The Staff class represents a staff member with relevant details, such as staff ID, age, name, role, status, and gender.
@@ -98,6 +100,7 @@ public class Staff extends AbstractTableEntry {
      */
     public void setStaffId(String staffId) {
         this.staffId = staffId;
+        markDirty();
     }
 
     /**
@@ -116,6 +119,7 @@ public class Staff extends AbstractTableEntry {
      */
     public void setAge(int age) {
         this.age = age;
+        markDirty();
     }
 
     /**
@@ -134,6 +138,7 @@ public class Staff extends AbstractTableEntry {
      */
     public void setName(String name) {
         this.name = name;
+        markDirty();
     }
 
     /**
@@ -152,6 +157,7 @@ public class Staff extends AbstractTableEntry {
      */
     public void setRole(String role) {
         this.role = role;
+        markDirty();
     }
 
     /**
@@ -170,6 +176,7 @@ public class Staff extends AbstractTableEntry {
      */
     public void setStatus(String status) {
         this.status = status;
+        markDirty();
     }
 
     /**
@@ -188,6 +195,7 @@ public class Staff extends AbstractTableEntry {
      */
     public void setGender(String gender) {
         this.gender = gender;
+        markDirty();
     }
 
     /**
@@ -201,40 +209,37 @@ public class Staff extends AbstractTableEntry {
 
 
     /**
-     * Converts the staff member's attributes to a CSV-formatted string, excluding the table entry ID.
+     * Writes the staff member's attributes to a row, excluding the table entry ID.
      *
-     * @return a CSV-formatted string representing the staff member's details
+     * @param row the writer to append the fields to
      */
     @Override
-    public String toCSVString() {
+    public void writeFields(FieldWriter row) {
         // Exclude tableEntryID from the CSV file
-        return String.format("%s,%d,%s,%s,%s,%s",
-                staffId,
-                age,
-                preprocessCSVString(name),
-                preprocessCSVString(role),
-                preprocessCSVString(status),
-                preprocessCSVString(gender));
+        row.field(staffId)
+                .field(age)
+                .field(name)
+                .field(role)
+                .field(status)
+                .field(gender);
     }
 
     /**
      * Loads the staff member details from a CSV-formatted string and assigns them to the corresponding fields.
      *
-     * @param csvLine a single line in CSV format containing staff member details
+     * @param fields the reader to read the fields of this entry from
      */
     @Override
-    public void loadFromCSVString(String csvLine) {
-        String[] parts = parseCSVLine(csvLine);
-
+    public void loadFields(FieldReader fields) {
         // Assign a new tableEntryID for each loaded staff member
         this.tableEntryID = nextTableEntryID++;
 
-        this.staffId = parts[0];
-        this.age = Integer.parseInt(parts[1]);
-        this.name = parts[2];
-        this.role = parts[3];
-        this.status = parts[4];
-        this.gender = parts[5];
+        this.staffId = fields.nextString();
+        this.age = fields.nextInt();
+        this.name = fields.nextString();
+        this.role = fields.nextString();
+        this.status = fields.nextString();
+        this.gender = fields.nextString();
     }
 
     /**
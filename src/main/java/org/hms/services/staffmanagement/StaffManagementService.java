@@ -36,8 +36,7 @@ public class StaffManagementService extends AbstractService<IDrugStockDataInterf
      * @return true if the staff was added successfully, false otherwise
      */
     public boolean addStaff(Staff staff) {
-        if (staffTable.getEntries().stream()
-                .anyMatch(existingStaff -> existingStaff.getStaffId().equals(staff.getStaffId()))) {
+        if (getStaffByStaffId(staff.getStaffId()) != null) {
             System.err.println("Error adding staff: Duplicate staffId " + staff.getStaffId());
             return false;
         }
@@ -92,10 +91,8 @@ public class StaffManagementService extends AbstractService<IDrugStockDataInterf
      * @return the Staff object if found, otherwise null
      */
     public Staff getStaffByStaffId(String staffId) {
-        return staffTable.getEntries().stream()
-                .filter(staff -> staff.getStaffId().equals(staffId))
-                .findFirst()
-                .orElse(null);
+        List<Staff> matches = staffTable.searchByAttribute(StaffTable.BY_STAFF_ID, staffId);
+        return matches.isEmpty() ? null : matches.getFirst();
     }
 
     /**
@@ -104,7 +101,7 @@ public class StaffManagementService extends AbstractService<IDrugStockDataInterf
      * @return a List of Staff objects with a status of "active"
      */
     public List<Staff> listAllActiveStaff() {
-        return staffTable.getEntries().stream()
+        return staffTable.snapshot().stream()
                 .filter(staff -> "active".equalsIgnoreCase(staff.getStatus())) // Case-insensitive comparison
                 .collect(Collectors.toList());
     }
@@ -112,10 +109,11 @@ public class StaffManagementService extends AbstractService<IDrugStockDataInterf
     /**
      * Lists all staff entries without filtering.
      *
-     * @return a List of all Staff objects in the staff table
+     * @return an immutable snapshot of all Staff objects in the staff table; the Staff objects are those of the
+     * table, so changes made to them in place are seen through the snapshot
      */
     public List<Staff> listAllStaff() {
-        return staffTable.getEntries();
+        return staffTable.snapshot();
     }
 
     /**
@@ -198,7 +196,7 @@ public class StaffManagementService extends AbstractService<IDrugStockDataInterf
      * @return a List of Staff objects that match the search criteria
      */
     public List<Staff> searchStaff(String criteria, String value, int minAge, int maxAge) {
-        return staffTable.getEntries().stream()
+        return staffTable.snapshot().stream()
                 .filter(staff -> {
                     switch (criteria.toLowerCase()) {
                         case "role":
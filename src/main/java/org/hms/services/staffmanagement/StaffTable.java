@@ -1,14 +1,18 @@
 package org.hms.services.staffmanagement;
 
 import org.hms.entities.AbstractTable;
+import org.hms.entities.IndexDefinition;
 import org.hms.entities.User;
 import org.hms.entities.UserRole;
+import org.hms.utils.DurableFiles;
 
 import java.io.*;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * The StaffTable class extends the AbstractTable class to manage staff data,
@@ -31,13 +35,18 @@ public class StaffTable extends AbstractTable<Staff> {
      */
     private static final String USERS_FILE = dataRoot + "users.csv";
 
+    /**
+     * Key extractor for the index on the staff ID of each staff member.
+     */
+    public static final Function<Staff, String> BY_STAFF_ID = Staff::getStaffId;
+
     /**
      * Default constructor for the StaffTable class.
      * Initializes a new instance by invoking the superclass's constructor
      * to set up necessary fields and structures for managing staff entries.
      */
     public StaffTable() {
-        super();
+        super(IndexDefinition.hash("staffId", BY_STAFF_ID));
     }
 
     /**
@@ -46,7 +55,7 @@ public class StaffTable extends AbstractTable<Staff> {
      * @param filePath the file path where the staff data will be stored or loaded from
      */
     public StaffTable(String filePath) {
-        super();
+        this();
         this.filePath = filePath;
     }
 
@@ -95,6 +104,27 @@ public class StaffTable extends AbstractTable<Staff> {
         return new StaffTable();
     }
 
+    /**
+     * Staff members are numbered in the order they are loaded, so the staff file is always loaded on one thread.
+     *
+     * @return false
+     */
+    @Override
+    protected boolean supportsParallelLoad() {
+        return false;
+    }
+
+    /**
+     * Staff members are given a new table entry ID whenever they are loaded, so the staff table
+     * cannot be journaled or written to a binary snapshot.
+     *
+     * @return false
+     */
+    @Override
+    protected boolean entriesKeepIDs() {
+        return false;
+    }
+
     /**
      * Saves the StaffTable to the designated file.
      * <p>
@@ -155,16 +185,18 @@ public class StaffTable extends AbstractTable<Staff> {
      * @param users a map containing users to be saved, where the key is the user's ID and the value is the User object
      */
     private void saveUsers(Map<String, User> users) {
-        try (PrintWriter writer = new PrintWriter(USERS_FILE)) {
-            writer.println("id,password,role,isFirstLogin");
-            for (User user : users.values()) {
-                writer.printf("%s,%s,%s,%b%n",
-                        user.getId(),
-                        user.getPassword(),
-                        user.getRole().toString(),
-                        user.isFirstLogin()
-                );
-            }
+        try {
+            DurableFiles.replaceText(Paths.get(USERS_FILE), writer -> {
+                writer.write("id,password,role,isFirstLogin" + System.lineSeparator());
+                for (User user : users.values()) {
+                    writer.write(String.format("%s,%s,%s,%b%n",
+                            user.getId(),
+                            user.getPassword(),
+                            user.getRole().toString(),
+                            user.isFirstLogin()
+                    ));
+                }
+            });
         } catch (IOException e) {
             System.out.println("Error saving users: " + e.getMessage());
         }
@@ -179,7 +211,6 @@ public class StaffTable extends AbstractTable<Staff> {
     public void addEntry(Staff staff) {
         try {
             super.addEntry(staff);
-            saveToFile();
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -199,15 +230,11 @@ public class StaffTable extends AbstractTable<Staff> {
      */
     @Override
     public boolean removeEntry(int tableEntryID) {
-        Staff staff = getEntries().stream()
-                .filter(entry -> entry.getTableEntryID() == tableEntryID)
-                .findFirst()
-                .orElse(null);
+        Staff staff = getEntry(tableEntryID);
 
         if (staff != null) {
             try {
-                super.removeEntry(tableEntryID); // Call parent class method
-                saveToFile(); // Ensure users.csv is updated
+                super.removeEntry(tableEntryID); // Call parent class method, which persists the removal
 
                 Map<String, User> users = loadUsers();
                 users.remove(staff.getStaffId());
@@ -0,0 +1,228 @@
+package org.hms.services.storage;
+
+import org.hms.services.appointment.AppointmentSchedule;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * An in-memory index of the available slots of every schedule, so that the earliest available slot over many days
+ * can be found without loading their schedule files.
+ * <p>
+ * The index keeps, for each date, which time slots each doctor is available at, as bitsets in the same order as the
+ * rows of the schedule. Dates are kept sorted, and since they are in yyyyMMdd format, their string order is also
+ * their chronological order. The availability of a date is replaced as a whole whenever its schedule file is written,
+ * and is never changed in place, so searches can run while another thread updates the index.
+ * </p>
+ * <p>
+ * Like {@link ScheduleCache}, the index remembers the modification time and size of the file each date was taken
+ * from, so that callers can tell with {@link #isCurrent} whether the file has been changed since.
+ * </p>
+ */
+final class AvailabilityIndex {
+    /**
+     * The available slots of one date, as they were when its schedule file was last read or written.
+     */
+    private static final class DayAvailability {
+        /**
+         * The modification time of the schedule file.
+         */
+        private final FileTime lastModified;
+        /**
+         * The size of the schedule file in bytes.
+         */
+        private final long size;
+        /**
+         * The time slot of each row.
+         */
+        private final String[] timeSlots;
+        /**
+         * The minute of the day each row starts at, or -1 if its time slot is not a time.
+         */
+        private final int[] minutes;
+        /**
+         * Maps each doctor ID to the rows where the doctor is available.
+         */
+        private final Map<String, BitSet> availableByDoctor;
+        /**
+         * The rows where at least one doctor is available.
+         */
+        private final BitSet availableToAny;
+        /**
+         * For each row, the first doctor available then, or null if none is.
+         */
+        private final String[] firstAvailableDoctor;
+
+        /**
+         * Takes the available slots of a schedule.
+         *
+         * @param schedule   the schedule of the date
+         * @param attributes the attributes of the schedule file when the schedule was read or written
+         */
+        private DayAvailability(AppointmentSchedule schedule, BasicFileAttributes attributes) {
+            lastModified = attributes.lastModifiedTime();
+            size = attributes.size();
+            int rows = schedule.getTimeSlotCount();
+            timeSlots = new String[rows];
+            minutes = new int[rows];
+            availableByDoctor = new HashMap<>();
+            availableToAny = new BitSet(rows);
+            firstAvailableDoctor = new String[rows];
+            for (int row = 0; row < rows; row++) {
+                timeSlots[row] = schedule.getTimeSlot(row);
+                minutes[row] = toMinutes(timeSlots[row]);
+            }
+            for (int col = 0; col < schedule.getDoctorCount(); col++) {
+                String doctorID = schedule.getDoctorID(col);
+                if (doctorID == null) {
+                    continue;
+                }
+                BitSet available = availableByDoctor.computeIfAbsent(doctorID, id -> new BitSet(rows));
+                for (int row = schedule.nextAvailableTimeSlot(col, 0); row >= 0; row = schedule.nextAvailableTimeSlot(col, row + 1)) {
+                    available.set(row);
+                    availableToAny.set(row);
+                    if (firstAvailableDoctor[row] == null) {
+                        firstAvailableDoctor[row] = doctorID;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Finds the earliest available slot of the date within a time window.
+         *
+         * @param doctorID    the doctor to look for, or null for any doctor
+         * @param fromMinute  the earliest minute of the day a slot may start at, or -1 for no limit
+         * @param untilMinute the latest minute of the day a slot may start at, or -1 for no limit
+         * @return the row of the slot, or -1 if none is available
+         */
+        private int findEarliest(String doctorID, int fromMinute, int untilMinute) {
+            BitSet available = doctorID == null ? availableToAny : availableByDoctor.get(doctorID);
+            if (available == null) {
+                return -1;
+            }
+            for (int row = available.nextSetBit(0); row >= 0; row = available.nextSetBit(row + 1)) {
+                if (fromMinute < 0 && untilMinute < 0) {
+                    return row;
+                }
+                int minute = minutes[row];
+                if (minute >= 0 && (fromMinute < 0 || minute >= fromMinute) && (untilMinute < 0 || minute <= untilMinute)) {
+                    return row;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * The availability of each indexed date, sorted by date.
+     */
+    private final NavigableMap<String, DayAvailability> days = new ConcurrentSkipListMap<>();
+
+    /**
+     * Replaces the availability of a date with that of its schedule, as it is in its file.
+     * The date is removed from the index if the file does not exist.
+     *
+     * @param date       the date, in yyyyMMdd format
+     * @param schedule   the schedule of the date, which the caller remains free to change
+     * @param attributes the attributes the file had when the schedule was read or written, or null if it does not exist
+     */
+    void update(String date, AppointmentSchedule schedule, BasicFileAttributes attributes) {
+        if (attributes == null) {
+            days.remove(date);
+            return;
+        }
+        days.put(date, new DayAvailability(schedule, attributes));
+    }
+
+    /**
+     * Checks whether the availability of a date was taken from its schedule file as it is now.
+     *
+     * @param date       the date, in yyyyMMdd format
+     * @param attributes the current attributes of the schedule file, or null if it does not exist
+     * @return true if the date is indexed and its file has not changed since, false otherwise
+     */
+    boolean isCurrent(String date, BasicFileAttributes attributes) {
+        DayAvailability day = days.get(date);
+        return day != null && attributes != null
+                && attributes.lastModifiedTime().equals(day.lastModified) && attributes.size() == day.size;
+    }
+
+    /**
+     * Finds the earliest available slot between two dates.
+     *
+     * @param doctorID     the doctor to look for, or null for any doctor
+     * @param fromDate     the first date to search, in yyyyMMdd format, or null to start from the earliest date
+     * @param toDate       the last date to search, in yyyyMMdd format, or null to search up to the latest date
+     * @param earliestTime the earliest time of day a slot may start at, such as "10:00", or null for no limit
+     * @param latestTime   the latest time of day a slot may start at, or null for no limit
+     * @return the date, time slot and doctor ID of the slot, or null if no slot is available
+     * @throws IllegalArgumentException if earliestTime or latestTime is not a time of day
+     */
+    String[] findEarliest(String doctorID, String fromDate, String toDate, String earliestTime, String latestTime) {
+        int fromMinute = parseTimeLimit(earliestTime);
+        int untilMinute = parseTimeLimit(latestTime);
+        NavigableMap<String, DayAvailability> range = days;
+        if (fromDate != null) {
+            range = range.tailMap(fromDate, true);
+        }
+        if (toDate != null) {
+            range = range.headMap(toDate, true);
+        }
+        for (Map.Entry<String, DayAvailability> entry : range.entrySet()) {
+            DayAvailability day = entry.getValue();
+            int row = day.findEarliest(doctorID, fromMinute, untilMinute);
+            if (row >= 0) {
+                String doctor = doctorID == null ? day.firstAvailableDoctor[row] : doctorID;
+                return new String[]{entry.getKey(), day.timeSlots[row], doctor};
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Converts a time limit of a search to a minute of the day.
+     *
+     * @param time the time of day, or null for no limit
+     * @return the minute of the day, or -1 for no limit
+     * @throws IllegalArgumentException if the time is not a time of day
+     */
+    private static int parseTimeLimit(String time) {
+        if (time == null) {
+            return -1;
+        }
+        int minute = toMinutes(time);
+        if (minute < 0) {
+            throw new IllegalArgumentException("Invalid time of day: " + time);
+        }
+        return minute;
+    }
+
+    /**
+     * Converts a time slot such as "9:00" or "14:30" to the minute of the day it starts at.
+     *
+     * @param timeSlot the time slot
+     * @return the minute of the day, or -1 if the time slot is not a time of day
+     */
+    private static int toMinutes(String timeSlot) {
+        if (timeSlot == null) {
+            return -1;
+        }
+        int colon = timeSlot.indexOf(':');
+        try {
+            int hours = Integer.parseInt(timeSlot.substring(0, colon).trim());
+            int minutes = Integer.parseInt(timeSlot.substring(colon + 1).trim());
+            if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59) {
+                return -1;
+            }
+            return hours * 60 + minutes;
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+}
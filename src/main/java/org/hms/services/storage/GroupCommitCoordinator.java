@@ -0,0 +1,258 @@
+package org.hms.services.storage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Merges the concurrent writes of the same file into one, so that many sessions saving a file at once
+ * only cost a single write and fsync.
+ * <p>
+ * Each write of a file replaces its whole contents, so when several callers want to write the same file,
+ * only the most recent of their writes needs to run. Callers submitting a write join the open batch of the file.
+ * The first caller of a batch leads it: it waits for a short window during which more callers may join, and for
+ * the previous write of the file to finish, then closes the batch and runs its most recent write. The window is
+ * skipped when no other caller is writing the file, so a write nobody contends with runs at once. Every caller
+ * of the batch returns once that write has completed, or throws if it failed. While one write of a file is running,
+ * the next batch keeps filling up, so under load the number of writes stays bounded by how fast the disk can sync,
+ * however many callers there are.
+ * </p>
+ * <p>
+ * Writes that only change part of a file, such as appending a row, are submitted with {@link #update} instead.
+ * They join the open batch like any other write, but are never merged away: the batch runs its most recent
+ * whole-file write, then every update submitted after it, in order. So a whole-file write queued before an update
+ * can never overwrite it, and an update submitted before a whole-file write is assumed to be included in it.
+ * </p>
+ * <p>
+ * Unlike write-behind mode, callers still wait for their data to be written, and as durable as the
+ * {@link org.hms.utils.DurableFiles} sync policy makes it, before carrying on.
+ * </p>
+ */
+final class GroupCommitCoordinator {
+    /**
+     * A write of a whole file.
+     */
+    @FunctionalInterface
+    interface FileWrite {
+        /**
+         * Writes the file.
+         *
+         * @throws IOException if the file could not be written
+         */
+        void run() throws IOException;
+    }
+
+    /**
+     * The callers waiting for the same write of a file.
+     */
+    private static final class Batch {
+        /**
+         * The most recent whole-file write submitted to the batch, which is the only one run, or null if none was.
+         */
+        private FileWrite write;
+        /**
+         * The updates submitted to the batch since its most recent whole-file write, run after it in order.
+         */
+        private final List<FileWrite> updates = new ArrayList<>();
+        /**
+         * Whether the write of the batch has completed, successfully or not.
+         */
+        private boolean done;
+        /**
+         * The reason the writes failed, or null if they succeeded.
+         */
+        private IOException failure;
+    }
+
+    /**
+     * The batching state of one file. Its monitor guards its fields and those of its batches.
+     */
+    private static final class FileGroup {
+        /**
+         * The batch new callers join, or null if no batch is open.
+         */
+        private Batch open;
+        /**
+         * Whether a write of the file is running.
+         */
+        private boolean writing;
+        /**
+         * The number of callers that submitted a write of the file and have not returned yet.
+         */
+        private int callers;
+    }
+
+    /**
+     * The batching state of every file written so far, keyed by file path.
+     */
+    private final Map<Object, FileGroup> groups = new ConcurrentHashMap<>();
+    /**
+     * How long the leader of a batch waits for more callers to join, in nanoseconds.
+     */
+    private final long windowNanos;
+    /**
+     * The number of writes actually run, for monitoring.
+     */
+    private final AtomicLong writeCount = new AtomicLong();
+
+    /**
+     * Creates a coordinator.
+     *
+     * @param windowMillis how long the leader of a batch waits for more callers to join, in milliseconds, or 0
+     *                     to only merge the writes submitted while the previous write of the file was running.
+     *                     The leader only waits if another caller is writing the file when it submits its write
+     * @throws IllegalArgumentException if windowMillis is negative
+     */
+    GroupCommitCoordinator(long windowMillis) {
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("Group commit window cannot be negative");
+        }
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    }
+
+    /**
+     * Writes a file, merged with the concurrent writes of the same file, and waits for the write to complete.
+     * The write that is run may be one submitted by a later caller instead of this one.
+     *
+     * @param file  identifies the file, for instance its path; writes of the same file must use equal keys
+     * @param write writes the whole file
+     * @throws IOException if the write run for this caller failed
+     */
+    void write(Object file, FileWrite write) throws IOException {
+        submit(file, write, false);
+    }
+
+    /**
+     * Changes part of a file, after the whole-file writes of the same file submitted before, and waits for
+     * the change to complete. Unlike {@link #write}, the update is always run, even if a later caller
+     * submits another write of the file.
+     *
+     * @param file   identifies the file, for instance its path; writes of the same file must use equal keys
+     * @param update changes part of the file
+     * @throws IOException if the writes run for this caller failed
+     */
+    void update(Object file, FileWrite update) throws IOException {
+        submit(file, update, true);
+    }
+
+    /**
+     * Adds a write to the open batch of a file, leading the batch if it is the first, and waits for the batch to run.
+     *
+     * @param file   identifies the file
+     * @param write  the write to submit
+     * @param update true if the write only changes part of the file, false if it replaces the whole file
+     * @throws IOException if the writes run for this caller failed
+     */
+    private void submit(Object file, FileWrite write, boolean update) throws IOException {
+        FileGroup group = groups.computeIfAbsent(file, key -> new FileGroup());
+        Batch batch;
+        boolean leader;
+        boolean contended;
+        synchronized (group) {
+            group.callers++;
+            // Callers still waiting for an earlier batch show the file is busy, so more are likely to follow.
+            contended = group.callers > 1;
+            leader = group.open == null;
+            if (leader) {
+                group.open = new Batch();
+            }
+            batch = group.open;
+            if (update) {
+                batch.updates.add(write);
+            } else {
+                // Updates submitted before a whole-file write are part of what it writes.
+                batch.write = write;
+                batch.updates.clear();
+            }
+        }
+        if (leader) {
+            lead(group, batch, contended);
+        }
+        synchronized (group) {
+            boolean interrupted = false;
+            while (!batch.done) {
+                try {
+                    group.wait();
+                } catch (InterruptedException e) {
+                    // The write cannot be abandoned half way, so keep waiting for it.
+                    interrupted = true;
+                }
+            }
+            group.callers--;
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (batch.failure != null) {
+            throw batch.failure;
+        }
+    }
+
+    /**
+     * Runs the writes of a batch once the window has passed and the previous write of the file has finished.
+     * Without contention there is nobody to wait for, so the window is skipped.
+     *
+     * @param group     the batching state of the file
+     * @param batch     the batch led by the calling thread
+     * @param contended whether another caller was writing the file when the batch was opened
+     */
+    private void lead(FileGroup group, Batch batch, boolean contended) {
+        if (contended && windowNanos > 0) {
+            LockSupport.parkNanos(windowNanos);
+        }
+        FileWrite write;
+        List<FileWrite> updates;
+        synchronized (group) {
+            boolean interrupted = false;
+            while (group.writing) {
+                try {
+                    group.wait();
+                } catch (InterruptedException e) {
+                    // The callers of the batch are counting on this write, so keep waiting for the previous one.
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            group.open = null;
+            group.writing = true;
+            write = batch.write;
+            updates = List.copyOf(batch.updates);
+        }
+        writeCount.incrementAndGet();
+        IOException failure = null;
+        try {
+            if (write != null) {
+                write.run();
+            }
+            for (FileWrite update : updates) {
+                update.run();
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = new IOException(e);
+        }
+        synchronized (group) {
+            batch.failure = failure;
+            batch.done = true;
+            group.writing = false;
+            group.notifyAll();
+        }
+    }
+
+    /**
+     * Retrieves the number of writes run so far, which is at most the number of writes submitted.
+     *
+     * @return the number of writes run
+     */
+    long getWriteCount() {
+        return writeCount.get();
+    }
+}
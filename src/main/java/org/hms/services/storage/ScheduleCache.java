@@ -0,0 +1,143 @@
+package org.hms.services.storage;
+
+import org.hms.services.appointment.AppointmentSchedule;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the most recently used schedules in memory, so that loading the schedule of the same date again
+ * does not read and parse its file.
+ * <p>
+ * Each cached schedule remembers the modification time and size its file had when the schedule was read or written.
+ * A schedule is only served from the cache while its file still has them, so a schedule file edited outside the
+ * application is read again. Callers are given copies of the cached schedules, as they usually change the schedule
+ * they loaded, and a change that is never written must not leak into the next load.
+ * </p>
+ */
+final class ScheduleCache {
+    /**
+     * A cached schedule and the state of its file it matches.
+     *
+     * @param schedule     the schedule, which is never handed out
+     * @param lastModified the modification time of the file
+     * @param size         the size of the file in bytes
+     */
+    private record Entry(AppointmentSchedule schedule, FileTime lastModified, long size) {
+    }
+
+    /**
+     * The cached schedules by date, from least to most recently used.
+     */
+    private final LinkedHashMap<String, Entry> entries;
+    /**
+     * The number of loads served from the cache, for monitoring.
+     */
+    private long hits;
+    /**
+     * The number of loads that had to read the file, for monitoring.
+     */
+    private long misses;
+
+    /**
+     * Creates a cache.
+     *
+     * @param capacity the maximum number of schedules to keep, or 0 to disable caching
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    ScheduleCache(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Schedule cache capacity cannot be negative");
+        }
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Retrieves a copy of the cached schedule of a date, if its file has not changed since it was cached.
+     *
+     * @param date the date of the schedule
+     * @param file the schedule file of the date
+     * @return a copy of the schedule, or null if it is not cached or its file has changed
+     */
+    synchronized AppointmentSchedule get(String date, Path file) {
+        Entry entry = entries.get(date);
+        if (entry != null) {
+            BasicFileAttributes attributes = readAttributes(file);
+            if (attributes != null && attributes.lastModifiedTime().equals(entry.lastModified())
+                    && attributes.size() == entry.size()) {
+                hits++;
+                return new AppointmentSchedule(entry.schedule());
+            }
+            entries.remove(date);
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Caches a copy of the schedule of a date, as it is in its file.
+     * Nothing is cached if the file does not exist.
+     *
+     * @param date       the date of the schedule
+     * @param schedule   the schedule, which the caller remains free to change
+     * @param attributes the attributes the file had when the schedule was read or written, or null if it does not exist
+     */
+    synchronized void put(String date, AppointmentSchedule schedule, BasicFileAttributes attributes) {
+        if (attributes == null) {
+            entries.remove(date);
+            return;
+        }
+        entries.put(date, new Entry(new AppointmentSchedule(schedule), attributes.lastModifiedTime(), attributes.size()));
+    }
+
+    /**
+     * Removes the schedule of a date from the cache.
+     *
+     * @param date the date of the schedule
+     */
+    synchronized void invalidate(String date) {
+        entries.remove(date);
+    }
+
+    /**
+     * Retrieves the number of loads served from the cache so far.
+     *
+     * @return the number of cache hits
+     */
+    synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Retrieves the number of loads that were not served from the cache so far.
+     *
+     * @return the number of cache misses
+     */
+    synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Reads the modification time and size of a file.
+     *
+     * @param file the file
+     * @return the attributes of the file, or null if it does not exist or cannot be read
+     */
+    static BasicFileAttributes readAttributes(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
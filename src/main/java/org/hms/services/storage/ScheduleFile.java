@@ -0,0 +1,231 @@
+package org.hms.services.storage;
+
+import org.hms.services.appointment.AppointmentSchedule;
+import org.hms.utils.DurableFiles;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Reads and writes the schedule file of a date.
+ * <p>
+ * Schedule files are written as fixed-width CSV: every cell is padded with spaces to the same number of bytes,
+ * so every line has the same length, and the position of any slot in the file can be computed from its row and
+ * column. Booking or freeing a slot then only overwrites the bytes of that cell, rather than the whole file.
+ * The padding is ignored when the file is read, so files remain plain CSV, and schedules written before, such as the
+ * template, are still read; they are rewritten in fixed-width form the first time one of their slots is changed.
+ * </p>
+ */
+final class ScheduleFile {
+    /**
+     * The smallest width of a cell in bytes, which leaves room for longer patient IDs than those in the file
+     * when it was written, so that booking a slot rarely needs the whole file to be rewritten.
+     */
+    private static final int MIN_CELL_WIDTH = 16;
+    /**
+     * The longest header line read when checking the layout of a file, in bytes.
+     */
+    private static final int MAX_HEADER_LENGTH = 64 * 1024;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private ScheduleFile() {
+    }
+
+    /**
+     * Reads the scheduling matrix of a schedule file in a single pass.
+     * Cells are stripped of their padding, and empty cells are read as null.
+     *
+     * @param path the schedule file
+     * @return the scheduling matrix, with as many columns as the longest line, or an empty array if the file is empty
+     * @throws IOException if the file does not exist or cannot be read
+     */
+    static String[][] read(Path path) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        int numCols = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] values = line.split(",");
+                for (int col = 0; col < values.length; col++) {
+                    values[col] = strip(values[col]);
+                }
+                rows.add(values);
+                numCols = Math.max(numCols, values.length);
+            }
+        }
+        String[][] matrix = new String[rows.size()][];
+        for (int row = 0; row < matrix.length; row++) {
+            matrix[row] = Arrays.copyOf(rows.get(row), numCols);
+        }
+        return matrix;
+    }
+
+    /**
+     * Replaces a schedule file with a scheduling matrix, in fixed-width form.
+     *
+     * @param path   the schedule file
+     * @param matrix the scheduling matrix to write
+     * @throws IOException if the file could not be written
+     */
+    static void write(Path path, String[][] matrix) throws IOException {
+        int width = MIN_CELL_WIDTH;
+        for (String[] row : matrix) {
+            for (String cell : row) {
+                width = Math.max(width, byteLength(cell));
+            }
+        }
+        int cellWidth = width;
+        DurableFiles.replace(path, out -> {
+            for (String[] row : matrix) {
+                for (int col = 0; col < row.length; col++) {
+                    out.write(pad(row[col], cellWidth));
+                    out.write(col < row.length - 1 ? ',' : '\n');
+                }
+            }
+        });
+    }
+
+    /**
+     * Overwrites a single slot of a schedule file with its value in a schedule.
+     * <p>
+     * The slot is only written if the file is in fixed-width form, has the doctors and time slots of the schedule,
+     * and the new value fits in a cell. Otherwise nothing is written, and the caller must rewrite the whole file.
+     * </p>
+     *
+     * @param path        the schedule file
+     * @param schedule    the schedule holding the new value of the slot
+     * @param timeSlotRow the 0-based row of the slot
+     * @param doctorCol   the 0-based column of the slot
+     * @return true if the slot was written, false if the whole file must be rewritten instead
+     * @throws IOException if the file could not be read or written
+     */
+    static boolean writeSlot(Path path, AppointmentSchedule schedule, int timeSlotRow, int doctorCol) throws IOException {
+        int numCols = schedule.getDoctorCount() + 1;
+        int cellWidth;
+        long lineLength;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            String[] header = readHeader(channel);
+            if (header == null || header.length != numCols) {
+                return false;
+            }
+            cellWidth = byteLength(header[0]);
+            for (String cell : header) {
+                if (byteLength(cell) != cellWidth) {
+                    return false;
+                }
+            }
+            lineLength = (long) numCols * (cellWidth + 1);
+            if (channel.size() != lineLength * (schedule.getTimeSlotCount() + 1)) {
+                return false;
+            }
+            // Make sure the file still has this doctor and this time slot where the schedule has them
+            String timeSlotCell = readCell(channel, (timeSlotRow + 1) * lineLength, cellWidth);
+            if (!Objects.equals(schedule.getDoctorID(doctorCol), strip(header[doctorCol + 1]))
+                    || !Objects.equals(schedule.getTimeSlot(timeSlotRow), timeSlotCell)) {
+                return false;
+            }
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        String value = schedule.getSlot(timeSlotRow, doctorCol);
+        if (byteLength(value) > cellWidth) {
+            return false;
+        }
+        long position = (timeSlotRow + 1) * lineLength + (long) (doctorCol + 1) * (cellWidth + 1);
+        DurableFiles.writeAt(path, position, pad(value, cellWidth));
+        return true;
+    }
+
+    /**
+     * Reads the cells of the header line of a schedule file.
+     *
+     * @param channel the schedule file
+     * @return the cells of the header line with their padding, or null if the file has no complete header line
+     * or uses Windows line breaks
+     * @throws IOException if the file could not be read
+     */
+    private static String[] readHeader(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), MAX_HEADER_LENGTH));
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // Keep reading until the buffer is full or the file ends
+        }
+        byte[] bytes = buffer.array();
+        for (int i = 0; i < buffer.position(); i++) {
+            if (bytes[i] == '\n') {
+                if (i > 0 && bytes[i - 1] == '\r') {
+                    return null;
+                }
+                return new String(bytes, 0, i, StandardCharsets.UTF_8).split(",", -1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads a cell of a fixed-width schedule file.
+     *
+     * @param channel   the schedule file
+     * @param position  the offset of the cell in the file
+     * @param cellWidth the width of a cell in bytes
+     * @return the value of the cell without its padding, or null if it is empty
+     * @throws IOException if the file could not be read
+     */
+    private static String readCell(FileChannel channel, long position, int cellWidth) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(cellWidth);
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+            // Keep reading until the whole cell is read or the file ends
+        }
+        return strip(new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Removes the padding of a cell.
+     *
+     * @param cell the cell as stored in the file
+     * @return the value of the cell, or null if it is empty
+     */
+    private static String strip(String cell) {
+        String value = cell.stripTrailing();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Computes the length of a cell in bytes once encoded.
+     *
+     * @param cell the value of the cell, or null for an empty cell
+     * @return the length of the cell in UTF-8
+     */
+    private static int byteLength(String cell) {
+        return cell == null ? 0 : cell.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Encodes a cell, padded with spaces to the width of a cell.
+     *
+     * @param cell      the value of the cell, or null for an empty cell
+     * @param cellWidth the width of a cell in bytes, which must be at least the length of the value
+     * @return the bytes of the padded cell
+     */
+    private static byte[] pad(String cell, int cellWidth) {
+        byte[] padded = new byte[cellWidth];
+        Arrays.fill(padded, (byte) ' ');
+        if (cell != null) {
+            byte[] bytes = cell.getBytes(StandardCharsets.UTF_8);
+            System.arraycopy(bytes, 0, padded, 0, bytes.length);
+        }
+        return padded;
+    }
+}
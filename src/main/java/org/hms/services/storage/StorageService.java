@@ -1,5 +1,6 @@
 package org.hms.services.storage;
 
+import org.hms.entities.AbstractTable;
 import org.hms.services.AbstractService;
 import org.hms.services.appointment.*;
 import org.hms.services.drugdispensary.DrugInventoryTable;
@@ -10,10 +11,15 @@ import org.hms.services.drugdispensary.*;
 import org.hms.services.medicalrecord.*;
 import org.hms.services.staffmanagement.Staff;
 import org.hms.services.staffmanagement.StaffTable;
+import org.hms.utils.DurableFiles;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -35,6 +41,26 @@ public class StorageService
      * This directory is constructed based on the user's current working directory.
      */
     private static final String dataRoot = System.getProperty("user.dir") + "/data/";
+    /**
+     * The number of journaled mutations to the medical record table after which
+     * medical_records.csv is rewritten in full.
+     */
+    private static final int MEDICAL_RECORD_CHECKPOINT_INTERVAL = 256;
+    /**
+     * The number of shards medical entries are partitioned into by patient, read from the
+     * hms.medicalRecordShards system property. With the default of 1, every entry is kept in medical_records.csv.
+     */
+    private static final int MEDICAL_RECORD_SHARDS = Integer.getInteger("hms.medicalRecordShards", 1);
+    /**
+     * How long a write of a file waits for concurrent writes of the same file to merge with, in milliseconds,
+     * read from the hms.groupCommitWindowMillis system property. A write of a file nobody else is writing does not wait.
+     */
+    private static final long GROUP_COMMIT_WINDOW_MILLIS = Long.getLong("hms.groupCommitWindowMillis", 2);
+    /**
+     * The number of parsed schedules kept in memory, read from the hms.scheduleCacheSize system property.
+     * Set it to 0 to read every schedule from its file.
+     */
+    private static final int SCHEDULE_CACHE_SIZE = Integer.getInteger("hms.scheduleCacheSize", 32);
     /**
      * Counter to track the number of drug dispense requests made.
      * This field is used to generate unique identifiers for each drug dispense request.
@@ -54,11 +80,10 @@ public class StorageService
      */
     private DrugReplenishRequestTable drugReplenishRequestTable;
     /**
-     * Represents a table of medical records within the storage service.
-     * This variable stores an instance of the MedicalRecord class,
-     * which contains a collection of medical entries.
+     * Routes each patient's medical entries to the table holding them.
+     * Wraps a single MedicalRecord table when the medical records are not sharded.
      */
-    private MedicalRecord medicalRecordTable;
+    private MedicalRecordShards medicalRecordShards;
     /**
      * Represents the table containing patient particulars.
      * This table is responsible for managing and maintaining
@@ -80,6 +105,24 @@ public class StorageService
      * for hospital management and scheduling.
      */
     private StaffTable staffTable;
+    /**
+     * The flusher persisting the tables in the background when write-behind mode is enabled, or null otherwise.
+     */
+    private volatile WriteBehindFlusher writeBehindFlusher;
+    /**
+     * Merges concurrent writes of the same file, so that sessions saving it at once share a single write.
+     * Used for the appointment and schedule files, which are not tables and so are not covered by write-behind mode.
+     */
+    private final GroupCommitCoordinator groupCommit = new GroupCommitCoordinator(GROUP_COMMIT_WINDOW_MILLIS);
+    /**
+     * The most recently loaded or written schedules, so that menus showing the same date again do not reparse it.
+     */
+    private final ScheduleCache scheduleCache = new ScheduleCache(SCHEDULE_CACHE_SIZE);
+    /**
+     * The available slots of every dated schedule, built from the schedule files the first time availability
+     * is searched, and updated whenever a schedule file is written, or null until then.
+     */
+    private volatile AvailabilityIndex availabilityIndex;
 
     /**
      * Constructs a StorageService instance and initializes various data tables necessary for the application.
@@ -191,18 +234,102 @@ public class StorageService
 
     /**
      * Initializes the medical records table for the application.
-     * This method sets up the medicalRecordTable by loading data from the specified CSV file.
+     * This method sets up the medical records by loading data from the specified CSV file.
+     * As this is the largest table, it is journaled, so that each mutation only appends to
+     * a journal instead of rewriting the whole file.
+     * If more than one shard is configured, the shard files are opened instead, and are only loaded when first used.
+     * If a single shard is configured but the medical records were sharded before, the shard files are first
+     * merged back into the CSV file.
      * If an I/O error occurs while loading the file, it throws a RuntimeException.
      */
     private void initializeMedicalRecordTable() {
-        medicalRecordTable = new MedicalRecord(dataRoot + "medical_records.csv");
+        if (MEDICAL_RECORD_SHARDS > 1) {
+            try {
+                medicalRecordShards = MedicalRecordShards.open(dataRoot + "medical_records.csv",
+                        MEDICAL_RECORD_SHARDS, MEDICAL_RECORD_CHECKPOINT_INTERVAL);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return;
+        }
+        MedicalRecord medicalRecordTable = new MedicalRecord(dataRoot + "medical_records.csv");
+        medicalRecordTable.enableJournal(MEDICAL_RECORD_CHECKPOINT_INTERVAL);
         try {
+            MedicalRecordShards.merge(dataRoot + "medical_records.csv");
             medicalRecordTable.loadFromFile();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        medicalRecordShards = MedicalRecordShards.single(medicalRecordTable);
+    }
+
+
+    /**
+     * Retrieves every table managed by the storage service.
+     *
+     * Medical record shards are only included once loaded.
+     *
+     * @return a list of the tables managed by the storage service
+     */
+    private List<AbstractTable<?>> getAllTables() {
+        List<AbstractTable<?>> tables = new ArrayList<>(List.of(drugInventoryTable, drugReplenishRequestTable,
+                patientParticularsTable, contactInformationTable, staffTable));
+        tables.addAll(medicalRecordShards.loaded());
+        return tables;
+    }
+
+    /**
+     * Switches the tables to write-behind mode. Mutations then only mark a table as dirty, and a
+     * single background thread writes the dirty tables every flushIntervalMillis, or as soon as
+     * maxPendingMutations mutations are waiting to be written. Pending writes are also flushed by
+     * {@link #flush()} and when the JVM shuts down.
+     * <p>
+     * Journaled tables are left as they are, since each of their mutations already only costs
+     * one small append to their journal.
+     * </p>
+     * <p>
+     * Enabling write-behind mode again has no effect, so the tables keep the flusher, and the single shutdown hook,
+     * they were first given.
+     * </p>
+     *
+     * @param flushIntervalMillis the interval between two periodic flushes, in milliseconds
+     * @param maxPendingMutations the number of pending mutations at which a flush is triggered early
+     */
+    public synchronized void enableWriteBehind(long flushIntervalMillis, int maxPendingMutations) {
+        if (writeBehindFlusher != null) {
+            return;
+        }
+        WriteBehindFlusher flusher = new WriteBehindFlusher(flushIntervalMillis, maxPendingMutations);
+        for (AbstractTable<?> table : getAllTables()) {
+            if (!table.isJournaled()) {
+                table.setWriteBehind(flusher::markDirty);
+            }
+        }
+        writeBehindFlusher = flusher;
+        Runtime.getRuntime().addShutdownHook(new Thread(flusher::shutdown, "hms-write-behind-shutdown"));
     }
 
+    /**
+     * Replaces the contents of a file atomically, merging the write with concurrent writes of the same file.
+     *
+     * @param filePath the path of the file to replace
+     * @param content  writes the new text of the file
+     * @throws IOException if the file could not be written
+     */
+    private void replaceFile(String filePath, DurableFiles.TextContent content) throws IOException {
+        Path path = Paths.get(filePath).toAbsolutePath().normalize();
+        groupCommit.write(path, () -> DurableFiles.replaceText(path, content));
+    }
+
+    /**
+     * Writes every table with pending write-behind mutations to its file, blocking until done.
+     * Has no effect when write-behind mode is not enabled.
+     */
+    public void flush() {
+        if (writeBehindFlusher != null) {
+            writeBehindFlusher.flush();
+        }
+    }
 
     /**
      * Retrieves a list of appointment IDs that are pending for dispensary.
@@ -260,13 +387,13 @@ public class StorageService
     }
 
     /**
-     * Retrieve the table containing medical records.
+     * Retrieve the medical record shards, which route each patient's entries to the table holding them.
      *
-     * @return MedicalRecord table containing medical entries.
+     * @return the medical record shards, a single one if the medical records are not sharded
      */
     @Override
-    public MedicalRecord getMedicalRecordTable() {
-        return medicalRecordTable;
+    public MedicalRecordShards getMedicalRecordShards() {
+        return medicalRecordShards;
     }
 
     /**
@@ -337,21 +464,29 @@ public class StorageService
         String filePath = dataRoot + "Appointment/" + "Appointments.csv";
         SimpleDateFormat timeSlotFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm-HH:mm");
 
-        try (FileWriter writer = new FileWriter(filePath)) {
-            // Write the header row
-            writer.write("appointmentID,patientID,doctorID,appointmentTimeSlot,appointmentStatus\n");
+        // Formatted now, as the write may run later, while the caller keeps changing its appointments
+        List<String> rows = new ArrayList<>(appointments.size());
+        for (AppointmentInformation appointment : appointments) {
+            // Format the appointment time slot correctly
+            String formattedTimeSlot = timeSlotFormat.format(appointment.getAppointmentTimeSlot());
+
+            rows.add(appointment.getAppointmentID() + "," +
+                    appointment.getPatientID() + "," +
+                    appointment.getDoctorID() + "," +
+                    formattedTimeSlot + "," +
+                    appointment.getAppointmentStatus() + "\n");
+        }
 
-            // Write each appointment's details
-            for (AppointmentInformation appointment : appointments) {
-                // Format the appointment time slot correctly
-                String formattedTimeSlot = timeSlotFormat.format(appointment.getAppointmentTimeSlot());
+        try {
+            replaceFile(filePath, writer -> {
+                // Write the header row
+                writer.write("appointmentID,patientID,doctorID,appointmentTimeSlot,appointmentStatus\n");
 
-                writer.write(appointment.getAppointmentID() + "," +
-                        appointment.getPatientID() + "," +
-                        appointment.getDoctorID() + "," +
-                        formattedTimeSlot + "," +
-                        appointment.getAppointmentStatus() + "\n");
-            }
+                // Write each appointment's details
+                for (String row : rows) {
+                    writer.write(row);
+                }
+            });
 
 //            System.out.println("Appointments successfully written to " + filePath);
         } catch (IOException e) {
@@ -366,44 +501,43 @@ public class StorageService
      * @return An AppointmentSchedule object containing the loaded schedule data.
      */
     public AppointmentSchedule loadSchedule(String date) {
-        int numRows = 0;
-        int numCols = 0;
-
         String filePath = dataRoot + "Appointment/schedules/" + date + ".csv";
-
-        try {
-            BufferedReader br = new BufferedReader(new FileReader(filePath));
-            String line;
-            while ((line = br.readLine()) != null) {
-                numRows++;
-                String[] values = line.split(",");
-                numCols = Math.max(values.length, numCols);
-            }
-            br.close();
-        } catch (IOException ioException) {
-            ioException.printStackTrace();
+        Path path = Paths.get(filePath);
+        AppointmentSchedule cached = scheduleCache.get(date, path);
+        if (cached != null) {
+            return cached;
         }
+        // Taken before reading, so that a change made while the file is read makes the cached schedule stale
+        BasicFileAttributes attributes = ScheduleCache.readAttributes(path);
 
-        AppointmentSchedule schedule = new AppointmentSchedule(numCols - 1, numRows - 1);
+        AppointmentSchedule schedule = readScheduleFile(path);
+        if (schedule == null) {
+            return new AppointmentSchedule(-1, -1);
+        }
+        scheduleCache.put(date, schedule, attributes);
+        return schedule;
+    }
 
+    /**
+     * Reads a schedule file, bypassing the schedule cache.
+     *
+     * @param path the path of the schedule file
+     * @return the schedule, or null if the file is missing or empty
+     */
+    private AppointmentSchedule readScheduleFile(Path path) {
+        String[][] matrix = new String[0][0];
         try {
-            BufferedReader br = new BufferedReader(new FileReader(dataRoot + "Appointment/schedules/" + date + ".csv"));
-
-            String line;
-
-            for (int row = 0; (line = br.readLine()) != null; ++row) {
-                String[] values = line.split(",");
-
-                for (int col = 0; col < values.length; ++col) {
-                    schedule.getMatrix()[row][col] = values[col];
-                }
-            }
-
-            br.close();
+            matrix = ScheduleFile.read(path);
         } catch (IOException ioException) {
             ioException.printStackTrace();
         }
 
+        int numRows = matrix.length;
+        if (numRows == 0) {
+            return null;
+        }
+        AppointmentSchedule schedule = new AppointmentSchedule(matrix[0].length - 1, numRows - 1);
+        schedule.setMatrix(matrix);
         return schedule;
     }
 
@@ -414,28 +548,183 @@ public class StorageService
      * @param date     The date used to name the CSV file, indicating the schedule's date.
      */
     public void writeScheduleToCSV(AppointmentSchedule schedule, String date) {
-        String[][] matrix = schedule.getMatrix();  // Retrieve the matrix from the AppointmentSchedule object
+        AppointmentSchedule written = new AppointmentSchedule(schedule);  // Taken now, as the write may run later
         //String fileName = date + ".csv";  // Use the date to create the file name
         String filePath = dataRoot + "Appointment/schedules/" + date + ".csv";
+        Path path = Paths.get(filePath).toAbsolutePath().normalize();
 
-        try (FileWriter writer = new FileWriter(filePath)) {
-            for (String[] row : matrix) {
-                for (int i = 0; i < row.length; i++) {
-                    if (row[i] != null) {
-                        writer.write(row[i]);
-                    }
-                    if (i < row.length - 1) {
-                        writer.write(",");  // Add a comma between columns
-                    }
-                }
-                writer.write("\n");  // Newline after each row
-            }
+        try {
+            // The cache is updated by the write itself, as a concurrent write of the same date may run instead of it
+            groupCommit.write(path, () -> writeScheduleFile(path, written, date));
 //            System.out.println("Matrix written to " + filePath);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Writes the scheduling matrix of a schedule to its file, and caches the schedule as written.
+     *
+     * @param path     the path of the schedule file
+     * @param schedule the schedule to write
+     * @param date     the date of the schedule
+     * @throws IOException if the file could not be written
+     */
+    private void writeScheduleFile(Path path, AppointmentSchedule schedule, String date) throws IOException {
+        String[][] matrix = schedule.getMatrix();  // Retrieve the matrix from the AppointmentSchedule object
+        scheduleCache.invalidate(date);
+        ScheduleFile.write(path, matrix);
+        BasicFileAttributes attributes = ScheduleCache.readAttributes(path);
+        scheduleCache.put(date, schedule, attributes);
+        updateAvailability(date, schedule, attributes);
+    }
+
+    /**
+     * Writes a single slot of an AppointmentSchedule object to the CSV file of its date.
+     * Only the bytes of the slot are overwritten, unless the file needs to be rewritten in fixed-width form first.
+     * The write is queued with the other writes of the file, after any rewrite of the whole schedule queued before it.
+     *
+     * @param schedule    The AppointmentSchedule object holding the new value of the slot.
+     * @param date        The date used to name the CSV file, indicating the schedule's date.
+     * @param timeSlotRow The 0-based row of the time slot that changed.
+     * @param doctorCol   The 0-based column of the doctor whose slot changed.
+     */
+    public void writeScheduleSlotToCSV(AppointmentSchedule schedule, String date, int timeSlotRow, int doctorCol) {
+        AppointmentSchedule written = new AppointmentSchedule(schedule);  // Taken now, as the write may run later
+        String filePath = dataRoot + "Appointment/schedules/" + date + ".csv";
+        Path path = Paths.get(filePath).toAbsolutePath().normalize();
+
+        try {
+            groupCommit.update(path, () -> writeScheduleSlot(path, written, date, timeSlotRow, doctorCol));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes a single slot of a schedule to its file, and updates the cached schedule to match.
+     * If the file is not in fixed-width form yet, the whole schedule is written instead.
+     *
+     * @param path        the path of the schedule file
+     * @param schedule    the schedule holding the new value of the slot
+     * @param date        the date of the schedule
+     * @param timeSlotRow the 0-based row of the time slot that changed
+     * @param doctorCol   the 0-based column of the doctor whose slot changed
+     * @throws IOException if the file could not be written
+     */
+    private void writeScheduleSlot(Path path, AppointmentSchedule schedule, String date, int timeSlotRow, int doctorCol) throws IOException {
+        AppointmentSchedule cached = scheduleCache.get(date, path);
+        if (!ScheduleFile.writeSlot(path, schedule, timeSlotRow, doctorCol)) {
+            writeScheduleFile(path, schedule, date);
+            return;
+        }
+        BasicFileAttributes attributes = ScheduleCache.readAttributes(path);
+        if (cached != null) {
+            // Only this slot changed on disk, so the cached schedule stays valid with it updated
+            cached.setSlot(timeSlotRow, doctorCol, schedule.getSlot(timeSlotRow, doctorCol));
+            scheduleCache.put(date, cached, attributes);
+            updateAvailability(date, cached, attributes);
+        } else {
+            scheduleCache.invalidate(date);
+            // The index must match the file, which may hold slots the given schedule has not seen
+            AvailabilityIndex index = availabilityIndex;
+            if (index != null && date.matches("\\d{8}")) {
+                reindexSchedule(index, date);
+            }
+        }
+    }
+
+    /**
+     * Updates the available slots of a date for availability searches, after its schedule file was written.
+     * Has no effect until availability is first searched, or for schedule files not named after a date.
+     *
+     * @param date       the date of the schedule
+     * @param schedule   the schedule as written
+     * @param attributes the attributes of the schedule file after it was written
+     */
+    private void updateAvailability(String date, AppointmentSchedule schedule, BasicFileAttributes attributes) {
+        AvailabilityIndex index = availabilityIndex;
+        if (index != null && date.matches("\\d{8}")) {
+            index.update(date, schedule, attributes);
+        }
+    }
+
+    /**
+     * Reads the schedule file of a date again into the availability index.
+     *
+     * @param index the availability index
+     * @param date  the date of the schedule
+     */
+    private void reindexSchedule(AvailabilityIndex index, String date) {
+        Path path = Paths.get(dataRoot + "Appointment/schedules/" + date + ".csv").toAbsolutePath().normalize();
+        // Taken before reading, so that a change made while the file is read makes the indexed date stale
+        BasicFileAttributes attributes = ScheduleCache.readAttributes(path);
+        AppointmentSchedule schedule = readScheduleFile(path);
+        // A missing or empty file has no available slots, so the date is dropped from the index
+        index.update(date, schedule, schedule == null ? null : attributes);
+    }
+
+    /**
+     * Retrieves the index of available slots, reading every dated schedule file into it on first use.
+     *
+     * @return the index of available slots
+     */
+    private AvailabilityIndex getAvailabilityIndex() {
+        AvailabilityIndex index = availabilityIndex;
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            if (availabilityIndex == null) {
+                index = new AvailabilityIndex();
+                File[] csvFiles = getAllDateFile();
+                if (csvFiles != null) {
+                    for (File csvFile : csvFiles) {
+                        String fileName = csvFile.getName();
+                        // Skip the template and any other file not named after a date
+                        if (fileName.matches("\\d{8}\\.csv")) {
+                            reindexSchedule(index, fileName.substring(0, 8));
+                        }
+                    }
+                }
+                availabilityIndex = index;
+            }
+            return availabilityIndex;
+        }
+    }
+
+    /**
+     * Finds the earliest available appointment slot between two dates and within a time of day window,
+     * across all saved schedules. Only the schedule files are searched, so dates without a schedule yet are skipped.
+     * <p>
+     * The index is kept up to date by every schedule write of the storage service. The schedule file of the slot
+     * found is still checked against the index before the slot is returned, and if it was changed outside
+     * the application, the date is read again and the search repeated.
+     * </p>
+     *
+     * @param doctorID     the ID of the doctor to book, or null to accept any doctor
+     * @param fromDate     the first date to search, formatted as YYYYMMDD, or null to start from the earliest schedule
+     * @param toDate       the last date to search, formatted as YYYYMMDD, or null to search up to the latest schedule
+     * @param earliestTime the earliest time slot to accept, such as "10:00", or null for no limit
+     * @param latestTime   the latest time slot to accept, or null for no limit
+     * @return an array holding the date, time slot and doctor ID of the slot, or null if no slot is available
+     * @throws IllegalArgumentException if earliestTime or latestTime is not a time of day
+     */
+    public String[] findEarliestAvailability(String doctorID, String fromDate, String toDate, String earliestTime, String latestTime) {
+        AvailabilityIndex index = getAvailabilityIndex();
+        while (true) {
+            String[] slot = index.findEarliest(doctorID, fromDate, toDate, earliestTime, latestTime);
+            if (slot == null) {
+                return null;
+            }
+            Path path = Paths.get(dataRoot + "Appointment/schedules/" + slot[0] + ".csv").toAbsolutePath().normalize();
+            if (index.isCurrent(slot[0], ScheduleCache.readAttributes(path))) {
+                return slot;
+            }
+            reindexSchedule(index, slot[0]);
+        }
+    }
+
     /**
      * Writes the outcome of an appointment to a CSV file. The method captures details such as
      * appointment ID, patient ID, type of appointment, consultation notes, and prescribed medications.
@@ -444,7 +733,7 @@ public class StorageService
      *                type of appointment, consultation notes, and prescribed medications.
      */
     public void writeAppointmentOutcomeToCSV(AppointmentOutcome outcome) {
-        try (FileWriter writer = new FileWriter(dataRoot + "Appointment/" + "AppointmentOutcome.csv", true)) { // Append mode
+        try {
 
             // Prepare data fields for the AppointmentOutcome
             String appointmentID = outcome.getAppointmentID();
@@ -468,9 +757,12 @@ public class StorageService
                         .append(",").append("PENDING");
             }
 
-            // Write the row to the CSV and add a new line
-            writer.write(rowData.toString());
-            writer.write("\n"); // New line for each record
+            // Append the row to the CSV, with a new line for each record
+            rowData.append("\n");
+            byte[] row = rowData.toString().getBytes(StandardCharsets.UTF_8);
+            // Queued with the rewrites of the file, so that a rewrite queued before it cannot drop the row
+            Path path = Paths.get(dataRoot + "Appointment/" + "AppointmentOutcome.csv").toAbsolutePath().normalize();
+            groupCommit.update(path, () -> DurableFiles.append(path, row));
 
         } catch (IOException e) {
             e.printStackTrace();
@@ -542,31 +834,36 @@ public class StorageService
      *                            the outcomes of various appointments.
      */
     public void writeAllAppointmentOutcomesToCSV(ArrayList<AppointmentOutcome> appointmentOutcomes) {
-        try (FileWriter writer = new FileWriter(dataRoot + "Appointment/" + "AppointmentOutcome.csv", false)) { // Overwrite mode
-
-            // Step 1: Write the header line
-            writer.write("AppointmentID,PatientID,TypeOfAppointment,ConsultationNotes,DrugName,Quantity,Status\n");
-
-            // Step 2: Write each AppointmentOutcome to the CSV file
-            for (AppointmentOutcome outcome : appointmentOutcomes) {
-                StringBuilder rowData = new StringBuilder();
-                rowData.append(outcome.getAppointmentID()).append(",")
-                        .append(outcome.getPatientID()).append(",")
-                        .append(outcome.getTypeOfAppointment()).append(",")
-                        .append(outcome.getConsultationNotes().replace(",", ";").replace("/", " or "));
-
-                // Add each drug name, quantity, and status as separate columns
-                for (DrugDispenseRequest request : outcome.getPrescribedMedication()) {
-                    rowData.append(",").append(request.getDrugName())
-                            .append(",").append(request.getQuantity())
-                            .append(",").append(request.getStatus().toString());
-                }
+        // Formatted now, as the write may run later, while the caller keeps changing its outcomes
+        List<String> rows = new ArrayList<>(appointmentOutcomes.size());
+        for (AppointmentOutcome outcome : appointmentOutcomes) {
+            StringBuilder rowData = new StringBuilder();
+            rowData.append(outcome.getAppointmentID()).append(",")
+                    .append(outcome.getPatientID()).append(",")
+                    .append(outcome.getTypeOfAppointment()).append(",")
+                    .append(outcome.getConsultationNotes().replace(",", ";").replace("/", " or "));
 
-                // Write the row to the CSV and add a new line
-                writer.write(rowData.toString());
-                writer.write("\n");
+            // Add each drug name, quantity, and status as separate columns
+            for (DrugDispenseRequest request : outcome.getPrescribedMedication()) {
+                rowData.append(",").append(request.getDrugName())
+                        .append(",").append(request.getQuantity())
+                        .append(",").append(request.getStatus().toString());
             }
+            rows.add(rowData.toString());
+        }
 
+        try {
+            replaceFile(dataRoot + "Appointment/" + "AppointmentOutcome.csv", writer -> {
+                // Step 1: Write the header line
+                writer.write("AppointmentID,PatientID,TypeOfAppointment,ConsultationNotes,DrugName,Quantity,Status\n");
+
+                // Step 2: Write each AppointmentOutcome to the CSV file
+                for (String row : rows) {
+                    // Write the row to the CSV and add a new line
+                    writer.write(row);
+                    writer.write("\n");
+                }
+            });
 //            System.out.println("All AppointmentOutcomes have been updated in CSV file.");
 
         } catch (IOException e) {
@@ -606,11 +903,7 @@ public class StorageService
      * @return The Staff object corresponding to the given staff ID, or null if no such staff member exists.
      */
     public Staff getStaffForSchedule(String staffId) {
-        StaffTable staffTable = new StaffTable();
-        return staffTable.getEntries().stream()
-                .filter(staff -> staff.getStaffId().equals(staffId))
-                .findFirst()
-                .orElse(null);
+        return staffTable.query().where(StaffTable.BY_STAFF_ID, staffId).findFirst();
     }
 
     /**
@@ -621,7 +914,7 @@ public class StorageService
      */
     @Override
     public String getStaffNameByID(String userId) {
-        ArrayList<Staff> target = staffTable.searchByAttribute(Staff::getStaffId, userId);
+        ArrayList<Staff> target = staffTable.searchByAttribute(StaffTable.BY_STAFF_ID, userId);
         if (target.isEmpty()) {
             return null;
         }
@@ -670,7 +963,12 @@ public class StorageService
             }
 
             // Copy templateSchedule.csv to date.csv
+            scheduleCache.invalidate(date);
             Files.copy(templateFile.toPath(), newFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            AvailabilityIndex index = availabilityIndex;
+            if (index != null && date.matches("\\d{8}")) {
+                reindexSchedule(index, date);
+            }
 
             System.out.println("Initialized schedule for " + date + " successfully at: " + newFilePath);
         } catch (IOException e) {
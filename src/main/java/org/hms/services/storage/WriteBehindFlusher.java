@@ -0,0 +1,105 @@
+package org.hms.services.storage;
+
+import org.hms.entities.AbstractTable;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persists tables in write-behind mode from a single background thread.
+ * <p>
+ * Tables report themselves as dirty whenever they are mutated. The flusher coalesces these reports,
+ * so that a table mutated many times between two flushes is only written once. Dirty tables are
+ * flushed every flush interval, or as soon as the number of unflushed mutations reaches a threshold.
+ * </p>
+ */
+final class WriteBehindFlusher {
+    /**
+     * The tables that have been mutated since they were last flushed.
+     */
+    private final Set<AbstractTable<?>> dirtyTables = ConcurrentHashMap.newKeySet();
+    /**
+     * The number of mutations reported since the last flush.
+     */
+    private final AtomicInteger pendingMutations = new AtomicInteger();
+    /**
+     * The number of unflushed mutations at which a flush is triggered early.
+     */
+    private final int maxPendingMutations;
+    /**
+     * The background thread the flushes run on.
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Creates a flusher and starts its background thread.
+     *
+     * @param flushIntervalMillis the interval between two periodic flushes, in milliseconds
+     * @param maxPendingMutations the number of unflushed mutations at which a flush is triggered early
+     * @throws IllegalArgumentException if either argument is not positive
+     */
+    WriteBehindFlusher(long flushIntervalMillis, int maxPendingMutations) {
+        if (flushIntervalMillis <= 0 || maxPendingMutations <= 0) {
+            throw new IllegalArgumentException("Flush interval and pending mutation threshold must be positive");
+        }
+        this.maxPendingMutations = maxPendingMutations;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hms-write-behind-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records that a table has unflushed mutations.
+     *
+     * @param table the mutated table
+     */
+    void markDirty(AbstractTable<?> table) {
+        dirtyTables.add(table);
+        if (pendingMutations.incrementAndGet() >= maxPendingMutations) {
+            try {
+                executor.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // The flusher is shutting down, and will flush everything on its way out.
+            }
+        }
+    }
+
+    /**
+     * Writes every dirty table to its linked file. A table that fails to be written stays dirty,
+     * so that it is retried on the next flush.
+     */
+    synchronized void flush() {
+        pendingMutations.set(0);
+        for (AbstractTable<?> table : dirtyTables) {
+            dirtyTables.remove(table);
+            try {
+                table.flushToFile();
+            } catch (IOException e) {
+                dirtyTables.add(table);
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Stops the background thread, then flushes every remaining dirty table on the calling thread.
+     */
+    void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
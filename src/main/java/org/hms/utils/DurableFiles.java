@@ -0,0 +1,337 @@
+package org.hms.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Utility class that every persistence path of the system writes its files through, so that a crash
+ * never leaves a file half written.
+ * <p>
+ * A file is replaced by writing its new contents to a temporary file in the same directory, and then renaming
+ * the temporary file over it. The temporary file is always synced before the rename, and the rename is atomic,
+ * so after a crash, or a power loss, the file holds either its old or its new contents, never a mix of both
+ * or a truncated version.
+ * </p>
+ * <p>
+ * Making the rename itself durable, so that the new contents survive a power loss, needs an fsync of the directory,
+ * and appended or overwritten bytes need an fsync of their file. How often these are called is chosen by the
+ * {@link SyncPolicy}, set with the hms.fsync system property ("always" or "group") or
+ * {@link #setSyncPolicy(SyncPolicy, long)}:
+ * </p>
+ * <ul>
+ *     <li>{@link SyncPolicy#EVERY_WRITE} syncs the directory of each replaced file, and each appended
+ *     or overwritten file, before the write returns.</li>
+ *     <li>{@link SyncPolicy#GROUP_COMMIT}, the default, returns as soon as a replaced file is renamed, or bytes
+ *     are written, and syncs every directory and file written since the last sync together, once per group commit
+ *     interval (hms.fsyncIntervalMillis, 200 milliseconds by default). A power loss can only lose the writes of the
+ *     last interval, and a replaced file then keeps its previous contents.</li>
+ * </ul>
+ */
+public final class DurableFiles {
+    /**
+     * When files written through this class are forced to disk.
+     */
+    public enum SyncPolicy {
+        /**
+         * Every write is synced before it returns.
+         */
+        EVERY_WRITE,
+        /**
+         * Writes are synced together by a background thread, once per group commit interval.
+         */
+        GROUP_COMMIT
+    }
+
+    /**
+     * Writes the contents of a file to a byte stream.
+     */
+    @FunctionalInterface
+    public interface StreamContent {
+        /**
+         * Writes the contents of the file.
+         *
+         * @param out the stream to write to, which must not be closed
+         * @throws IOException if the contents could not be written
+         */
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Writes the contents of a text file.
+     */
+    @FunctionalInterface
+    public interface TextContent {
+        /**
+         * Writes the contents of the file.
+         *
+         * @param writer the writer to write to, which must not be closed
+         * @throws IOException if the contents could not be written
+         */
+        void writeTo(Writer writer) throws IOException;
+    }
+
+    /**
+     * The size of the buffer contents are written through.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * The files, and directories holding renamed files, written since the last group commit.
+     */
+    private static final Set<Path> unsynced = ConcurrentHashMap.newKeySet();
+    /**
+     * Whether a group commit is already scheduled.
+     */
+    private static final AtomicBoolean groupCommitScheduled = new AtomicBoolean();
+    /**
+     * The background thread group commits run on.
+     */
+    private static final ScheduledExecutorService syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "hms-group-commit");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The current sync policy.
+     */
+    private static volatile SyncPolicy syncPolicy =
+            "always".equalsIgnoreCase(System.getProperty("hms.fsync")) ? SyncPolicy.EVERY_WRITE : SyncPolicy.GROUP_COMMIT;
+    /**
+     * The interval between two group commits, in milliseconds.
+     */
+    private static volatile long groupCommitMillis = Long.getLong("hms.fsyncIntervalMillis", 200);
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(DurableFiles::syncPendingQuietly, "hms-group-commit-shutdown"));
+    }
+
+    /**
+     * This class only has static methods, and cannot be instantiated.
+     */
+    private DurableFiles() {
+    }
+
+    /**
+     * Changes when files are forced to disk. Switching to {@link SyncPolicy#EVERY_WRITE}
+     * first syncs every write still waiting for a group commit.
+     *
+     * @param policy            the new sync policy
+     * @param groupCommitMillis the interval between two group commits, in milliseconds
+     * @throws IllegalArgumentException if policy is null or groupCommitMillis is not positive
+     */
+    public static void setSyncPolicy(SyncPolicy policy, long groupCommitMillis) {
+        if (policy == null || groupCommitMillis <= 0) {
+            throw new IllegalArgumentException("Sync policy must be set and the group commit interval must be positive");
+        }
+        DurableFiles.groupCommitMillis = groupCommitMillis;
+        syncPolicy = policy;
+        if (policy == SyncPolicy.EVERY_WRITE) {
+            syncPendingQuietly();
+        }
+    }
+
+    /**
+     * Retrieves the current sync policy.
+     *
+     * @return the sync policy
+     */
+    public static SyncPolicy getSyncPolicy() {
+        return syncPolicy;
+    }
+
+    /**
+     * Atomically replaces the contents of a file, creating it if it does not exist.
+     * If writing the contents fails, the file is left as it was.
+     * The new contents are synced before they replace the old ones, under every sync policy, so that a power loss
+     * never leaves the file empty or torn. Only the sync of the rename is deferred in group commit mode.
+     *
+     * @param target  the file to replace
+     * @param content writes the new contents of the file
+     * @throws IOException if the file could not be written
+     */
+    public static void replace(Path target, StreamContent content) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Path temp = directory.resolve(target.getFileName() + "."
+                + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+                content.writeTo(out);
+                out.flush();
+                channel.force(true);
+            }
+            move(temp, target);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        if (syncPolicy == SyncPolicy.EVERY_WRITE) {
+            syncDirectory(directory);
+        } else {
+            scheduleSync(directory);
+        }
+    }
+
+    /**
+     * Atomically replaces the contents of a text file, encoded as UTF-8, creating it if it does not exist.
+     *
+     * @param target  the file to replace
+     * @param content writes the new text of the file
+     * @throws IOException if the file could not be written
+     */
+    public static void replaceText(Path target, TextContent content) throws IOException {
+        replace(target, out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            content.writeTo(writer);
+            writer.flush();
+        });
+    }
+
+    /**
+     * Appends bytes to the end of a file, creating it if it does not exist.
+     * Unlike a replacement, a crash during an append can leave a partial last line, which readers must tolerate.
+     *
+     * @param target the file to append to
+     * @param data   the bytes to append
+     * @throws IOException if the bytes could not be written
+     */
+    public static void append(Path target, byte[] data) throws IOException {
+        try (FileChannel channel = FileChannel.open(target,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (syncPolicy == SyncPolicy.EVERY_WRITE) {
+                channel.force(false);
+                return;
+            }
+        }
+        scheduleSync(target.toAbsolutePath());
+    }
+
+    /**
+     * Overwrites bytes in the middle of an existing file, without changing the rest of it.
+     * Like an append, this is not atomic: a crash during the write can leave some of the bytes written and
+     * others not, so it suits small records that fit within a single disk block.
+     *
+     * @param target   the file to write to
+     * @param position the offset in the file of the first byte to overwrite
+     * @param data     the bytes to write
+     * @throws IOException if the file does not exist or the bytes could not be written
+     */
+    public static void writeAt(Path target, long position, byte[] data) throws IOException {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+            if (syncPolicy == SyncPolicy.EVERY_WRITE) {
+                channel.force(false);
+                return;
+            }
+        }
+        scheduleSync(target.toAbsolutePath());
+    }
+
+    /**
+     * Moves a file over another as one atomic operation, falling back to a plain replacement
+     * on file systems that cannot rename atomically.
+     *
+     * @param source the file to move
+     * @param target the file to replace
+     * @throws IOException if the file could not be moved
+     */
+    public static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Syncs every file written since the last group commit, without waiting for the next one.
+     * Has no effect under {@link SyncPolicy#EVERY_WRITE}, where nothing is left to sync.
+     *
+     * @throws IOException if any file could not be synced; the other files are still synced
+     */
+    public static void syncPending() throws IOException {
+        IOException failure = null;
+        for (Path path : unsynced) {
+            unsynced.remove(path);
+            try {
+                if (Files.isDirectory(path)) {
+                    syncDirectory(path);
+                } else if (Files.exists(path)) {
+                    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                        channel.force(true);
+                    }
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Runs a group commit, reporting rather than throwing any failure, since it runs in the background.
+     */
+    private static void syncPendingQuietly() {
+        groupCommitScheduled.set(false);
+        try {
+            syncPending();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Records that a file needs syncing, and schedules a group commit if none is scheduled yet.
+     *
+     * @param path the file or directory to sync
+     */
+    private static void scheduleSync(Path path) {
+        unsynced.add(path);
+        if (groupCommitScheduled.compareAndSet(false, true)) {
+            syncer.schedule(DurableFiles::syncPendingQuietly, groupCommitMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Syncs a directory, which makes the renames and creations of files within it durable.
+     * Some platforms, such as Windows, cannot open directories, and are skipped.
+     *
+     * @param directory the directory to sync
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directories cannot be synced on this platform.
+        }
+    }
+}
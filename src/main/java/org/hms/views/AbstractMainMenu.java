@@ -17,6 +17,7 @@ public abstract class AbstractMainMenu extends AbstractMenu {
      * setting the current menu to an instance of `AuthenticationMenu`.
      * This action effectively transitions the*/
     public void logout() {
+        app.flushPendingWrites();
         app.setCurrentMenu(new AuthenticationMenu(app));
     }
 }
@@ -112,6 +112,7 @@ public class AdminMenu extends AbstractMainMenu {
                     case 5 -> {
                         logAdminAction("Logged out");
                         app.getAuthenticationService().logout();
+                        app.flushPendingWrites();
                         app.setCurrentMenu(new AuthenticationMenu(app));
                         return;
                     }
@@ -131,7 +132,7 @@ public class AdminMenu extends AbstractMainMenu {
      */
     private void printLowStockAlertMessage() {
         DrugInventoryTable lowStockView = app.getDrugDispensaryService().getLowStockDrugs();
-        if (!lowStockView.getEntries().isEmpty()) {
+        if (lowStockView.size() > 0) {
             System.out.println(Colour.YELLOW + "Low stock alert: The following drugs are running low in stock: ");
             System.out.print(lowStockView.toPrintString() + Colour.RESET);
         }
@@ -103,6 +103,7 @@ public class DoctorMenu extends AbstractMainMenu {
                     case 8 -> {
                         logDoctorAction("Logged out");
                         app.getAuthenticationService().logout();
+                        app.flushPendingWrites();
                         app.setCurrentMenu(new AuthenticationMenu(app));
                         return;
                     }
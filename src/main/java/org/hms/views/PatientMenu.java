@@ -17,7 +17,8 @@ import java.util.regex.Matcher;
  * The PatientMenu class represents the main menu for a Patient user.
  * It allows the user to view their medical record, update their personal information,
  * view available appointment slots, schedule an appointment, reschedule an appointment,
- * cancel an appointment, view upcoming appointments, view past appointment outcomes, and logout.
+ * cancel an appointment, view upcoming appointments, view past appointment outcomes,
+ * find the earliest available appointment slot, and logout.
  * The class extends AbstractMainMenu and implements the displayAndExecute method.
  */
 public class PatientMenu extends AbstractMainMenu {
@@ -57,7 +58,8 @@ public class PatientMenu extends AbstractMainMenu {
      * 6. Cancel Appointment
      * 7. View Scheduled Appointments
      * 8. View Past Appointment Outcomes
-     * 9. Logout
+     * 9. Find Earliest Available Slot
+     * 10. Logout
      */
     @Override
     public void displayAndExecute() {
@@ -71,7 +73,8 @@ public class PatientMenu extends AbstractMainMenu {
             System.out.println("6. Cancel Appointment");
             System.out.println("7. View Scheduled Appointments");
             System.out.println("8. View Past Appointment Outcomes");
-            System.out.println("9. Logout");
+            System.out.println("9. Find Earliest Available Slot");
+            System.out.println("10. Logout");
             System.out.print("Select an option: ");
 
             try {
@@ -85,8 +88,10 @@ public class PatientMenu extends AbstractMainMenu {
                     case 6 -> handleCancelAppointment();
                     case 7 -> handleViewUpcomingAppointments();
                     case 8 -> handleViewPastAppointmentOutcome();
-                    case 9 -> {
+                    case 9 -> handleFindEarliestAvailableSlot();
+                    case 10 -> {
                         app.getAuthenticationService().logout();
+                        app.flushPendingWrites();
                         app.setCurrentMenu(new AuthenticationMenu(app));
                         return;
                     }
@@ -186,6 +191,25 @@ public class PatientMenu extends AbstractMainMenu {
         }
     }
 
+    /**
+     * Handles the "Find Earliest Available Slot" option.
+     * The user will be prompted to enter a doctor ID, or nothing to accept any doctor.
+     * The earliest available slot from today onwards, among the dates that already have a schedule,
+     * will be displayed. If no slot is available, a message will be displayed.
+     */
+    private void handleFindEarliestAvailableSlot() {
+        System.out.print("Enter doctor ID (leave blank for any doctor): ");
+        String doctorID = scanner.nextLine().trim();
+        String today = LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE);
+
+        String[] slot = app.getAppointmentService().findEarliestAvailability(doctorID.isEmpty() ? null : doctorID, today, null);
+        if (slot == null) {
+            System.out.println("No available appointment slot found.");
+            return;
+        }
+        System.out.println("Earliest available slot: " + slot[0] + " at " + slot[1] + " with doctor " + slot[2]);
+    }
+
     /**
      * Handles the "Schedule Appointment" option.
      * The user will be prompted to enter a date, doctor ID, and time slot.
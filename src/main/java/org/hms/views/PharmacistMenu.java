@@ -78,6 +78,7 @@ public class PharmacistMenu extends AbstractMainMenu {
                     case 5 -> {
                         logPharmacistAction("Logged out");
                         app.getAuthenticationService().logout();
+                        app.flushPendingWrites();
                         app.setCurrentMenu(new AuthenticationMenu(app));
                         return;
                     }
@@ -0,0 +1,50 @@
+package org.hms.services.appointment;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AppointmentIndexTest {
+
+    private static AppointmentInformation appointment(int id, String patientID, String doctorID, AppointmentStatus status) {
+        return new AppointmentInformation(id, patientID, doctorID, new Date(0), status);
+    }
+
+    @Test
+    void findsAppointmentsByEachKeyInInsertionOrder() {
+        AppointmentIndex index = new AppointmentIndex();
+        AppointmentInformation first = appointment(100, "PAT001", "DOC001", AppointmentStatus.COMPLETED);
+        AppointmentInformation second = appointment(101, "PAT002", "DOC001", AppointmentStatus.PENDING);
+        AppointmentInformation third = appointment(102, "PAT001", "DOC002", AppointmentStatus.PENDING);
+        index.add(first);
+        index.add(second);
+        index.add(third);
+
+        assertEquals(List.of(first, third), List.copyOf(index.findByPatient("PAT001")));
+        assertEquals(List.of(first, second), List.copyOf(index.findByDoctor("DOC001")));
+        assertEquals(List.of(second), List.copyOf(index.findByDoctorAndStatus("DOC001", AppointmentStatus.PENDING)));
+        assertEquals(List.of(third), List.copyOf(index.findByAppointmentID(102)));
+        assertTrue(index.findByPatient("PAT999").isEmpty());
+    }
+
+    @Test
+    void statusAndDoctorChangesMoveAppointment() {
+        AppointmentIndex index = new AppointmentIndex();
+        AppointmentInformation earlier = appointment(100, "PAT001", "DOC001", AppointmentStatus.PENDING);
+        AppointmentInformation later = appointment(101, "PAT002", "DOC001", AppointmentStatus.CONFIRMED);
+        index.add(earlier);
+        index.add(later);
+
+        index.setStatus(earlier, AppointmentStatus.CONFIRMED);
+        assertEquals(AppointmentStatus.CONFIRMED, earlier.getAppointmentStatus());
+        assertTrue(index.findByDoctorAndStatus("DOC001", AppointmentStatus.PENDING).isEmpty());
+        assertEquals(List.of(earlier, later), List.copyOf(index.findByDoctorAndStatus("DOC001", AppointmentStatus.CONFIRMED)));
+
+        index.setDoctorID(later, "DOC002");
+        assertEquals(List.of(earlier), List.copyOf(index.findByDoctor("DOC001")));
+        assertEquals(List.of(later), List.copyOf(index.findByDoctorAndStatus("DOC002", AppointmentStatus.CONFIRMED)));
+    }
+}
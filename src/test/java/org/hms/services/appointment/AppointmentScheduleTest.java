@@ -0,0 +1,64 @@
+package org.hms.services.appointment;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AppointmentScheduleTest {
+    private AppointmentSchedule schedule;
+
+    @BeforeEach
+    void setUp() {
+        schedule = new AppointmentSchedule(3, 3);
+        for (int col = 0; col < 3; col++) {
+            schedule.setDoctorID(col, "DOC00" + (col + 1));
+        }
+        schedule.setTimeSlot(0, "10:00");
+        schedule.setTimeSlot(1, "11:00");
+        schedule.setTimeSlot(2, "12:00");
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                schedule.setSlot(row, col, AppointmentSchedule.UNAVAILABLE);
+            }
+        }
+    }
+
+    @Test
+    void findsAvailableDoctorsAtTimeSlot() {
+        schedule.setSlot(1, 1, AppointmentSchedule.AVAILABLE);
+        schedule.setSlot(1, 2, AppointmentSchedule.AVAILABLE);
+
+        assertEquals("DOC002", schedule.findAvailableDoctor("11:00"));
+        assertEquals(List.of("DOC002", "DOC003"), schedule.getAvailableDoctors("11:00"));
+        assertNull(schedule.findAvailableDoctor("10:00"));
+
+        schedule.setSlot(1, 1, "PAT001");
+        assertEquals(List.of("DOC003"), schedule.getAvailableDoctors("11:00"));
+        assertFalse(schedule.isAvailable("DOC002", "11:00"));
+        assertEquals("PAT001", schedule.getSlot(1, 1));
+    }
+
+    @Test
+    void unknownDoctorOrTimeSlotIsNotAvailable() {
+        assertEquals(-1, schedule.findDoctorColumn("DOC999"));
+        assertEquals(-1, schedule.findTimeSlotRow("08:00"));
+        assertFalse(schedule.isAvailable("DOC999", "10:00"));
+        assertNull(schedule.findAvailableDoctor("08:00"));
+    }
+
+    @Test
+    void matrixRoundTrip() {
+        schedule.setSlot(2, 0, AppointmentSchedule.AVAILABLE);
+        String[][] matrix = schedule.getMatrix();
+
+        AppointmentSchedule copy = new AppointmentSchedule(0, 0);
+        copy.setMatrix(matrix);
+
+        assertArrayEquals(matrix, copy.getMatrix());
+        assertEquals(2, copy.nextAvailableTimeSlot(0, 0));
+        assertEquals(-1, copy.nextAvailableTimeSlot(1, 0));
+    }
+}
@@ -2,6 +2,8 @@
 
     import org.junit.jupiter.api.Test;
 
+    import java.util.NoSuchElementException;
+
     import static org.junit.jupiter.api.Assertions.*;
 
     class DrugDispenseRequestTest {
@@ -85,4 +87,15 @@
                 request.loadFromCSVString(csvString);
             }, "Invalid status in CSV should throw an IllegalArgumentException.");
         }
+
+        @Test
+        void loadFromCSVStringMissingField() {
+            String csvString = "4,Paracetamol";
+
+            DrugDispenseRequest request = new DrugDispenseRequest(0, "", 0, DrugRequestStatus.PENDING);
+
+            assertThrows(NoSuchElementException.class, () -> {
+                request.loadFromCSVString(csvString);
+            }, "A line with missing fields should throw a NoSuchElementException.");
+        }
     }
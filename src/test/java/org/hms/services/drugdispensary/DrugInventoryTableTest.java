@@ -0,0 +1,22 @@
+package org.hms.services.drugdispensary;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DrugInventoryTableTest {
+
+    @Test
+    void nameChangedInPlaceIsReindexedOnSave() throws Exception {
+        DrugInventoryTable drugInventoryTable = new DrugInventoryTable();
+        drugInventoryTable.addEntry(new DrugInventoryEntry(0, "Paracetamol", 100, 20));
+        drugInventoryTable.addEntry(new DrugInventoryEntry(1, "Ibuprofen", 50, 10));
+
+        drugInventoryTable.getEntry(0).setName("Acetaminophen");
+        drugInventoryTable.saveToFile();
+
+        assertTrue(drugInventoryTable.searchByAttribute(DrugInventoryTable.BY_NAME, "Paracetamol").isEmpty());
+        assertEquals(0, drugInventoryTable.searchByAttribute(DrugInventoryTable.BY_NAME, "Acetaminophen").get(0).getTableEntryID());
+        assertEquals(1, drugInventoryTable.searchByAttribute(DrugInventoryTable.BY_NAME, "Ibuprofen").size());
+    }
+}
@@ -1,5 +1,6 @@
 package org.hms.services.drugdispensary;
 
+import org.hms.entities.TableSnapshot;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -65,4 +66,107 @@ class DrugReplenishRequestTableTest {
         System.out.println(filtered.toPrintString());
         assertEquals(2, result.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getEntryAfterRemoveAndReplace() throws Exception {
+        assertEquals("Cruggy", drugReplenishRequestTable.getEntry(1).getDrugName());
+
+        drugReplenishRequestTable.removeEntry(1);
+        assertNull(drugReplenishRequestTable.getEntry(1));
+        assertEquals("Bruggy", drugReplenishRequestTable.getEntry(2).getDrugName());
+        assertEquals("Wolfram", drugReplenishRequestTable.getEntry(3).getDrugName());
+
+        assertTrue(drugReplenishRequestTable.replaceEntry(new DrugReplenishRequest(3, "Wolfgang", 7, "Replaced")));
+        assertEquals("Wolfgang", drugReplenishRequestTable.getEntry(3).getDrugName());
+        assertFalse(drugReplenishRequestTable.replaceEntry(new DrugReplenishRequest(1, "Ghost", 1, "Missing")));
+    }
+
+    @Test
+    void addEntryRejectsDuplicateID() {
+        assertThrows(Exception.class, () -> drugReplenishRequestTable.addEntry(new DrugReplenishRequest(0, "Dupe", 1, "Dupe")));
+    }
+
+    @Test
+    void batchRollsBackOnFailure() {
+        assertThrows(Exception.class, () -> drugReplenishRequestTable.batch(() -> {
+            drugReplenishRequestTable.removeEntry(0);
+            drugReplenishRequestTable.removeEntry(1);
+            throw new Exception("Abort");
+        }));
+
+        assertEquals(4, drugReplenishRequestTable.getEntries().size());
+        assertEquals("Druggy", drugReplenishRequestTable.getEntry(0).getDrugName());
+    }
+
+    @Test
+    void otherThreadsWaitForTransactionAndSurviveItsRollback() throws Exception {
+        Thread writer = new Thread(() -> {
+            try {
+                drugReplenishRequestTable.addEntry(new DrugReplenishRequest(10, "Outsider", 1, "Other session"));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertThrows(Exception.class, () -> drugReplenishRequestTable.batch(() -> {
+            drugReplenishRequestTable.removeEntry(0);
+            writer.start();
+            writer.join(200);
+            // The other session cannot mutate the table until the transaction ends.
+            assertTrue(writer.isAlive());
+            assertNull(drugReplenishRequestTable.getEntry(10));
+            throw new Exception("Abort");
+        }));
+        writer.join();
+
+        assertEquals("Druggy", drugReplenishRequestTable.getEntry(0).getDrugName());
+        assertEquals("Outsider", drugReplenishRequestTable.getEntry(10).getDrugName());
+    }
+
+    @Test
+    void getUnusedIDReusesLowestRemovedID() throws Exception {
+        assertEquals(4, drugReplenishRequestTable.getUnusedID());
+
+        drugReplenishRequestTable.removeEntry(2);
+        drugReplenishRequestTable.removeEntry(1);
+        assertEquals(1, drugReplenishRequestTable.getUnusedID());
+
+        drugReplenishRequestTable.addEntry(drugReplenishRequestTable.createValidEntryTemplate());
+        assertEquals(2, drugReplenishRequestTable.getUnusedID());
+        drugReplenishRequestTable.addEntry(drugReplenishRequestTable.createValidEntryTemplate());
+        assertEquals(4, drugReplenishRequestTable.getUnusedID());
+    }
+
+    @Test
+    void forEachEntryVisitsTableWithoutCopying() throws Exception {
+        TableSnapshot<DrugReplenishRequest> before = drugReplenishRequestTable.snapshot();
+        assertThrows(UnsupportedOperationException.class, () -> before.remove(0));
+
+        drugReplenishRequestTable.removeEntry(0);
+        assertEquals(4, before.size());
+        assertEquals(3, drugReplenishRequestTable.size());
+
+        List<String> names = new ArrayList<>();
+        drugReplenishRequestTable.forEachEntry(request -> names.add(request.getDrugName()));
+        assertEquals(List.of("Cruggy", "Bruggy", "Wolfram"), names);
+    }
+
+    @Test
+    void snapshotIsIsolatedFromLaterWrites() throws Exception {
+        TableSnapshot<DrugReplenishRequest> snapshot = drugReplenishRequestTable.snapshot();
+        assertSame(snapshot, drugReplenishRequestTable.snapshot());
+
+        drugReplenishRequestTable.removeEntry(1);
+        DrugReplenishRequest replacement = drugReplenishRequestTable.createValidEntryTemplate();
+        replacement.setDrugName("Fresh");
+        drugReplenishRequestTable.addEntry(replacement);
+
+        assertEquals(4, snapshot.size());
+        assertEquals("Cruggy", snapshot.get(1).getDrugName());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.remove(0));
+
+        TableSnapshot<DrugReplenishRequest> latest = drugReplenishRequestTable.snapshot();
+        assertTrue(latest.getVersion() > snapshot.getVersion());
+        assertEquals(drugReplenishRequestTable.getEntries(), latest);
+        assertEquals("Fresh", latest.get(1).getDrugName());
+    }
+}
@@ -4,6 +4,12 @@ import org.hms.services.storage.StorageService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class MedicalRecordServiceTest {
@@ -27,4 +33,68 @@ class MedicalRecordServiceTest {
     void getPatientParticularsTreatedByDoctor() {
         System.out.println(medicalRecordService.getPatientParticularsTreatedByDoctor("DOC001"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void concurrentUpdatesToOnePatientAreNotLost() throws Exception {
+        MedicalRecord records = new MedicalRecord();
+        records.addEntry(new MedicalEntry(0, "P1001", "D001", "Flu", "Rest", "None"));
+        records.addEntry(new MedicalEntry(1, "P1001", "D001", "Cough", "Syrup", "None"));
+        MedicalRecordService service = new MedicalRecordService(new IMedicalDataInterface() {
+            @Override
+            public PatientTable getPatientTable() {
+                return new PatientTable();
+            }
+
+            @Override
+            public MedicalRecordShards getMedicalRecordShards() {
+                return MedicalRecordShards.single(records);
+            }
+
+            @Override
+            public ContactInformationTable getContactInformationTable() {
+                return new ContactInformationTable();
+            }
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 200; round++) {
+                String suffix = " " + round;
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> updates = List.of(
+                        pool.submit(() -> {
+                            start.await();
+                            service.updateDiagnosis(0, "Diagnosis" + suffix);
+                            return null;
+                        }),
+                        pool.submit(() -> {
+                            start.await();
+                            service.updateTreatmentPlan(0, "Treatment" + suffix);
+                            return null;
+                        }),
+                        pool.submit(() -> {
+                            start.await();
+                            service.updateConsultationNotes(0, "Notes" + suffix);
+                            return null;
+                        }),
+                        pool.submit(() -> {
+                            start.await();
+                            service.updateDiagnosis(1, "Diagnosis" + suffix);
+                            return null;
+                        }));
+                start.countDown();
+                for (Future<?> update : updates) {
+                    update.get();
+                }
+
+                MedicalEntry updated = records.getEntry(0);
+                assertEquals("Diagnosis" + suffix, updated.getDiagnosis());
+                assertEquals("Treatment" + suffix, updated.getTreatmentPlan());
+                assertEquals("Notes" + suffix, updated.getConsultationNotes());
+                assertEquals("Diagnosis" + suffix, records.getEntry(1).getDiagnosis());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.hms.services.medicalrecord;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MedicalRecordShardsTest {
+
+    @Test
+    void splitsLegacyFileByPatientAndLoadsLazily() throws Exception {
+        Path dir = Files.createTempDirectory("medical_records");
+        Path csv = dir.resolve("medical_records.csv");
+        MedicalRecord legacy = new MedicalRecord(csv.toString());
+        for (int i = 0; i < 20; i++) {
+            legacy.addEntry(new MedicalEntry(i, "P" + (i % 5), "D1", "Flu", "Rest", "Notes " + i));
+        }
+
+        MedicalRecordShards shards = MedicalRecordShards.open(csv.toString(), 4, 16);
+        assertTrue(shards.loaded().isEmpty());
+        assertTrue(Files.exists(dir.resolve("medical_records.shard-3-of-4.csv")));
+
+        MedicalRecord table = shards.forPatient("P2");
+        assertEquals(1, shards.loaded().size());
+        assertEquals(4, table.searchByAttribute(MedicalRecord.BY_PATIENT_ID, "P2").size());
+
+        int total = 0;
+        for (MedicalRecord shard : shards.all()) {
+            for (MedicalEntry entry : shard.snapshot()) {
+                assertSame(shard, shards.forEntry(entry.getTableEntryID()));
+                assertSame(shard, shards.forPatient(entry.getPatientID()));
+                assertEquals("Notes " + entry.getTableEntryID(), entry.getConsultationNotes());
+                total++;
+            }
+        }
+        assertEquals(20, total);
+    }
+
+    @Test
+    void newEntriesStayInTheirPatientsShard() throws Exception {
+        Path dir = Files.createTempDirectory("medical_records");
+        MedicalRecordShards shards = MedicalRecordShards.open(dir.resolve("medical_records.csv").toString(), 3, 16);
+
+        MedicalRecord table = shards.forPatient("P7");
+        MedicalEntry entry = table.createValidEntryTemplate();
+        entry.setPatientID("P7");
+        table.addEntry(entry);
+        assertSame(table, shards.forEntry(entry.getTableEntryID()));
+
+        MedicalRecordShards reopened = MedicalRecordShards.open(dir.resolve("medical_records.csv").toString(), 3, 16);
+        assertNotNull(reopened.forEntry(entry.getTableEntryID()).getEntry(entry.getTableEntryID()));
+    }
+
+    @Test
+    void changingShardCountKeepsEntriesAndIDs() throws Exception {
+        Path dir = Files.createTempDirectory("medical_records");
+        String csv = dir.resolve("medical_records.csv").toString();
+        MedicalRecord legacy = new MedicalRecord(csv);
+        for (int i = 0; i < 10; i++) {
+            legacy.addEntry(new MedicalEntry(i, "P" + (i % 5), "D1", "Flu", "Rest", "Notes " + i));
+        }
+
+        MedicalRecordShards shards = MedicalRecordShards.open(csv, 2, 16);
+        MedicalRecord table = shards.forPatient("P3");
+        MedicalEntry created = table.createValidEntryTemplate();
+        created.setPatientID("P3");
+        created.setConsultationNotes("Created");
+        table.addEntry(created);
+        assertTrue(created.getTableEntryID() >= 10);
+
+        MedicalRecordShards resharded = MedicalRecordShards.open(csv, 3, 16);
+        assertFalse(Files.exists(dir.resolve("medical_records.shard-0-of-2.csv")));
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Notes " + i, resharded.forEntry(i).getEntry(i).getConsultationNotes());
+        }
+        assertEquals("Created", resharded.forEntry(created.getTableEntryID()).getEntry(created.getTableEntryID()).getConsultationNotes());
+
+        MedicalRecordShards.merge(csv);
+        assertFalse(Files.exists(dir.resolve("medical_records.shards")));
+        MedicalRecord merged = new MedicalRecord(csv);
+        merged.loadFromFile();
+        assertEquals(11, merged.size());
+        assertEquals("Created", merged.getEntry(created.getTableEntryID()).getConsultationNotes());
+    }
+}
@@ -1,8 +1,15 @@
 package org.hms.services.medicalrecord;
 
+import org.hms.entities.TableQuery;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -24,4 +31,153 @@ class MedicalRecordTest {
 
         assertEquals(7, medicalRecord.getEntries().size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void indexedSearchFollowsReplacedEntries() throws Exception {
+        medicalRecord = new MedicalRecord();
+        medicalRecord.addEntry(new MedicalEntry(0, "P1001", "D001", "Flu", "Rest", "None"));
+        medicalRecord.addEntry(new MedicalEntry(1, "P1001", "D002", "Cough", "Syrup", "None"));
+        medicalRecord.addEntry(new MedicalEntry(2, "P1002", "D001", "Fever", "Panadol", "None"));
+
+        assertEquals(2, medicalRecord.searchByAttribute(MedicalRecord.BY_PATIENT_ID, "P1001").size());
+
+        // Mutate in place, then replace, as the services do.
+        MedicalEntry entry = medicalRecord.getEntry(1);
+        entry.setPatientID("P1002");
+        medicalRecord.replaceEntry(entry);
+
+        assertEquals(1, medicalRecord.searchByAttribute(MedicalRecord.BY_PATIENT_ID, "P1001").size());
+        assertEquals(2, medicalRecord.searchByAttribute(MedicalRecord.BY_PATIENT_ID, "P1002").size());
+        assertEquals(1, medicalRecord.filterByAttribute(MedicalRecord.BY_PATIENT_ID, "P1002")
+                .filterByAttribute(MedicalRecord.BY_DOCTOR_ID, "D001").getEntries().size());
+    }
+
+    @Test
+    void snapshotRoundTripsEntries() throws IOException {
+        String filePath = System.getProperty("user.dir") + "/data/medical_records.csv";
+        medicalRecord = new MedicalRecord(filePath);
+        medicalRecord.loadFromFile();
+
+        Path snapshot = Files.createTempFile("medical_records", ".bin");
+        try {
+            medicalRecord.saveSnapshot(snapshot.toString());
+            MedicalRecord loaded = new MedicalRecord();
+            loaded.loadSnapshot(snapshot.toString());
+
+            assertEquals(medicalRecord.getEntries().size(), loaded.getEntries().size());
+            for (MedicalEntry entry : medicalRecord.getEntries()) {
+                assertEquals(entry.toCSVString(), loaded.getEntry(entry.getTableEntryID()).toCSVString());
+            }
+            assertThrows(IOException.class, () -> new PatientTable().loadSnapshot(snapshot.toString()));
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    @Test
+    void queryFusesConditionsAndOrders() throws Exception {
+        medicalRecord = new MedicalRecord();
+        medicalRecord.addEntry(new MedicalEntry(0, "P1001", "D001", "Flu", "Rest", "None"));
+        medicalRecord.addEntry(new MedicalEntry(1, "P1001", "D002", "Cough", "Syrup", "None"));
+        medicalRecord.addEntry(new MedicalEntry(2, "P1001", "D001", "Fever", "Panadol", "None"));
+        medicalRecord.addEntry(new MedicalEntry(3, "P1002", "D001", "Rash", "Cream", "None"));
+
+        TableQuery<MedicalEntry> query = medicalRecord.query()
+                .where(MedicalRecord.BY_PATIENT_ID, "P1001")
+                .where(MedicalRecord.BY_DOCTOR_ID, "D001");
+
+        assertEquals(List.of(0, 2), query.ids());
+        assertEquals(2, query.count());
+        assertEquals("Fever", query.orderBy(MedicalEntry::getDiagnosis).limit(1).findFirst().getDiagnosis());
+        assertEquals(2, medicalRecord.query().where(MedicalRecord.BY_PATIENT_ID, "P1001")
+                .where(MedicalRecord.BY_DOCTOR_ID, "D001").toTable().size());
+        assertFalse(medicalRecord.query().where(MedicalRecord.BY_PATIENT_ID, "P1002")
+                .where(MedicalRecord.BY_DOCTOR_ID, "D002").exists());
+    }
+
+    @Test
+    void queryPlannerPicksMostSelectiveIndex() throws Exception {
+        medicalRecord = new MedicalRecord();
+        for (int i = 0; i < 20; i++) {
+            // Every record but one is written by the same doctor.
+            String doctorID = i == 0 ? "D002" : "D001";
+            medicalRecord.addEntry(new MedicalEntry(i, "P" + (1000 + i % 10), doctorID, "Flu", "Rest", "None"));
+        }
+
+        String plan = medicalRecord.query()
+                .where(MedicalRecord.BY_DOCTOR_ID, "D001")
+                .where(MedicalRecord.BY_PATIENT_ID, "P1003")
+                .explain();
+        assertTrue(plan.startsWith("INDEX LOOKUP patientID = P1003"), plan);
+        assertTrue(plan.contains("SKIPPED INDEX doctorID = D001"), plan);
+
+        assertTrue(medicalRecord.query().where(MedicalRecord.BY_DOCTOR_ID, "D001").explain().startsWith("FULL SCAN"));
+        assertEquals(List.of(3, 13), medicalRecord.query()
+                .where(MedicalRecord.BY_DOCTOR_ID, "D001")
+                .where(MedicalRecord.BY_PATIENT_ID, "P1003")
+                .ids());
+    }
+
+    @Test
+    void queryPlannerIntersectsSelectiveIndexes() throws Exception {
+        medicalRecord = new MedicalRecord();
+        for (int i = 0; i < 40; i++) {
+            medicalRecord.addEntry(new MedicalEntry(i, "P" + (1000 + i % 10), "D00" + i % 4, "Flu", "Rest", "None"));
+        }
+
+        TableQuery<MedicalEntry> query = medicalRecord.query()
+                .where(MedicalRecord.BY_DOCTOR_ID, "D002")
+                .where(MedicalRecord.BY_PATIENT_ID, "P1002");
+        assertTrue(query.explain().contains("INTERSECT doctorID = D002"), query.explain());
+        assertEquals(List.of(2, 22), query.ids());
+    }
+
+    @Test
+    void whereInReadsEveryKeyFromIndex() throws Exception {
+        medicalRecord = new MedicalRecord();
+        for (int i = 0; i < 20; i++) {
+            medicalRecord.addEntry(new MedicalEntry(i, "P" + (1000 + i % 10), "D001", "Flu", "Rest", "None"));
+        }
+
+        TableQuery<MedicalEntry> query = medicalRecord.query()
+                .whereIn(MedicalRecord.BY_PATIENT_ID, List.of("P1007", "P1002", "P9999"));
+        assertTrue(query.explain().startsWith("INDEX LOOKUP patientID IN [P1007, P1002, P9999] (estimated 4"), query.explain());
+        assertEquals(List.of(2, 7, 12, 17), query.ids());
+        assertEquals(List.of(5), medicalRecord.filterByEntryID(5).getEntries().stream()
+                .map(MedicalEntry::getTableEntryID).toList());
+        assertEquals(0, medicalRecord.filterByEntryID(99).size());
+    }
+
+    @Test
+    void concurrentReadersSeeConsistentTable() throws Exception {
+        medicalRecord = new MedicalRecord();
+        for (int i = 0; i < 100; i++) {
+            medicalRecord.addEntry(new MedicalEntry(i, "P" + (1000 + i % 10), "D001", "Flu", "Rest", "None"));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                for (int i = 100; i < 2000; i++) {
+                    medicalRecord.addEntry(new MedicalEntry(i, "P1000", "D002", "Cough", "Syrup", "None"));
+                    medicalRecord.removeEntry(i);
+                }
+                return null;
+            });
+            Future<?> reader = executor.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    assertNotNull(medicalRecord.getEntry(i % 100));
+                    for (MedicalEntry entry : medicalRecord.searchByAttribute(MedicalRecord.BY_PATIENT_ID, "P1003")) {
+                        assertEquals("P1003", entry.getPatientID());
+                    }
+                }
+                return null;
+            });
+            writer.get();
+            reader.get();
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(100, medicalRecord.size());
+    }
+}
@@ -1,5 +1,6 @@
 package org.hms.services.medicalrecord;
 
+import org.hms.entities.BloodType;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -7,6 +8,8 @@ import org.junit.jupiter.api.Test;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -59,6 +62,17 @@ class PatientParticularsTest {
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+    }
+
+    @Test
+    void loadFromCSVStringQuotedName() throws ParseException {
+        PatientParticulars particulars = new PatientParticulars();
+        particulars.loadFromCSVString("7,PAT007,\"Doe, \"\"Jo\"\"\",1999-01-02,Female,NEGATIVE_AB");
 
+        assertEquals(7, particulars.getTableEntryID());
+        assertEquals("Doe, \"Jo\"", particulars.getName());
+        assertEquals(new SimpleDateFormat("yyyy-MM-dd").parse("1999-01-02"), particulars.getDateOfBirth());
+        assertEquals(BloodType.NEGATIVE_AB, particulars.getBloodType());
+        assertEquals("7,PAT007,\"Doe, \"\"Jo\"\"\",1999-01-02,Female,NEGATIVE_AB", particulars.toCSVString());
     }
-}
\ No newline at end of file
+}
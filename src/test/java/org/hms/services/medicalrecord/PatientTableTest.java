@@ -4,7 +4,11 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 
@@ -63,4 +67,25 @@ class PatientTableTest {
 
         System.out.println(patientTable.toPrintString());
     }
-}
\ No newline at end of file
+
+    @Test
+    void serializedTableKeepsEntriesAndRebuildsIndexes() throws Exception {
+        PatientTable patientTable = new PatientTable();
+        patientTable.addEntry(new PatientParticulars(0, "PAT001", "Alice Brown", "1980-05-14", "Female", "POSITIVE_A"));
+        patientTable.addEntry(new PatientParticulars(1, "PAT002", "Bob Smith", "1985-10-10", "Male", "NEGATIVE_A"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(patientTable);
+        }
+        PatientTable copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (PatientTable) in.readObject();
+        }
+
+        assertEquals(2, copy.size());
+        assertEquals("Bob Smith", copy.searchByAttribute(PatientTable.BY_PATIENT_ID, "PAT002").get(0).getName());
+        copy.addEntry(new PatientParticulars(2, "PAT003", "Charlie Davis", "1990-03-25", "Female", "NEGATIVE_AB"));
+        assertEquals(1, copy.searchByAttribute(PatientTable.BY_PATIENT_ID, "PAT003").size());
+    }
+}
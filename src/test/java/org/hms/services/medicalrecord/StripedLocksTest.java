@@ -0,0 +1,34 @@
+package org.hms.services.medicalrecord;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedLocksTest {
+
+    @Test
+    void sameKeyAlwaysMapsToSameLock() {
+        StripedLocks locks = new StripedLocks(50);
+        assertEquals(64, locks.getStripeCount());
+        assertSame(locks.forKey("P1001"), locks.forKey(new String("P1001")));
+    }
+
+    @Test
+    void keysAreSpreadOverStripes() {
+        StripedLocks locks = new StripedLocks(16);
+        Set<Lock> used = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            used.add(locks.forKey("P" + i));
+        }
+        assertEquals(16, used.size());
+    }
+
+    @Test
+    void rejectsNonPositiveStripeCount() {
+        assertThrows(IllegalArgumentException.class, () -> new StripedLocks(0));
+    }
+}
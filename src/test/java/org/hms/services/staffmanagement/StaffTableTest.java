@@ -0,0 +1,25 @@
+package org.hms.services.staffmanagement;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaffTableTest {
+
+    @Test
+    void refusesJournalAndSnapshotsSinceStaffIDsAreNotKept() throws Exception {
+        Path snapshot = Files.createTempFile("staff", ".snapshot");
+        try {
+            StaffTable staffTable = new StaffTable();
+            assertThrows(UnsupportedOperationException.class, () -> staffTable.saveSnapshot(snapshot.toString()));
+            assertThrows(UnsupportedOperationException.class, () -> staffTable.loadSnapshot(snapshot.toString()));
+            StaffTable linkedTable = new StaffTable(snapshot.toString());
+            assertThrows(UnsupportedOperationException.class, () -> linkedTable.enableJournal(10));
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.hms.services.storage;
+
+import org.hms.services.appointment.AppointmentSchedule;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvailabilityIndexTest {
+
+    private static AppointmentSchedule scheduleWithFreeSlot(String doctorID, int freeRow) {
+        AppointmentSchedule schedule = new AppointmentSchedule(2, 3);
+        schedule.setDoctorID(0, "DOC001");
+        schedule.setDoctorID(1, "DOC002");
+        schedule.setTimeSlot(0, "9:00");
+        schedule.setTimeSlot(1, "10:00");
+        schedule.setTimeSlot(2, "14:00");
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 2; col++) {
+                schedule.setSlot(row, col, AppointmentSchedule.UNAVAILABLE);
+            }
+        }
+        schedule.setSlot(freeRow, schedule.findDoctorColumn(doctorID), AppointmentSchedule.AVAILABLE);
+        return schedule;
+    }
+
+    @Test
+    void findsEarliestSlotAcrossDates() throws Exception {
+        BasicFileAttributes attributes = ScheduleCache.readAttributes(Files.createTempFile("20301103", ".csv"));
+        AvailabilityIndex index = new AvailabilityIndex();
+        index.update("20301105", scheduleWithFreeSlot("DOC001", 0), attributes);
+        index.update("20301103", scheduleWithFreeSlot("DOC002", 2), attributes);
+
+        assertArrayEquals(new String[]{"20301103", "14:00", "DOC002"}, index.findEarliest(null, null, null, null, null));
+        assertArrayEquals(new String[]{"20301105", "9:00", "DOC001"}, index.findEarliest("DOC001", "20301101", "20301130", null, null));
+        assertNull(index.findEarliest("DOC001", "20301101", "20301104", null, null));
+        assertNull(index.findEarliest(null, "20301104", null, "10:00", "12:00"));
+    }
+
+    @Test
+    void updateReplacesAvailabilityOfDate() throws Exception {
+        Path file = Files.createTempFile("20301103", ".csv");
+        AvailabilityIndex index = new AvailabilityIndex();
+        AppointmentSchedule schedule = scheduleWithFreeSlot("DOC001", 1);
+        index.update("20301103", schedule, ScheduleCache.readAttributes(file));
+        assertTrue(index.isCurrent("20301103", ScheduleCache.readAttributes(file)));
+
+        Files.writeString(file, "changed");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+        assertFalse(index.isCurrent("20301103", ScheduleCache.readAttributes(file)));
+
+        schedule.setSlot(1, 0, "PAT001");
+        index.update("20301103", schedule, ScheduleCache.readAttributes(file));
+        assertNull(index.findEarliest(null, null, null, null, null));
+
+        index.update("20301103", schedule, null);
+        assertFalse(index.isCurrent("20301103", ScheduleCache.readAttributes(file)));
+    }
+}
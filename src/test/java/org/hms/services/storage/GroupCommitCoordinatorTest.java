@@ -0,0 +1,114 @@
+package org.hms.services.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupCommitCoordinatorTest {
+
+    @Test
+    void concurrentWritesOfSameFileAreMerged() throws Exception {
+        GroupCommitCoordinator coordinator = new GroupCommitCoordinator(20);
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    coordinator.write("schedule.csv", () -> {
+                        runs.incrementAndGet();
+                        // A slow write keeps the file contended, so the callers behind it are batched.
+                        try {
+                            Thread.sleep(50);
+                        } catch (InterruptedException e) {
+                            throw new IOException(e);
+                        }
+                    });
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(runs.get() < 8);
+        assertEquals(runs.get(), coordinator.getWriteCount());
+    }
+
+    @Test
+    void uncontendedWriteSkipsTheWindow() throws Exception {
+        GroupCommitCoordinator coordinator = new GroupCommitCoordinator(TimeUnit.SECONDS.toMillis(10));
+        long start = System.nanoTime();
+        coordinator.write("users.csv", () -> { });
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(1, coordinator.getWriteCount());
+    }
+
+    @Test
+    void failedWriteIsReportedToCaller() {
+        GroupCommitCoordinator coordinator = new GroupCommitCoordinator(0);
+        IOException thrown = assertThrows(IOException.class, () -> coordinator.write("users.csv", () -> {
+            throw new IOException("disk full");
+        }));
+        assertEquals("disk full", thrown.getMessage());
+    }
+
+    @Test
+    void updateQueuedBehindWriteIsNotMergedAway() throws Exception {
+        GroupCommitCoordinator coordinator = new GroupCommitCoordinator(0);
+        List<String> log = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<?> first = executor.submit(() -> {
+                coordinator.write("outcomes.csv", () -> {
+                    running.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    log.add("first");
+                });
+                return null;
+            });
+            running.await();
+            // Both join the batch waiting for the first write, the update after the whole-file write.
+            Future<?> replace = executor.submit(() -> {
+                coordinator.write("outcomes.csv", () -> log.add("replace"));
+                return null;
+            });
+            Thread.sleep(100);
+            Future<?> append = executor.submit(() -> {
+                coordinator.update("outcomes.csv", () -> log.add("append"));
+                return null;
+            });
+            Thread.sleep(100);
+            release.countDown();
+            first.get();
+            replace.get();
+            append.get();
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(List.of("first", "replace", "append"), log);
+        assertEquals(2, coordinator.getWriteCount());
+    }
+}
@@ -0,0 +1,65 @@
+package org.hms.services.storage;
+
+import org.hms.services.appointment.AppointmentSchedule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduleCacheTest {
+
+    private static AppointmentSchedule schedule(String slot) {
+        AppointmentSchedule schedule = new AppointmentSchedule(1, 1);
+        schedule.setDoctorID(0, "DOC001");
+        schedule.setTimeSlot(0, "10:00");
+        schedule.setSlot(0, 0, slot);
+        return schedule;
+    }
+
+    @Test
+    void servesCopiesWhileFileIsUnchanged(@TempDir Path dir) throws Exception {
+        Path file = Files.writeString(dir.resolve("20301103.csv"), "Time/Doctor,DOC001\n10:00,available\n");
+        ScheduleCache cache = new ScheduleCache(4);
+        cache.put("20301103", schedule(AppointmentSchedule.AVAILABLE), ScheduleCache.readAttributes(file));
+
+        AppointmentSchedule loaded = cache.get("20301103", file);
+        loaded.setSlot(0, 0, "PAT001");
+
+        assertEquals(AppointmentSchedule.AVAILABLE, cache.get("20301103", file).getSlot(0, 0));
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    void changedFileIsNotServed(@TempDir Path dir) throws Exception {
+        Path file = Files.writeString(dir.resolve("20301103.csv"), "Time/Doctor,DOC001\n10:00,available\n");
+        ScheduleCache cache = new ScheduleCache(4);
+        cache.put("20301103", schedule(AppointmentSchedule.AVAILABLE), ScheduleCache.readAttributes(file));
+
+        Files.writeString(file, "Time/Doctor,DOC001\n10:00,PAT001\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+
+        assertNull(cache.get("20301103", file));
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed(@TempDir Path dir) throws Exception {
+        ScheduleCache cache = new ScheduleCache(2);
+        Path[] files = new Path[3];
+        for (int i = 0; i < 3; i++) {
+            files[i] = Files.writeString(dir.resolve(i + ".csv"), "Time/Doctor,DOC001\n10:00,available\n");
+            cache.put(String.valueOf(i), schedule(AppointmentSchedule.AVAILABLE), ScheduleCache.readAttributes(files[i]));
+            if (i == 1) {
+                assertNotNull(cache.get("0", files[0]));
+            }
+        }
+
+        assertNotNull(cache.get("0", files[0]));
+        assertNull(cache.get("1", files[1]));
+        assertNotNull(cache.get("2", files[2]));
+    }
+}
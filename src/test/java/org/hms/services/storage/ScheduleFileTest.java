@@ -0,0 +1,51 @@
+package org.hms.services.storage;
+
+import org.hms.services.appointment.AppointmentSchedule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduleFileTest {
+
+    @Test
+    void readsLegacyCsv(@TempDir Path dir) throws Exception {
+        Path file = Files.writeString(dir.resolve("20301103.csv"), "Time/Doctor,DOC001,DOC002\n10:00,available\n");
+
+        String[][] matrix = ScheduleFile.read(file);
+
+        assertArrayEquals(new String[][]{{"Time/Doctor", "DOC001", "DOC002"}, {"10:00", "available", null}}, matrix);
+    }
+
+    @Test
+    void writesSlotInPlace(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("20301103.csv");
+        AppointmentSchedule schedule = new AppointmentSchedule(0, 0);
+        schedule.setMatrix(new String[][]{{"Time/Doctor", "DOC001", "DOC002"}, {"10:00", "available", "available"}});
+        ScheduleFile.write(file, schedule.getMatrix());
+        long size = Files.size(file);
+
+        schedule.setSlot(0, 1, "PAT001");
+        assertTrue(ScheduleFile.writeSlot(file, schedule, 0, 1));
+
+        assertEquals(size, Files.size(file));
+        assertArrayEquals(schedule.getMatrix(), ScheduleFile.read(file));
+    }
+
+    @Test
+    void refusesSlotThatDoesNotFit(@TempDir Path dir) throws Exception {
+        Path legacy = Files.writeString(dir.resolve("legacy.csv"), "Time/Doctor,DOC001\n10:00,available\n");
+        AppointmentSchedule schedule = new AppointmentSchedule(0, 0);
+        schedule.setMatrix(ScheduleFile.read(legacy));
+        schedule.setSlot(0, 0, "PAT001");
+        assertFalse(ScheduleFile.writeSlot(legacy, schedule, 0, 0));
+
+        Path file = dir.resolve("20301103.csv");
+        ScheduleFile.write(file, schedule.getMatrix());
+        schedule.setSlot(0, 0, "A-PATIENT-ID-LONGER-THAN-ANY-CELL");
+        assertFalse(ScheduleFile.writeSlot(file, schedule, 0, 0));
+    }
+}
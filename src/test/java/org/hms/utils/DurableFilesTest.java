@@ -0,0 +1,46 @@
+package org.hms.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DurableFilesTest {
+
+    @Test
+    void failedReplaceLeavesFileUntouched() throws IOException {
+        Path dir = Files.createTempDirectory("durable");
+        Path file = dir.resolve("users.csv");
+        DurableFiles.replaceText(file, writer -> writer.write("before\n"));
+
+        assertThrows(IOException.class, () -> DurableFiles.replaceText(file, writer -> {
+            writer.write("after\n");
+            throw new IOException("disk full");
+        }));
+
+        assertEquals("before\n", Files.readString(file));
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void appendAndReplaceUnderBothPolicies() throws IOException {
+        Path file = Files.createTempDirectory("durable").resolve("log.csv");
+        DurableFiles.SyncPolicy original = DurableFiles.getSyncPolicy();
+        try {
+            for (DurableFiles.SyncPolicy policy : DurableFiles.SyncPolicy.values()) {
+                DurableFiles.setSyncPolicy(policy, 50);
+                DurableFiles.replaceText(file, writer -> writer.write("header\n"));
+                DurableFiles.append(file, "row\n".getBytes());
+                DurableFiles.syncPending();
+                assertEquals("header\nrow\n", Files.readString(file));
+            }
+        } finally {
+            DurableFiles.setSyncPolicy(original, 200);
+        }
+    }
+}